@@ -43,25 +43,222 @@ public class OpenApiConfig {
       PathItem optimize = new PathItem();
       Operation postOpt = new Operation()
           .summary("Optimize deliveries into a tour")
-          .description("Compute an optimized tour for given delivery IDs and warehouse.");
+          .description("Compute an optimized tour for given delivery IDs and warehouse. With timeBudgetMs the best "
+              + "tour found within the budget is returned; the optimization stops if the client disconnects. "
+              + "Repeating a request with unchanged deliveries returns the same tour without solving again. "
+              + "The tour returned, including a best-so-far tour sent when the budget expires, is the one "
+              + "persisted in the background after the response. Time-window routes are planned "
+              + "by /api/tours/optimize/time-windows only.");
       ApiResponses responses = new ApiResponses();
       responses.addApiResponse("200", new ApiResponse().description("Ordered list of deliveries (200)"));
+      responses.addApiResponse("400", new ApiResponse().description("Invalid request or optimizer TIME_WINDOWS"));
+      responses.addApiResponse("503", new ApiResponse().description("Too many optimizations or no tour within budget"));
       postOpt.responses(responses);
       RequestBody rb = new RequestBody()
-          .description("{ \"warehouseId\": 1, \"deliveryIds\": [1,2], \"optimizer\": \"nearest\" }")
+          .description("{ \"warehouseId\": 1, \"deliveryIds\": [1,2], \"optimizer\": \"nearest\", \"timeBudgetMs\": 500 }")
           .content(
               new Content().addMediaType("application/json", new MediaType().schema(new Schema<>().type("object"))));
       postOpt.requestBody(rb);
       optimize.post(postOpt);
       openApi.path("/api/tours/optimize", optimize);
 
+      // POST /api/tours/optimize/batch
+      PathItem optimizeBatch = new PathItem();
+      Operation postBatch = new Operation()
+          .summary("Optimize many tours in one call")
+          .description("Array of optimize requests (e.g. one per warehouse), solved in parallel and persisted in one "
+              + "transaction. A delivery listed by several requests is only planned by the first one.");
+      ApiResponses batchResponses = new ApiResponses();
+      batchResponses.addApiResponse("200",
+          new ApiResponse().description("One entry per request: [{ warehouseId, tour } or { warehouseId, error }]"));
+      batchResponses.addApiResponse("503", new ApiResponse().description("Too many optimizations running"));
+      postBatch.responses(batchResponses);
+      RequestBody batchBody = new RequestBody()
+          .description("[{ \"warehouseId\": 1, \"deliveryIds\": [1,2] }, { \"warehouseId\": 2, \"deliveryIds\": [3,4], \"vehicleId\": 2 }]")
+          .content(
+              new Content().addMediaType("application/json", new MediaType().schema(new Schema<>().type("array"))));
+      postBatch.requestBody(batchBody);
+      optimizeBatch.post(postBatch);
+      openApi.path("/api/tours/optimize/batch", optimizeBatch);
+
+      // POST /api/tours/optimize/fleet
+      PathItem optimizeFleet = new PathItem();
+      Operation postFleet = new Operation()
+          .summary("Optimize deliveries into one tour per vehicle")
+          .description("Capacitated multi-vehicle planning; persists one tour per route with its vehicle.");
+      ApiResponses fleetResponses = new ApiResponses();
+      fleetResponses.addApiResponse("200", new ApiResponse().description("{ tours: [...], unassigned: [...] }"));
+      postFleet.responses(fleetResponses);
+      RequestBody fleetBody = new RequestBody()
+          .description("{ \"warehouseId\": 1, \"deliveryIds\": [1,2], \"vehicleIds\": [1,2] }")
+          .content(
+              new Content().addMediaType("application/json", new MediaType().schema(new Schema<>().type("object"))));
+      postFleet.requestBody(fleetBody);
+      optimizeFleet.post(postFleet);
+      openApi.path("/api/tours/optimize/fleet", optimizeFleet);
+
+      // POST /api/tours/optimize/time-windows
+      PathItem optimizeTw = new PathItem();
+      Operation postTw = new Operation()
+          .summary("Optimize deliveries within their time slots")
+          .description("Route honouring Customer.preferredTimeSlot and Warehouse.openingHours; stops that cannot be "
+              + "served in their slot are returned as infeasible and left out of the persisted tour.");
+      ApiResponses twResponses = new ApiResponses();
+      twResponses.addApiResponse("200",
+          new ApiResponse().description("{ tour: [...], serviceStarts: [\"09:05\", ...], infeasible: [...] }"));
+      postTw.responses(twResponses);
+      RequestBody twBody = new RequestBody()
+          .description("{ \"warehouseId\": 1, \"deliveryIds\": [1,2], \"vehicleId\": 1 }")
+          .content(
+              new Content().addMediaType("application/json", new MediaType().schema(new Schema<>().type("object"))));
+      postTw.requestBody(twBody);
+      optimizeTw.post(postTw);
+      openApi.path("/api/tours/optimize/time-windows", optimizeTw);
+
+      // /api/tours/{id}/deliveries (POST, DELETE)
+      PathItem tourDeliveries = new PathItem();
+      Parameter tourIdParam = new Parameter()
+          .name("id")
+          .in("path")
+          .required(true)
+          .description("Tour id");
+
+      Operation postTourDeliveries = new Operation()
+          .summary("Insert deliveries into a tour")
+          .description("Cheapest insertion of new deliveries; the planned stops keep their order.");
+      postTourDeliveries.addParametersItem(tourIdParam);
+      ApiResponses insertResponses = new ApiResponses();
+      insertResponses.addApiResponse("200", new ApiResponse().description("Updated tour"));
+      insertResponses.addApiResponse("404", new ApiResponse().description("Tour not found"));
+      postTourDeliveries.responses(insertResponses);
+      RequestBody insertBody = new RequestBody()
+          .description("{ \"warehouseId\": 1, \"deliveryIds\": [7,8], \"fixedStops\": 3 }")
+          .content(
+              new Content().addMediaType("application/json", new MediaType().schema(new Schema<>().type("object"))));
+      postTourDeliveries.requestBody(insertBody);
+      tourDeliveries.post(postTourDeliveries);
+
+      Operation deleteTourDeliveries = new Operation()
+          .summary("Remove deliveries from a tour")
+          .description("Removes the given delivery ids (query parameter ids) from the tour; deliveries are kept.");
+      deleteTourDeliveries.addParametersItem(tourIdParam);
+      deleteTourDeliveries.addParametersItem(new Parameter()
+          .name("ids")
+          .in("query")
+          .required(true)
+          .description("Comma-separated delivery ids"));
+      deleteTourDeliveries.addParametersItem(new Parameter()
+          .name("warehouseId")
+          .in("query")
+          .required(false)
+          .description("Warehouse of the tour; its legs count in the reported distance"));
+      ApiResponses removeResponses = new ApiResponses();
+      removeResponses.addApiResponse("200", new ApiResponse().description("Updated tour"));
+      removeResponses.addApiResponse("404", new ApiResponse().description("Tour not found"));
+      deleteTourDeliveries.responses(removeResponses);
+      tourDeliveries.delete(deleteTourDeliveries);
+
+      openApi.path("/api/tours/{id}/deliveries", tourDeliveries);
+
+      // /api/tours/jobs (POST) and /api/tours/jobs/{jobId}[/result|/events] (GET, DELETE)
+      PathItem jobs = new PathItem();
+      Operation postJob = new Operation()
+          .summary("Submit an optimization job")
+          .description("Same body as /api/tours/optimize; returns the job id at once and runs the optimization "
+              + "in the background.");
+      ApiResponses submitResponses = new ApiResponses();
+      submitResponses.addApiResponse("202", new ApiResponse().description("{ jobId, status: QUEUED, ... }"));
+      submitResponses.addApiResponse("503", new ApiResponse().description("Too many optimizations queued"));
+      postJob.responses(submitResponses);
+      postJob.requestBody(new RequestBody()
+          .description("{ \"warehouseId\": 1, \"deliveryIds\": [1,2], \"optimizer\": \"portfolio\", \"timeBudgetMs\": 5000 }")
+          .content(
+              new Content().addMediaType("application/json", new MediaType().schema(new Schema<>().type("object")))));
+      jobs.post(postJob);
+      openApi.path("/api/tours/jobs", jobs);
+
+      Parameter jobIdParam = new Parameter()
+          .name("jobId")
+          .in("path")
+          .required(true)
+          .description("Job id");
+
+      PathItem job = new PathItem();
+      Operation getJob = new Operation()
+          .summary("Poll an optimization job")
+          .description("Status (QUEUED, RUNNING, DONE, FAILED, CANCELLED) and best distance found so far.");
+      getJob.addParametersItem(jobIdParam);
+      ApiResponses jobResponses = new ApiResponses();
+      jobResponses.addApiResponse("200", new ApiResponse().description("{ jobId, status, bestDistance, ... }"));
+      jobResponses.addApiResponse("404", new ApiResponse().description("Unknown or expired job"));
+      getJob.responses(jobResponses);
+      job.get(getJob);
+      Operation cancelJob = new Operation()
+          .summary("Cancel an optimization job")
+          .description("A queued job never runs; a running one stops and is not persisted.");
+      cancelJob.addParametersItem(jobIdParam);
+      cancelJob.responses(jobResponses);
+      job.delete(cancelJob);
+      openApi.path("/api/tours/jobs/{jobId}", job);
+
+      PathItem jobResult = new PathItem();
+      Operation getJobResult = new Operation()
+          .summary("Fetch the tour of an optimization job");
+      getJobResult.addParametersItem(jobIdParam);
+      ApiResponses resultResponses = new ApiResponses();
+      resultResponses.addApiResponse("200", new ApiResponse().description("Ordered list of deliveries"));
+      resultResponses.addApiResponse("202", new ApiResponse().description("Still queued or running (job status)"));
+      resultResponses.addApiResponse("409", new ApiResponse().description("Job failed or was cancelled (job status)"));
+      resultResponses.addApiResponse("404", new ApiResponse().description("Unknown or expired job"));
+      getJobResult.responses(resultResponses);
+      jobResult.get(getJobResult);
+      openApi.path("/api/tours/jobs/{jobId}/result", jobResult);
+
+      PathItem jobEvents = new PathItem();
+      Operation getJobEvents = new Operation()
+          .summary("Stream job progress (Server-Sent Events)")
+          .description("\"status\" event first, \"progress\" with the best distance on every improvement, and a "
+              + "final \"status\" when the job ends.");
+      getJobEvents.addParametersItem(jobIdParam);
+      ApiResponses eventResponses = new ApiResponses();
+      eventResponses.addApiResponse("200", new ApiResponse().description("text/event-stream"));
+      eventResponses.addApiResponse("404", new ApiResponse().description("Unknown or expired job"));
+      getJobEvents.responses(eventResponses);
+      jobEvents.get(getJobEvents);
+      openApi.path("/api/tours/jobs/{jobId}/events", jobEvents);
+
+      // /api/tours/persistence (GET)
+      PathItem persistence = new PathItem();
+      Operation getPersistence = new Operation()
+          .summary("Background tour persistence counters")
+          .description("Tours queued, submitted, written, failed (after all retries), rejected (queue full) and "
+              + "batch retries since startup.");
+      ApiResponses persistenceResponses = new ApiResponses();
+      persistenceResponses.addApiResponse("200", new ApiResponse().description("Counters"));
+      getPersistence.responses(persistenceResponses);
+      persistence.get(getPersistence);
+      openApi.path("/api/tours/persistence", persistence);
+
       // /api/deliveries (GET, POST)
       PathItem deliveriesRoot = new PathItem();
       Operation getAll = new Operation()
           .summary("List all deliveries")
-          .description("Returns all deliveries stored in the system.");
+          .description("Returns the deliveries stored in the system, one page at a time: offset pages (page, size) "
+              + "with total counts, or keyset pages when cursor is given (no count, same cost at any depth).");
+      getAll.addParametersItem(new Parameter()
+          .name("status")
+          .in("query")
+          .required(false)
+          .description("Only deliveries with this status: PENDING, PLANNED, IN_TRANSIT, DELIVERED or CANCELLED"));
+      getAll.addParametersItem(new Parameter()
+          .name("cursor")
+          .in("query")
+          .required(false)
+          .description("Keyset paging: empty for the first page, then nextCursor of the previous page"));
       ApiResponses getAllResponses = new ApiResponses();
-      getAllResponses.addApiResponse("200", new ApiResponse().description("Array of Delivery"));
+      getAllResponses.addApiResponse("200", new ApiResponse().description(
+          "Page of Delivery, or with cursor { content, size, hasNext, nextCursor } in id order"));
+      getAllResponses.addApiResponse("400", new ApiResponse().description("Invalid cursor"));
       getAll.responses(getAllResponses);
       deliveriesRoot.get(getAll);
 
@@ -81,6 +278,134 @@ public class OpenApiConfig {
 
       openApi.path("/api/deliveries", deliveriesRoot);
 
+      // /api/deliveries/export (GET)
+      PathItem deliveriesExport = new PathItem();
+      Operation export = new Operation()
+          .summary("Export deliveries")
+          .description("Streams every delivery in id order as it is read from the database (constant memory).");
+      export.addParametersItem(new Parameter()
+          .name("status")
+          .in("query")
+          .required(false)
+          .description("Only deliveries with this status"));
+      export.addParametersItem(new Parameter()
+          .name("format")
+          .in("query")
+          .required(false)
+          .description("ndjson (default, one delivery per line) or json (one array)"));
+      ApiResponses exportResponses = new ApiResponses();
+      exportResponses.addApiResponse("200", new ApiResponse().description("application/x-ndjson or application/json"));
+      export.responses(exportResponses);
+      deliveriesExport.get(export);
+      openApi.path("/api/deliveries/export", deliveriesExport);
+
+      // /api/deliveries/status-counts (GET)
+      PathItem deliveriesStatusCounts = new PathItem();
+      Operation statusCounts = new Operation()
+          .summary("Count deliveries per status")
+          .description("Number of deliveries of every status (zero included), from one grouped query "
+              + "over the status index.");
+      ApiResponses statusCountsResponses = new ApiResponses();
+      statusCountsResponses.addApiResponse("200",
+          new ApiResponse().description("{ \"PENDING\": 12, \"PLANNED\": 3, \"IN_TRANSIT\": 0, ... }"));
+      statusCounts.responses(statusCountsResponses);
+      deliveriesStatusCounts.get(statusCounts);
+      openApi.path("/api/deliveries/status-counts", deliveriesStatusCounts);
+
+      // /api/deliveries/nearby (GET)
+      PathItem deliveriesNearby = new PathItem();
+      Operation nearby = new Operation()
+          .summary("Deliveries around a point")
+          .description("Deliveries within radiusKm of the point, nearest first. Candidates are read through the "
+              + "geo_cell index over the circle's bounding box, then filtered by exact distance.");
+      nearby.addParametersItem(new Parameter()
+          .name("lat")
+          .in("query")
+          .required(true)
+          .description("Latitude of the center"));
+      nearby.addParametersItem(new Parameter()
+          .name("lon")
+          .in("query")
+          .required(true)
+          .description("Longitude of the center"));
+      nearby.addParametersItem(new Parameter()
+          .name("radiusKm")
+          .in("query")
+          .required(true)
+          .description("Radius in kilometers"));
+      nearby.addParametersItem(new Parameter()
+          .name("status")
+          .in("query")
+          .required(false)
+          .description("Only deliveries with this status"));
+      ApiResponses nearbyResponses = new ApiResponses();
+      nearbyResponses.addApiResponse("200", new ApiResponse().description("Array of DeliveryDto"));
+      nearbyResponses.addApiResponse("400",
+          new ApiResponse().description("Coordinates out of range or radius not positive"));
+      nearby.responses(nearbyResponses);
+      deliveriesNearby.get(nearby);
+      openApi.path("/api/deliveries/nearby", deliveriesNearby);
+
+      // /api/deliveries/within (GET)
+      PathItem deliveriesWithin = new PathItem();
+      Operation within = new Operation()
+          .summary("Deliveries inside a bounding box")
+          .description("Deliveries inside the box in id order, read through the geo_cell index. "
+              + "minLon greater than maxLon selects a box crossing the antimeridian.");
+      within.addParametersItem(new Parameter()
+          .name("minLat")
+          .in("query")
+          .required(true)
+          .description("South edge"));
+      within.addParametersItem(new Parameter()
+          .name("maxLat")
+          .in("query")
+          .required(true)
+          .description("North edge"));
+      within.addParametersItem(new Parameter()
+          .name("minLon")
+          .in("query")
+          .required(true)
+          .description("West edge"));
+      within.addParametersItem(new Parameter()
+          .name("maxLon")
+          .in("query")
+          .required(true)
+          .description("East edge"));
+      within.addParametersItem(new Parameter()
+          .name("status")
+          .in("query")
+          .required(false)
+          .description("Only deliveries with this status"));
+      ApiResponses withinResponses = new ApiResponses();
+      withinResponses.addApiResponse("200", new ApiResponse().description("Array of DeliveryDto"));
+      withinResponses.addApiResponse("400", new ApiResponse().description("Coordinates out of range"));
+      within.responses(withinResponses);
+      deliveriesWithin.get(within);
+      openApi.path("/api/deliveries/within", deliveriesWithin);
+
+      // /api/deliveries/bulk (POST)
+      PathItem deliveriesBulk = new PathItem();
+      Operation bulk = new Operation()
+          .summary("Insert deliveries in bulk")
+          .description("Validates the uploaded deliveries and inserts them in batches (one transaction each); "
+              + "invalid records and failed batches are reported with their line numbers, the rest is inserted. "
+              + "Deliveries without status are PENDING.");
+      ApiResponses bulkResponses = new ApiResponses();
+      bulkResponses.addApiResponse("201", new ApiResponse().description("Per-batch report, some deliveries inserted"));
+      bulkResponses.addApiResponse("200", new ApiResponse().description("Per-batch report, nothing inserted"));
+      bulk.responses(bulkResponses);
+      bulk.requestBody(new RequestBody()
+          .description("JSON array of deliveries, one delivery JSON per line (application/x-ndjson), "
+              + "or CSV with an optional header line latitude,longitude,weight,volume,status "
+              + "(RFC 4180 quoting: quoted fields may contain commas, line breaks and \"\" for a quote)")
+          .content(new Content()
+              .addMediaType("application/json", new MediaType().schema(new Schema<>().type("array")))
+              .addMediaType("application/x-ndjson", new MediaType().schema(new Schema<>().type("string")))
+              .addMediaType("text/csv", new MediaType().schema(new Schema<>().type("string")))));
+      deliveriesBulk.post(bulk);
+      openApi.path("/api/deliveries/bulk", deliveriesBulk);
+
       // /api/deliveries/{id} (PUT, DELETE)
       PathItem deliveriesWithId = new PathItem();
       Parameter idParam = new Parameter()
@@ -137,6 +462,33 @@ public class OpenApiConfig {
       postWarehouse.requestBody(postWareBody);
 
       openApi.path("/api/warehouses", warehousesRoot);
+
+      // /api/warehouses/{id}/deliveries (GET)
+      PathItem warehouseDeliveries = new PathItem();
+      Operation aroundWarehouse = new Operation()
+          .summary("Candidate deliveries of a warehouse")
+          .description("Deliveries within radiusKm of the warehouse, nearest first.");
+      aroundWarehouse.addParametersItem(new Parameter()
+          .name("id")
+          .in("path")
+          .required(true)
+          .description("Warehouse id"));
+      aroundWarehouse.addParametersItem(new Parameter()
+          .name("radiusKm")
+          .in("query")
+          .required(true)
+          .description("Radius in kilometers"));
+      aroundWarehouse.addParametersItem(new Parameter()
+          .name("status")
+          .in("query")
+          .required(false)
+          .description("Delivery status (default PENDING)"));
+      ApiResponses aroundResponses = new ApiResponses();
+      aroundResponses.addApiResponse("200", new ApiResponse().description("Array of DeliveryDto"));
+      aroundResponses.addApiResponse("404", new ApiResponse().description("Unknown warehouse"));
+      aroundWarehouse.responses(aroundResponses);
+      warehouseDeliveries.get(aroundWarehouse);
+      openApi.path("/api/warehouses/{id}/deliveries", warehouseDeliveries);
     };
   }
 
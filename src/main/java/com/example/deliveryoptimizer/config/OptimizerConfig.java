@@ -0,0 +1,62 @@
+package com.example.deliveryoptimizer.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads used to run optimizations off the servlet threads, so a request can
+ * be answered (or abandoned) before its optimization finishes, and the pool
+ * parallel strategies are split over, and the threads sending the events of
+ * optimization jobs.
+ */
+@Configuration
+public class OptimizerConfig {
+
+    /**
+     * Bounded pool: at most {@code threads} optimizations run at once (0 = one
+     * per CPU) and at most {@code queue-capacity} wait; further submissions are
+     * rejected instead of piling up.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor optimizationExecutor(
+            @Value("${optimizer.executor.threads:0}") int threads,
+            @Value("${optimizer.executor.queue-capacity:32}") int queueCapacity) {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(size);
+        executor.setMaxPoolSize(size);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("optimizer-");
+        return executor;
+    }
+
+    /**
+     * Work-stealing pool shared by the parallel optimizers (portfolio); 0 =
+     * one thread per CPU.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ForkJoinPool optimizationPool(@Value("${optimizer.portfolio.parallelism:0}") int parallelism) {
+        return new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Threads sending the Server-Sent Events of optimization jobs, so a slow
+     * client never holds up a solver thread.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService jobEventExecutor(@Value("${optimizer.events.threads:2}") int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "job-events-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+}
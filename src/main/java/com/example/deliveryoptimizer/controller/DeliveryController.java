@@ -1,22 +1,45 @@
 package com.example.deliveryoptimizer.controller;
 
 import com.example.deliveryoptimizer.dto.DeliveryDto;
+import com.example.deliveryoptimizer.dto.DeliverySlice;
+import com.example.deliveryoptimizer.dto.IngestReport;
 import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.DeliveryStatus;
 import com.example.deliveryoptimizer.mapper.DeliveryMapper;
+import com.example.deliveryoptimizer.mapper.DeliveryRecordReader;
 import com.example.deliveryoptimizer.repository.DeliveryRepository;
 import com.example.deliveryoptimizer.service.DeliveryService;
+import com.example.deliveryoptimizer.service.DistanceMatrixCache;
+import com.example.deliveryoptimizer.service.OptimizationResultCache;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
  * Simple DeliveryController (XML-configured) exposing REST-like endpoints:
- * - GET /api/deliveries -> list all deliveries
+ * - GET /api/deliveries -> list all deliveries (offset or keyset pages)
+ * - GET /api/deliveries/export -> stream all deliveries (NDJSON or JSON array)
+ * - GET /api/deliveries/status-counts -> number of deliveries per status
+ * - GET /api/deliveries/nearby -> deliveries within a radius of a point
+ * - GET /api/deliveries/within -> deliveries inside a bounding box
  * - POST /api/deliveries -> create a delivery (body: Delivery JSON)
+ * - POST /api/deliveries/bulk -> insert many deliveries (JSON array, NDJSON or CSV)
  * - PUT /api/deliveries/{id} -> update an existing delivery
  * - DELETE /api/deliveries/{id} -> delete by id
  *
@@ -30,20 +53,42 @@ public class DeliveryController {
 
     private final DeliveryRepository deliveryRepository;
     private final DeliveryService deliveryService;
+    private final DistanceMatrixCache matrixCache;
+    private final OptimizationResultCache resultCache;
+    private final ObjectMapper objectMapper;
 
-    public DeliveryController(DeliveryRepository deliveryRepository, DeliveryService deliveryService) {
+    public DeliveryController(DeliveryRepository deliveryRepository, DeliveryService deliveryService,
+            DistanceMatrixCache matrixCache, OptimizationResultCache resultCache, ObjectMapper objectMapper) {
         this.deliveryRepository = deliveryRepository;
         this.deliveryService = deliveryService;
+        this.matrixCache = matrixCache;
+        this.resultCache = resultCache;
+        this.objectMapper = objectMapper;
     }
 
     // GET /api/deliveries
-    // Optional params: status, page, size
+    // Optional params: status, page, size (offset pages with total count), or
+    // cursor (keyset pages: empty for the first page, then the nextCursor of
+    // the previous answer; no count, constant cost at any depth)
     @GetMapping
     public ResponseEntity<?> listAll(
-            @RequestParam(value = "status", required = false) String status,
+            @RequestParam(value = "status", required = false) DeliveryStatus status,
             @RequestParam(value = "page", required = false, defaultValue = "0") int page,
-            @RequestParam(value = "size", required = false, defaultValue = "20") int size) {
-        if (status != null && !status.isBlank()) {
+            @RequestParam(value = "size", required = false, defaultValue = "20") int size,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        if (cursor != null) {
+            Long afterId;
+            try {
+                afterId = decodeCursor(cursor);
+            } catch (IllegalArgumentException ex) {
+                return ResponseEntity.badRequest().body(Map.of("error", "invalid cursor"));
+            }
+            Slice<DeliveryDto> slice = deliveryService.getDeliveriesAfter(status, afterId, size);
+            List<DeliveryDto> content = slice.getContent();
+            String next = slice.hasNext() ? encodeCursor(content.get(content.size() - 1).getId()) : null;
+            return ResponseEntity.ok(new DeliverySlice(content, slice.getSize(), slice.hasNext(), next));
+        }
+        if (status != null) {
             Page<DeliveryDto> pageResult = deliveryService.getDeliveriesByStatus(status, page, size);
             return ResponseEntity.ok(pageResult);
         }
@@ -52,6 +97,102 @@ public class DeliveryController {
         return ResponseEntity.ok(pageResult);
     }
 
+    // cursor = URL-safe Base64 of the last id returned; clients must treat it
+    // as opaque
+    private static String encodeCursor(Long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Long.toString(lastId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static Long decodeCursor(String cursor) {
+        if (cursor.isEmpty())
+            return null;
+        return Long.valueOf(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII));
+    }
+
+    // GET /api/deliveries/status-counts
+    // { "PENDING": 12, "PLANNED": 3, ... }: every status, one grouped query
+    // (cheap enough for dashboards polling every few seconds)
+    @GetMapping("/status-counts")
+    public ResponseEntity<Map<DeliveryStatus, Long>> statusCounts() {
+        return ResponseEntity.ok(deliveryService.countDeliveriesByStatus());
+    }
+
+    // GET /api/deliveries/export
+    // Optional params: status, format (ndjson = one delivery per line, the
+    // default, or json = one array). Rows are written as they are read from
+    // the database, so exports of any size run in constant memory.
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(value = "status", required = false) DeliveryStatus status,
+            @RequestParam(value = "format", required = false, defaultValue = "ndjson") String format) {
+        boolean ndjson = !"json".equalsIgnoreCase(format);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+                // lines are separated explicitly below
+                gen.setRootValueSeparator(null);
+                if (!ndjson)
+                    gen.writeStartArray();
+                deliveryService.exportDeliveries(status, dto -> {
+                    try {
+                        gen.writeObject(dto);
+                        if (ndjson)
+                            gen.writeRaw('\n');
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+                if (!ndjson)
+                    gen.writeEndArray();
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.parseMediaType("application/x-ndjson") : MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    // GET /api/deliveries/nearby?lat=..&lon=..&radiusKm=..
+    // Optional param: status. Nearest first.
+    @GetMapping("/nearby")
+    public ResponseEntity<?> nearby(
+            @RequestParam("lat") double lat,
+            @RequestParam("lon") double lon,
+            @RequestParam("radiusKm") double radiusKm,
+            @RequestParam(value = "status", required = false) DeliveryStatus status) {
+        if (!validLatitude(lat) || !validLongitude(lon))
+            return ResponseEntity.badRequest().body(Map.of("error", "coordinates out of range"));
+        if (!(radiusKm > 0) || Double.isInfinite(radiusKm))
+            return ResponseEntity.badRequest().body(Map.of("error", "radiusKm must be positive"));
+        return ResponseEntity.ok(deliveryService.findNearby(lat, lon, radiusKm * 1000, status));
+    }
+
+    // GET /api/deliveries/within?minLat=..&maxLat=..&minLon=..&maxLon=..
+    // Optional param: status. minLon > maxLon for a box crossing the
+    // antimeridian.
+    @GetMapping("/within")
+    public ResponseEntity<?> within(
+            @RequestParam("minLat") double minLat,
+            @RequestParam("maxLat") double maxLat,
+            @RequestParam("minLon") double minLon,
+            @RequestParam("maxLon") double maxLon,
+            @RequestParam(value = "status", required = false) DeliveryStatus status) {
+        if (!validLatitude(minLat) || !validLatitude(maxLat) || !validLongitude(minLon) || !validLongitude(maxLon))
+            return ResponseEntity.badRequest().body(Map.of("error", "coordinates out of range"));
+        if (minLat > maxLat)
+            return ResponseEntity.badRequest().body(Map.of("error", "minLat must not exceed maxLat"));
+        return ResponseEntity.ok(deliveryService.findWithin(minLat, maxLat, minLon, maxLon, status));
+    }
+
+    private static boolean validLatitude(double lat) {
+        return lat >= -90 && lat <= 90;
+    }
+
+    private static boolean validLongitude(double lon) {
+        return lon >= -180 && lon <= 180;
+    }
+
     // POST /api/deliveries
     @PostMapping
     public ResponseEntity<Delivery> create(@RequestBody Delivery delivery) {
@@ -59,6 +200,23 @@ public class DeliveryController {
         return ResponseEntity.status(HttpStatus.CREATED).body(saved);
     }
 
+    // POST /api/deliveries/bulk
+    // Body: JSON array (application/json), one delivery per line
+    // (application/x-ndjson) or CSV (text/csv). The body is read as it
+    // arrives; the response reports per batch which lines were rejected.
+    @PostMapping(value = "/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson", "text/csv" })
+    public ResponseEntity<IngestReport> bulkCreate(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body) throws IOException {
+        try (DeliveryRecordReader reader = "csv".equalsIgnoreCase(contentType.getSubtype())
+                ? DeliveryRecordReader.csv(body)
+                : "x-ndjson".equalsIgnoreCase(contentType.getSubtype())
+                        ? DeliveryRecordReader.ndjson(body, objectMapper)
+                        : DeliveryRecordReader.jsonArray(body, objectMapper)) {
+            IngestReport report = deliveryService.ingestDeliveries(reader);
+            return ResponseEntity.status(report.getInserted() > 0 ? HttpStatus.CREATED : HttpStatus.OK).body(report);
+        }
+    }
+
     // PUT /api/deliveries/{id}
     @PutMapping("/{id}")
     public ResponseEntity<?> update(@PathVariable Long id, @RequestBody DeliveryDto updDto) {
@@ -68,7 +226,15 @@ public class DeliveryController {
         }
         Delivery toUpdate = existing.get();
         // Map fields from DTO to entity; keep id from path
-        Delivery incoming = DeliveryMapper.toEntity(updDto);
+        Delivery incoming;
+        try {
+            incoming = DeliveryMapper.toEntity(updDto);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+        // cached distances of a moved delivery are stale
+        if (incoming.getLatitude() != toUpdate.getLatitude() || incoming.getLongitude() != toUpdate.getLongitude())
+            matrixCache.invalidate(id);
         // apply allowed updates
         toUpdate.setLatitude(incoming.getLatitude());
         toUpdate.setLongitude(incoming.getLongitude());
@@ -77,6 +243,7 @@ public class DeliveryController {
         toUpdate.setStatus(incoming.getStatus());
 
         Delivery saved = deliveryService.save(toUpdate);
+        resultCache.invalidate(id);
         DeliveryDto resp = DeliveryMapper.toDto(saved);
         return ResponseEntity.ok(resp);
     }
@@ -85,6 +252,8 @@ public class DeliveryController {
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable Long id) {
         deliveryRepository.deleteById(id);
+        matrixCache.invalidate(id);
+        resultCache.invalidate(id);
         return ResponseEntity.noContent().build();
     }
 }
@@ -1,29 +1,72 @@
 package com.example.deliveryoptimizer.controller;
 
 import com.example.deliveryoptimizer.dto.DeliveryDto;
+import com.example.deliveryoptimizer.dto.TourDto;
 import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.Tour;
 import com.example.deliveryoptimizer.entity.Warehouse;
 import com.example.deliveryoptimizer.mapper.DeliveryMapper;
+import com.example.deliveryoptimizer.mapper.TourMapper;
 import com.example.deliveryoptimizer.repository.DeliveryRepository;
 import com.example.deliveryoptimizer.repository.WarehouseRepository;
+import com.example.deliveryoptimizer.service.OptimizationBudget;
+import com.example.deliveryoptimizer.service.OptimizationJob;
+import com.example.deliveryoptimizer.service.OptimizationJobService;
+import com.example.deliveryoptimizer.service.OptimizationResultCache;
+import com.example.deliveryoptimizer.service.TimeWindowPlan;
 import com.example.deliveryoptimizer.service.TourService;
+import com.example.deliveryoptimizer.service.TourWriter;
+import com.example.deliveryoptimizer.util.TimeWindows;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
  * Annotated REST controller for Tour optimization.
  * Replaces the legacy Controller implementation and exposes POST
- * /api/tours/optimize
+ * /api/tours/optimize, POST /api/tours/optimize/batch, POST
+ * /api/tours/optimize/fleet, POST
+ * /api/tours/optimize/time-windows, POST/DELETE /api/tours/{id}/deliveries and
+ * the optimization job API under /api/tours/jobs; GET /api/tours/persistence
+ * reports the background tour writer
  *
  * Note: services/repositories are left unchanged and can still be configured in
  * XML.
@@ -32,56 +75,578 @@ import java.util.stream.Collectors;
 @RequestMapping("/api/tours")
 public class TourController {
 
+    // extra time given to a budgeted request before answering with the best
+    // tour found so far (covers loading, matrix building and persistence)
+    private static final long RESPONSE_GRACE_MS = 2000;
+
+    // time-window routes may leave stops out: they are only planned by
+    // /optimize/time-windows, which returns those stops separately
+    private static final String TIME_WINDOWS = "TIME_WINDOWS";
+
     private final DeliveryRepository deliveryRepository;
     private final WarehouseRepository warehouseRepository;
     private final TourService tourService;
+    private final AsyncTaskExecutor optimizationExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final OptimizationResultCache resultCache;
+    private final OptimizationJobService jobService;
+    private final ForkJoinPool optimizationPool;
+    private final TourWriter tourWriter;
+    private final Executor jobEventExecutor;
 
     public TourController(DeliveryRepository deliveryRepository,
             WarehouseRepository warehouseRepository,
-            TourService tourService) {
+            TourService tourService,
+            AsyncTaskExecutor optimizationExecutor,
+            TransactionTemplate transactionTemplate,
+            OptimizationResultCache resultCache,
+            OptimizationJobService jobService,
+            ForkJoinPool optimizationPool,
+            TourWriter tourWriter,
+            @Qualifier("jobEventExecutor") Executor jobEventExecutor) {
         this.deliveryRepository = deliveryRepository;
         this.warehouseRepository = warehouseRepository;
         this.tourService = tourService;
+        this.optimizationExecutor = optimizationExecutor;
+        this.transactionTemplate = transactionTemplate;
+        this.resultCache = resultCache;
+        this.jobService = jobService;
+        this.optimizationPool = optimizationPool;
+        this.tourWriter = tourWriter;
+        this.jobEventExecutor = jobEventExecutor;
     }
 
     public static class OptimizeRequest {
         public Long warehouseId;
         public List<Long> deliveryIds = new ArrayList<>();
         public String optimizer;
+        public Long vehicleId;
+        // fleet endpoint only: vehicles to plan with (empty = whole fleet)
+        public List<Long> vehicleIds = new ArrayList<>();
+        // optional: answer with the best tour found within this many ms
+        public Long timeBudgetMs;
     }
 
+    // POST /api/tours/optimize
+    // Runs on the optimization executor: with a time budget the best tour found
+    // so far is returned when it expires, and the optimization is cancelled as
+    // soon as the client disconnects. The tour persisted is always the one
+    // answered: the solver's, or the best-so-far one sent on timeout.
     @PostMapping("/optimize")
-    public ResponseEntity<?> optimize(@RequestBody OptimizeRequest req) {
+    public DeferredResult<ResponseEntity<?>> optimize(@RequestBody OptimizeRequest req) {
+        OptimizationBudget budget = OptimizationBudget.ofMillis(req.timeBudgetMs);
+        // 0 = no async timeout, as for a synchronous request
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>(
+                budget.hasDeadline() ? req.timeBudgetMs + RESPONSE_GRACE_MS : 0L);
+        result.onTimeout(() -> {
+            budget.cancel();
+            List<Delivery> best = budget.best();
+            if (best != null) {
+                // the solver's later tour is not answered, so not persisted
+                if (result.setResult(ResponseEntity.ok(toDtos(best))))
+                    tourWriter.submit(best, req.vehicleId);
+            } else {
+                result.setResult(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .body(Map.of("error", "no tour found within the time budget")));
+            }
+        });
+        result.onError(ex -> budget.cancel());
+
+        try {
+            optimizationExecutor.execute(() -> {
+                if (budget.isCancelled())
+                    return;
+                // no transaction held while solving: the tour is persisted
+                // by the write-behind tour writer
+                optimize(req, budget, result);
+            });
+        } catch (TaskRejectedException ex) {
+            result.setResult(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("error", "too many optimizations running, retry later")));
+        }
+        return result;
+    }
+
+    private void optimize(OptimizeRequest req, OptimizationBudget budget, DeferredResult<ResponseEntity<?>> result) {
+        if (TIME_WINDOWS.equalsIgnoreCase(req.optimizer)) {
+            result.setResult(timeWindowsRejected());
+            return;
+        }
+        try {
+            solve(req, budget, tour -> result.setResult(ResponseEntity.ok(toDtos(tour))));
+        } catch (IllegalArgumentException | InvalidDataAccessApiUsageException ex) {
+            result.setResult(invalidRequest());
+        } catch (RuntimeException ex) {
+            // answered by the container's error handling (5xx)
+            result.setErrorResult(ex);
+        }
+    }
+
+    /**
+     * Load and solve one request. The tour is handed to {@code answer}, which
+     * tells whether it reached the client; only then is a newly solved tour
+     * queued for persistence (a cached one already was), so a tour nobody
+     * received, e.g. after the time budget answered, is never saved.
+     */
+    private List<Delivery> solve(OptimizeRequest req, OptimizationBudget budget, Predicate<List<Delivery>> answer) {
+        // load warehouse if provided
+        Warehouse warehouse = null;
+        if (req.warehouseId != null) {
+            Optional<Warehouse> wOpt = warehouseRepository.findById(req.warehouseId);
+            if (wOpt.isPresent()) {
+                warehouse = wOpt.get();
+            }
+        }
+
+        // load deliveries with their customers (one select; they are used
+        // outside any transaction)
+        List<Delivery> deliveries = new ArrayList<>();
+        if (req.deliveryIds != null && !req.deliveryIds.isEmpty()) {
+            deliveries.addAll(deliveryRepository.findWithCustomerByIdIn(req.deliveryIds));
+        }
+
+        // identical request solved recently: its tour is already persisted (or
+        // queued to be)
+        List<Delivery> cached = resultCache.get(warehouse, deliveries, req.optimizer, req.vehicleId);
+        if (cached != null) {
+            answer.test(cached);
+            return cached;
+        }
+
+        List<Delivery> optimized = tourService.calculateTour(deliveries, warehouse, req.optimizer, budget);
+        if (answer.test(optimized)) {
+            tourWriter.submit(optimized, req.vehicleId);
+            // a cancelled run, or one stopped by its deadline, may be cut
+            // short: do not serve it again (the fingerprint does not include
+            // the budget)
+            if (!budget.isExhausted())
+                resultCache.put(warehouse, deliveries, req.optimizer, req.vehicleId, optimized);
+        }
+        return optimized;
+    }
+
+    // POST /api/tours/optimize/batch
+    // Body: array of optimize requests (e.g. one per warehouse). Warehouses and
+    // deliveries of all requests are loaded with one query each and the tours
+    // are solved in parallel on the optimization pool, with no transaction
+    // held; the tours of each warehouse are then persisted in their own short
+    // transaction. Answers one entry per request, in order; an entry whose
+    // tour could not be solved or persisted carries an "error" instead.
+    @PostMapping("/optimize/batch")
+    public DeferredResult<ResponseEntity<?>> optimizeBatch(@RequestBody List<OptimizeRequest> reqs) {
+        List<OptimizationBudget> budgets = new ArrayList<>();
+        for (OptimizeRequest req : reqs)
+            budgets.add(OptimizationBudget.ofMillis(req.timeBudgetMs));
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>(0L);
+        result.onError(ex -> budgets.forEach(OptimizationBudget::cancel));
+
+        try {
+            optimizationExecutor.execute(() -> {
+                try {
+                    result.setResult(ResponseEntity.ok(optimizeBatch(reqs, budgets)));
+                } catch (IllegalArgumentException | InvalidDataAccessApiUsageException ex) {
+                    result.setResult(invalidRequest());
+                } catch (RuntimeException ex) {
+                    // answered by the container's error handling (5xx)
+                    result.setErrorResult(ex);
+                }
+            });
+        } catch (TaskRejectedException ex) {
+            result.setResult(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("error", "too many optimizations running, retry later")));
+        }
+        return result;
+    }
+
+    private List<Map<String, Object>> optimizeBatch(List<OptimizeRequest> reqs, List<OptimizationBudget> budgets) {
+        Set<Long> warehouseIds = new HashSet<>();
+        Set<Long> deliveryIds = new HashSet<>();
+        for (OptimizeRequest req : reqs) {
+            if (req.warehouseId != null)
+                warehouseIds.add(req.warehouseId);
+            if (req.deliveryIds != null)
+                deliveryIds.addAll(req.deliveryIds);
+        }
+        Map<Long, Warehouse> warehouses = new HashMap<>();
+        warehouseRepository.findAllById(warehouseIds).forEach(w -> warehouses.put(w.getId(), w));
+        Map<Long, Delivery> byId = new HashMap<>();
+        if (!deliveryIds.isEmpty())
+            deliveryRepository.findWithCustomerByIdIn(deliveryIds).forEach(d -> byId.put(d.getId(), d));
+
+        // a delivery belongs to one tour: requests repeating one are rejected
+        List<Map<String, Object>> entries = new ArrayList<>();
+        List<ForkJoinTask<List<Delivery>>> tasks = new ArrayList<>();
+        Set<Long> claimed = new HashSet<>();
+        for (int i = 0; i < reqs.size(); i++) {
+            OptimizeRequest req = reqs.get(i);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("warehouseId", req.warehouseId);
+            entries.add(entry);
+            tasks.add(null);
+            if (TIME_WINDOWS.equalsIgnoreCase(req.optimizer)) {
+                entry.put("error", "optimizer TIME_WINDOWS is only available through /api/tours/optimize/time-windows");
+                continue;
+            }
+
+            List<Delivery> deliveries = new ArrayList<>();
+            Set<Long> shared = new HashSet<>();
+            Collection<Long> ids = req.deliveryIds != null ? new LinkedHashSet<>(req.deliveryIds) : List.of();
+            for (Long id : ids) {
+                Delivery d = byId.get(id);
+                if (d == null)
+                    continue;
+                if (claimed.contains(id))
+                    shared.add(id);
+                deliveries.add(d);
+            }
+            if (!shared.isEmpty()) {
+                entry.put("error", "deliveries already planned by an earlier request: " + shared);
+                continue;
+            }
+            deliveries.forEach(d -> claimed.add(d.getId()));
+            OptimizationBudget budget = budgets.get(i);
+            Warehouse warehouse = warehouses.get(req.warehouseId);
+            tasks.set(i, optimizationPool.submit(
+                    () -> tourService.calculateTour(deliveries, warehouse, req.optimizer, budget)));
+        }
+
+        // solved requests grouped by warehouse, in request order
+        List<List<Delivery>> routes = new ArrayList<>(Collections.nCopies(reqs.size(), null));
+        Map<Long, List<Integer>> solvedByWarehouse = new LinkedHashMap<>();
+        for (int i = 0; i < reqs.size(); i++) {
+            if (tasks.get(i) == null)
+                continue;
+            try {
+                routes.set(i, tasks.get(i).join());
+                solvedByWarehouse.computeIfAbsent(reqs.get(i).warehouseId, id -> new ArrayList<>()).add(i);
+            } catch (RuntimeException ex) {
+                entries.get(i).put("error", "optimization failed");
+            }
+        }
+
+        for (Map.Entry<Long, List<Integer>> group : solvedByWarehouse.entrySet()) {
+            List<Integer> solved = group.getValue();
+            List<List<Delivery>> groupRoutes = new ArrayList<>();
+            List<Long> vehicleIds = new ArrayList<>();
+            for (int i : solved) {
+                groupRoutes.add(routes.get(i));
+                vehicleIds.add(reqs.get(i).vehicleId);
+            }
+            List<Tour> tours;
+            try {
+                tours = transactionTemplate.execute(status -> tourService.saveTours(groupRoutes, vehicleIds));
+            } catch (RuntimeException ex) {
+                // rolled back: only this warehouse's tours are lost
+                for (int i : solved)
+                    entries.get(i).put("error", "tour not persisted");
+                continue;
+            }
+            Warehouse warehouse = warehouses.get(group.getKey());
+            for (int k = 0; k < tours.size(); k++) {
+                Tour tour = tours.get(k);
+                entries.get(solved.get(k)).put("tour", TourMapper.toDto(tour,
+                        tourService.getTotalDistance(tour.getDeliveries(), warehouse)));
+            }
+        }
+        return entries;
+    }
+
+    // GET /api/tours/persistence
+    // Queue length and counters of the write-behind tour persistence
+    @GetMapping("/persistence")
+    public ResponseEntity<TourWriter.Stats> persistenceStats() {
+        return ResponseEntity.ok(tourWriter.stats());
+    }
+
+    // POST /api/tours/jobs
+    // Same body as /optimize; answers 202 with the job id at once, the
+    // optimization runs on the optimization executor
+    @PostMapping("/jobs")
+    public ResponseEntity<?> submitJob(@RequestBody OptimizeRequest req) {
+        if (TIME_WINDOWS.equalsIgnoreCase(req.optimizer))
+            return timeWindowsRejected();
+        try {
+            OptimizationJob job = jobService.submit(OptimizationBudget.ofMillis(req.timeBudgetMs),
+                    // the caller is gone once the job is cancelled
+                    budget -> toDtos(solve(req, budget, tour -> !budget.isCancelled())));
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(jobStatus(job));
+        } catch (TaskRejectedException ex) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("error", "too many optimizations running, retry later"));
+        }
+    }
+
+    // GET /api/tours/jobs/{jobId}
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<?> getJob(@PathVariable String jobId) {
+        OptimizationJob job = jobService.get(jobId);
+        if (job == null)
+            return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(jobStatus(job));
+    }
+
+    // GET /api/tours/jobs/{jobId}/result
+    // 200 with the tour once done, 202 with the status while queued/running,
+    // 409 with the status when the job failed or was cancelled
+    @GetMapping("/jobs/{jobId}/result")
+    public ResponseEntity<?> getJobResult(@PathVariable String jobId) {
+        OptimizationJob job = jobService.get(jobId);
+        if (job == null)
+            return ResponseEntity.notFound().build();
+        if (!job.isFinished())
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(jobStatus(job));
+        if (job.getStatus() != OptimizationJob.Status.DONE)
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(jobStatus(job));
+        return ResponseEntity.ok(job.getResult().join());
+    }
+
+    // DELETE /api/tours/jobs/{jobId}
+    @DeleteMapping("/jobs/{jobId}")
+    public ResponseEntity<?> cancelJob(@PathVariable String jobId) {
+        OptimizationJob job = jobService.cancel(jobId);
+        if (job == null)
+            return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(jobStatus(job));
+    }
+
+    // GET /api/tours/jobs/{jobId}/events
+    // Server-Sent Events: "status" first, a "progress" event with the best
+    // distance each time a shorter tour is found, and a final "status" when
+    // the job ends (then the stream is closed). Events are sent from the job
+    // event executor: the solver only hands over its latest progress, and a
+    // progress event not yet sent is replaced by a newer one.
+    @GetMapping(path = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> jobEvents(@PathVariable String jobId) {
+        OptimizationJob job = jobService.get(jobId);
+        if (job == null)
+            return ResponseEntity.notFound().build();
+        // no timeout: the stream ends with the job
+        SseEmitter emitter = new SseEmitter(0L);
+        JobEventStream events = new JobEventStream(emitter, jobEventExecutor);
+        OptimizationBudget budget = job.getBudget();
+        ObjDoubleConsumer<List<Delivery>> listener = (tour, distance) -> events
+                .progress(Map.of("bestDistance", distance, "stops", tour.size()));
+
+        send(emitter, "status", jobStatus(job));
+        budget.addListener(listener);
+        emitter.onCompletion(() -> budget.removeListener(listener));
+        emitter.onError(ex -> budget.removeListener(listener));
+        job.getResult().whenComplete((tour, ex) -> events.finish(jobStatus(job)));
+        return ResponseEntity.ok(emitter);
+    }
+
+    /**
+     * Pending events of one job stream, sent by at most one task at a time on
+     * the event executor so they keep their order: the latest progress event,
+     * then the final status, after which the stream is completed.
+     */
+    private static final class JobEventStream {
+        private final SseEmitter emitter;
+        private final Executor executor;
+        private final AtomicReference<Object> progress = new AtomicReference<>();
+        private final AtomicReference<Object> finalStatus = new AtomicReference<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        JobEventStream(SseEmitter emitter, Executor executor) {
+            this.emitter = emitter;
+            this.executor = executor;
+        }
+
+        void progress(Object event) {
+            progress.set(event);
+            schedule();
+        }
+
+        void finish(Object status) {
+            finalStatus.set(status);
+            schedule();
+        }
+
+        private void schedule() {
+            if (!scheduled.compareAndSet(false, true))
+                return;
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException ex) {
+                // shutting down: the container closes the stream
+                scheduled.set(false);
+            }
+        }
+
+        private void drain() {
+            do {
+                Object event = progress.getAndSet(null);
+                if (event != null)
+                    send(emitter, "progress", event);
+                Object status = finalStatus.getAndSet(null);
+                if (status != null) {
+                    send(emitter, "status", status);
+                    emitter.complete();
+                    // stays scheduled: nothing is sent after the final status
+                    return;
+                }
+                scheduled.set(false);
+                // an event that arrived while the flag was still set is sent now
+            } while ((progress.get() != null || finalStatus.get() != null) && scheduled.compareAndSet(false, true));
+        }
+    }
+
+    private static void send(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data));
+        } catch (IOException | IllegalStateException ex) {
+            // client gone or stream already closed: onError/onCompletion clean up
+        }
+    }
+
+    private static Map<String, Object> jobStatus(OptimizationJob job) {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("jobId", job.getId());
+        status.put("status", job.getStatus());
+        double best = job.getBudget().bestDistance();
+        status.put("bestDistance", Double.isInfinite(best) ? null : best);
+        status.put("createdAt", job.getCreatedAt());
+        if (job.getFinishedAt() > 0)
+            status.put("finishedAt", job.getFinishedAt());
+        if (job.getError() != null)
+            status.put("error", job.getError());
+        return status;
+    }
+
+    // POST /api/tours/optimize/fleet
+    // Capacitated multi-vehicle planning: one tour per vehicle
+    @PostMapping("/optimize/fleet")
+    public ResponseEntity<?> optimizeFleet(@RequestBody OptimizeRequest req) {
         try {
-            // load warehouse if provided
             Warehouse warehouse = null;
             if (req.warehouseId != null) {
-                Optional<Warehouse> wOpt = warehouseRepository.findById(req.warehouseId);
-                if (wOpt.isPresent()) {
-                    warehouse = wOpt.get();
-                }
+                warehouse = warehouseRepository.findById(req.warehouseId).orElse(null);
             }
 
-            // load deliveries
             List<Delivery> deliveries = new ArrayList<>();
             if (req.deliveryIds != null && !req.deliveryIds.isEmpty()) {
                 deliveryRepository.findAllById(req.deliveryIds).forEach(deliveries::add);
             }
 
-            // call existing service (keeps business logic unchanged)
-            List<Delivery> optimized = tourService.getOptimizedTour(deliveries, req.optimizer, null);
+            List<Tour> tours = tourService.getOptimizedTours(deliveries, warehouse, req.vehicleIds);
 
-            // map to DTOs using existing DeliveryMapper
-            List<DeliveryDto> dtos = optimized.stream()
+            List<TourDto> tourDtos = new ArrayList<>();
+            Set<Delivery> planned = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Tour t : tours) {
+                planned.addAll(t.getDeliveries());
+                tourDtos.add(TourMapper.toDto(t, tourService.getTotalDistance(t.getDeliveries(), warehouse)));
+            }
+            List<DeliveryDto> unassigned = deliveries.stream()
+                    .filter(d -> !planned.contains(d))
                     .map(DeliveryMapper::toDto)
                     .collect(Collectors.toList());
 
-            return ResponseEntity.ok(dtos);
+            return ResponseEntity.ok(Map.of("tours", tourDtos, "unassigned", unassigned));
 
-        } catch (Exception ex) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                    .body(Map.of("error", "invalid JSON or missing fields"));
+        } catch (IllegalArgumentException | InvalidDataAccessApiUsageException ex) {
+            return invalidRequest();
         }
     }
 
+    // POST /api/tours/optimize/time-windows
+    // Route honouring customer time slots and warehouse opening hours
+    @PostMapping("/optimize/time-windows")
+    public ResponseEntity<?> optimizeTimeWindows(@RequestBody OptimizeRequest req) {
+        try {
+            Warehouse warehouse = null;
+            if (req.warehouseId != null) {
+                warehouse = warehouseRepository.findById(req.warehouseId).orElse(null);
+            }
+
+            // customers carry the time slots
+            List<Delivery> deliveries = new ArrayList<>();
+            if (req.deliveryIds != null && !req.deliveryIds.isEmpty()) {
+                deliveries.addAll(deliveryRepository.findWithCustomerByIdIn(req.deliveryIds));
+            }
+
+            TimeWindowPlan plan = tourService.getTimeWindowTour(deliveries, warehouse, req.vehicleId);
+
+            List<String> serviceStarts = new ArrayList<>();
+            for (double start : plan.getServiceStartMinutes())
+                serviceStarts.add(TimeWindows.format(start));
+
+            return ResponseEntity.ok(Map.of(
+                    "tour", toDtos(plan.getRoute()),
+                    "serviceStarts", serviceStarts,
+                    "infeasible", toDtos(plan.getInfeasible())));
+
+        } catch (IllegalArgumentException | InvalidDataAccessApiUsageException ex) {
+            return invalidRequest();
+        }
+    }
+
+    public static class InsertRequest {
+        public Long warehouseId;
+        public List<Long> deliveryIds = new ArrayList<>();
+        // leading stops already driven: new deliveries are inserted after them
+        public int fixedStops;
+    }
+
+    // POST /api/tours/{id}/deliveries
+    // Cheapest insertion of new deliveries into a persisted tour
+    @PostMapping("/{id}/deliveries")
+    public ResponseEntity<?> insertDeliveries(@PathVariable Long id, @RequestBody InsertRequest req) {
+        try {
+            Warehouse warehouse = null;
+            if (req.warehouseId != null) {
+                warehouse = warehouseRepository.findById(req.warehouseId).orElse(null);
+            }
+
+            List<Delivery> deliveries = new ArrayList<>();
+            if (req.deliveryIds != null && !req.deliveryIds.isEmpty()) {
+                deliveryRepository.findAllById(req.deliveryIds).forEach(deliveries::add);
+            }
+
+            Tour tour = tourService.insertDeliveries(id, deliveries, warehouse, req.fixedStops);
+            if (tour == null)
+                return ResponseEntity.notFound().build();
+            return ResponseEntity.ok(TourMapper.toDto(tour, tourService.getTotalDistance(tour.getDeliveries(), warehouse)));
+
+        } catch (IllegalArgumentException | InvalidDataAccessApiUsageException ex) {
+            return invalidRequest();
+        }
+    }
+
+    // DELETE /api/tours/{id}/deliveries?ids=1,2[&warehouseId=1]
+    // Remove (e.g. cancelled) deliveries from a tour, keeping the other stops in
+    // order; the reported distance includes the warehouse legs when given
+    @DeleteMapping("/{id}/deliveries")
+    public ResponseEntity<?> removeDeliveries(@PathVariable Long id, @RequestParam("ids") List<Long> ids,
+            @RequestParam(value = "warehouseId", required = false) Long warehouseId) {
+        Warehouse warehouse = null;
+        if (warehouseId != null) {
+            warehouse = warehouseRepository.findById(warehouseId).orElse(null);
+        }
+
+        Tour tour = tourService.removeDeliveries(id, ids);
+        if (tour == null)
+            return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(TourMapper.toDto(tour, tourService.getTotalDistance(tour.getDeliveries(), warehouse)));
+    }
+
+    // Errors caused by the request itself (null ids, input the optimizers
+    // reject) answer 400; any other failure (database, persistence) is a
+    // server error and propagates to the container as a 5xx. Malformed JSON
+    // never reaches the handlers: Spring answers it with 400 itself.
+    private static ResponseEntity<?> invalidRequest() {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("error", "invalid JSON or missing fields"));
+    }
+
+    private static ResponseEntity<?> timeWindowsRejected() {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error",
+                "optimizer TIME_WINDOWS is only available through /api/tours/optimize/time-windows"));
+    }
+
+    // map to DTOs using existing DeliveryMapper
+    private static List<DeliveryDto> toDtos(List<Delivery> deliveries) {
+        return deliveries.stream()
+                .map(DeliveryMapper::toDto)
+                .collect(Collectors.toList());
+    }
 }
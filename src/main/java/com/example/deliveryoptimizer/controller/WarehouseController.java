@@ -1,7 +1,10 @@
 package com.example.deliveryoptimizer.controller;
 
+import com.example.deliveryoptimizer.dto.DeliveryDto;
+import com.example.deliveryoptimizer.entity.DeliveryStatus;
 import com.example.deliveryoptimizer.entity.Warehouse;
 import com.example.deliveryoptimizer.repository.WarehouseRepository;
+import com.example.deliveryoptimizer.service.DeliveryService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -16,9 +19,11 @@ import java.util.List;
 public class WarehouseController {
 
     private final WarehouseRepository warehouseRepository;
+    private final DeliveryService deliveryService;
 
-    public WarehouseController(WarehouseRepository warehouseRepository) {
+    public WarehouseController(WarehouseRepository warehouseRepository, DeliveryService deliveryService) {
         this.warehouseRepository = warehouseRepository;
+        this.deliveryService = deliveryService;
     }
 
     @GetMapping
@@ -31,4 +36,19 @@ public class WarehouseController {
         Warehouse saved = warehouseRepository.save(w);
         return ResponseEntity.status(HttpStatus.CREATED).body(saved);
     }
+
+    // GET /api/warehouses/{id}/deliveries?radiusKm=..
+    // Candidate deliveries of the warehouse, nearest first; status defaults
+    // to PENDING
+    @GetMapping("/{id}/deliveries")
+    public ResponseEntity<List<DeliveryDto>> deliveriesAround(@PathVariable Long id,
+            @RequestParam("radiusKm") double radiusKm,
+            @RequestParam(value = "status", required = false, defaultValue = "PENDING") DeliveryStatus status) {
+        if (!(radiusKm > 0) || Double.isInfinite(radiusKm))
+            return ResponseEntity.badRequest().build();
+        return warehouseRepository.findById(id)
+                .map(w -> ResponseEntity.ok(
+                        deliveryService.findNearby(w.getLatitude(), w.getLongitude(), radiusKm * 1000, status)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
 }
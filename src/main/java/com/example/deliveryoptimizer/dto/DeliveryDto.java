@@ -1,5 +1,7 @@
 package com.example.deliveryoptimizer.dto;
 
+import com.example.deliveryoptimizer.entity.DeliveryStatus;
+
 /**
  * Simple DTO for Delivery entity used to expose data to clients.
  */
@@ -23,6 +25,12 @@ public class DeliveryDto {
         this.status = status;
     }
 
+    // JPQL / criteria constructor projections, which select the enum attribute
+    public DeliveryDto(Long id, double latitude, double longitude, double weight, double volume,
+            DeliveryStatus status) {
+        this(id, latitude, longitude, weight, volume, status != null ? status.name() : null);
+    }
+
     public Long getId() {
         return id;
     }
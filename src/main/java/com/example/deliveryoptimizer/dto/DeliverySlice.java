@@ -0,0 +1,58 @@
+package com.example.deliveryoptimizer.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One keyset page of deliveries (in id order) and the opaque cursor of the
+ * next page, null on the last page.
+ */
+public class DeliverySlice {
+    private List<DeliveryDto> content = new ArrayList<>();
+    private int size;
+    private boolean hasNext;
+    private String nextCursor;
+
+    public DeliverySlice() {
+    }
+
+    public DeliverySlice(List<DeliveryDto> content, int size, boolean hasNext, String nextCursor) {
+        this.content = content;
+        this.size = size;
+        this.hasNext = hasNext;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<DeliveryDto> getContent() {
+        return content;
+    }
+
+    public void setContent(List<DeliveryDto> content) {
+        this.content = content;
+    }
+
+    /** Requested page size. */
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public void setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.deliveryoptimizer.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk delivery upload: totals and one entry per batch (the
+ * records of a batch are inserted in one transaction).
+ */
+public class IngestReport {
+    private int received;
+    private int inserted;
+    private int rejected;
+    private List<Batch> batches = new ArrayList<>();
+
+    public IngestReport() {
+    }
+
+    public int getReceived() {
+        return received;
+    }
+
+    public void setReceived(int received) {
+        this.received = received;
+    }
+
+    public int getInserted() {
+        return inserted;
+    }
+
+    public void setInserted(int inserted) {
+        this.inserted = inserted;
+    }
+
+    public int getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(int rejected) {
+        this.rejected = rejected;
+    }
+
+    public List<Batch> getBatches() {
+        return batches;
+    }
+
+    public void setBatches(List<Batch> batches) {
+        this.batches = batches;
+    }
+
+    /**
+     * One batch: the upload lines it covers, how many of its records were
+     * inserted and why the others were not ("line 12: latitude out of range",
+     * or a single entry when the whole batch was rolled back).
+     */
+    public static class Batch {
+        private int index;
+        private int firstLine;
+        private int lastLine;
+        private int inserted;
+        private int rejected;
+        private List<String> errors = new ArrayList<>();
+
+        public Batch() {
+        }
+
+        public Batch(int index, int firstLine) {
+            this.index = index;
+            this.firstLine = firstLine;
+            this.lastLine = firstLine;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public void setIndex(int index) {
+            this.index = index;
+        }
+
+        public int getFirstLine() {
+            return firstLine;
+        }
+
+        public void setFirstLine(int firstLine) {
+            this.firstLine = firstLine;
+        }
+
+        public int getLastLine() {
+            return lastLine;
+        }
+
+        public void setLastLine(int lastLine) {
+            this.lastLine = lastLine;
+        }
+
+        public int getInserted() {
+            return inserted;
+        }
+
+        public void setInserted(int inserted) {
+            this.inserted = inserted;
+        }
+
+        public int getRejected() {
+            return rejected;
+        }
+
+        public void setRejected(int rejected) {
+            this.rejected = rejected;
+        }
+
+        public List<String> getErrors() {
+            return errors;
+        }
+
+        public void setErrors(List<String> errors) {
+            this.errors = errors;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.deliveryoptimizer.dto;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Simple DTO for Tour entity: the vehicle used and the ordered deliveries.
+ */
+public class TourDto {
+    private Long id;
+    private LocalDate date;
+    private Long vehicleId;
+    private double distance;
+    private List<DeliveryDto> deliveries = new ArrayList<>();
+
+    public TourDto() {
+    }
+
+    public TourDto(Long id, LocalDate date, Long vehicleId, double distance, List<DeliveryDto> deliveries) {
+        this.id = id;
+        this.date = date;
+        this.vehicleId = vehicleId;
+        this.distance = distance;
+        this.deliveries = deliveries;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    public Long getVehicleId() {
+        return vehicleId;
+    }
+
+    public void setVehicleId(Long vehicleId) {
+        this.vehicleId = vehicleId;
+    }
+
+    public double getDistance() {
+        return distance;
+    }
+
+    public void setDistance(double distance) {
+        this.distance = distance;
+    }
+
+    public List<DeliveryDto> getDeliveries() {
+        return deliveries;
+    }
+
+    public void setDeliveries(List<DeliveryDto> deliveries) {
+        this.deliveries = deliveries;
+    }
+}
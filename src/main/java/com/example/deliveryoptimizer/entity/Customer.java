@@ -1,6 +1,8 @@
 package com.example.deliveryoptimizer.entity;
 
 import javax.persistence.*;
+
+import com.example.deliveryoptimizer.util.GeoCells;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -20,6 +22,10 @@ public class Customer {
 
     private double longitude;
 
+    // grid cell of the position (GeoCells), kept up to date on every write
+    @Column(name = "geo_cell")
+    private Long geoCell;
+
     // e.g. "09:00-11:00"
     private String preferredTimeSlot;
 
@@ -77,6 +83,16 @@ public class Customer {
         this.longitude = longitude;
     }
 
+    public Long getGeoCell() {
+        return geoCell;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void updateGeoCell() {
+        geoCell = GeoCells.cellOf(latitude, longitude);
+    }
+
     public String getPreferredTimeSlot() {
         return preferredTimeSlot;
     }
@@ -1,17 +1,28 @@
 package com.example.deliveryoptimizer.entity;
 
+import javax.persistence.Column;
+import javax.persistence.Convert;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 
+import com.example.deliveryoptimizer.util.GeoCells;
+
 @Entity
 @Table(name = "deliveries")
 public class Delivery {
 
+    // Sequence ids (one database round trip per 50 new deliveries) so bulk
+    // inserts can be JDBC batched, which IDENTITY prevents; allocationSize
+    // must match the increment of delivery_seq (changelog v4)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "delivery_seq")
+    @SequenceGenerator(name = "delivery_seq", sequenceName = "delivery_seq", allocationSize = 50)
     private Long id;
 
     private double latitude;
@@ -22,15 +33,24 @@ public class Delivery {
 
     private double volume;
 
-    private String status;
+    // SMALLINT code, see DeliveryStatus
+    @Convert(converter = DeliveryStatusConverter.class)
+    private DeliveryStatus status;
+
+    // grid cell of the position (GeoCells), kept up to date on every write;
+    // indexed for radius and bounding-box lookups
+    @Column(name = "geo_cell")
+    private Long geoCell;
 
-    // Many-to-one relation: a delivery can belong to one Tour (route)
-    @javax.persistence.ManyToOne
+    // Many-to-one relation: a delivery can belong to one Tour (route). Lazy,
+    // like customer: listings only need the scalar columns; queries that need
+    // the relation fetch it with an entity graph
+    @javax.persistence.ManyToOne(fetch = javax.persistence.FetchType.LAZY)
     @javax.persistence.JoinColumn(name = "tour_id")
     private Tour tour;
 
     // Many-to-one relation: a delivery can belong to one Customer
-    @javax.persistence.ManyToOne
+    @javax.persistence.ManyToOne(fetch = javax.persistence.FetchType.LAZY)
     @javax.persistence.JoinColumn(name = "customer_id")
     private Customer customer;
 
@@ -41,7 +61,7 @@ public class Delivery {
      * Constructor without id (used when creating new Delivery objects before
      * persisting).
      */
-    public Delivery(double latitude, double longitude, double weight, double volume, String status) {
+    public Delivery(double latitude, double longitude, double weight, double volume, DeliveryStatus status) {
         this.latitude = latitude;
         this.longitude = longitude;
         this.weight = weight;
@@ -52,7 +72,7 @@ public class Delivery {
     /**
      * Full constructor (with id) for convenience (e.g., tests).
      */
-    public Delivery(Long id, double latitude, double longitude, double weight, double volume, String status) {
+    public Delivery(Long id, double latitude, double longitude, double weight, double volume, DeliveryStatus status) {
         this.id = id;
         this.latitude = latitude;
         this.longitude = longitude;
@@ -101,14 +121,24 @@ public class Delivery {
         this.volume = volume;
     }
 
-    public String getStatus() {
+    public DeliveryStatus getStatus() {
         return status;
     }
 
-    public void setStatus(String status) {
+    public void setStatus(DeliveryStatus status) {
         this.status = status;
     }
 
+    public Long getGeoCell() {
+        return geoCell;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void updateGeoCell() {
+        geoCell = GeoCells.cellOf(latitude, longitude);
+    }
+
     public Tour getTour() {
         return tour;
     }
@@ -0,0 +1,57 @@
+package com.example.deliveryoptimizer.entity;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Lifecycle status of a delivery.
+ *
+ * Stored as the SMALLINT {@link #getCode() code} (DeliveryStatusConverter),
+ * not the ordinal or the name: codes are fixed, so constants can be
+ * reordered or renamed without rewriting rows, and the (status, id) index
+ * stays small. New statuses take the next free code and need the check
+ * constraint of the deliveries table widened.
+ */
+public enum DeliveryStatus {
+
+    PENDING(0),
+    PLANNED(1),
+    IN_TRANSIT(2),
+    DELIVERED(3),
+    CANCELLED(4);
+
+    private final short code;
+
+    DeliveryStatus(int code) {
+        this.code = (short) code;
+    }
+
+    public short getCode() {
+        return code;
+    }
+
+    /**
+     * Status named by the text (case-insensitive), null for null or blank
+     * text.
+     *
+     * @throws IllegalArgumentException if no status has that name
+     */
+    public static DeliveryStatus parse(String text) {
+        if (text == null || text.isBlank())
+            return null;
+        try {
+            return valueOf(text.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("unknown delivery status: " + text + " (expected one of "
+                    + Arrays.toString(values()) + ")");
+        }
+    }
+
+    public static DeliveryStatus fromCode(short code) {
+        for (DeliveryStatus s : values()) {
+            if (s.code == code)
+                return s;
+        }
+        throw new IllegalArgumentException("unknown delivery status code: " + code);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.deliveryoptimizer.entity;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/**
+ * Maps {@link DeliveryStatus} to its SMALLINT code (changelog v7).
+ */
+@Converter
+public class DeliveryStatusConverter implements AttributeConverter<DeliveryStatus, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(DeliveryStatus status) {
+        return status != null ? status.getCode() : null;
+    }
+
+    @Override
+    public DeliveryStatus convertToEntityAttribute(Short code) {
+        return code != null ? DeliveryStatus.fromCode(code) : null;
+    }
+}
@@ -9,7 +9,8 @@ import java.util.List;
  * Tour entity: represents a delivery tour (one vehicle on a given date).
  * Relations:
  * - ManyToOne to Vehicle (a tour uses one vehicle)
- * - OneToMany to Delivery (a tour has multiple deliveries)
+ * - OneToMany to Delivery (a tour has multiple deliveries), kept in visit
+ * order through the deliveries.tour_position column
  */
 @Entity
 @Table(name = "tours")
@@ -26,7 +27,9 @@ public class Tour {
     private Vehicle vehicle;
     
 
-    @OneToMany(mappedBy = "tour", cascade = CascadeType.ALL, orphanRemoval = true)
+    // removing a stop from the tour (e.g. cancelled) must not delete the delivery
+    @OneToMany(mappedBy = "tour", cascade = CascadeType.ALL)
+    @OrderColumn(name = "tour_position")
     private List<Delivery> deliveries = new ArrayList<>();
 
     public Tour() {
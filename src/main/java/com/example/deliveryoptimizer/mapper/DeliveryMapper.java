@@ -2,6 +2,7 @@ package com.example.deliveryoptimizer.mapper;
 
 import com.example.deliveryoptimizer.dto.DeliveryDto;
 import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.DeliveryStatus;
 
 /**
  * Manual mapper between Delivery entity and DeliveryDto.
@@ -27,6 +28,8 @@ public class DeliveryMapper {
     /**
      * Convert DTO to entity. If dto.getId() is null, entity id remains null (new
      * entity).
+     *
+     * @throws IllegalArgumentException if the status is not a DeliveryStatus
      */
     public static Delivery toEntity(DeliveryDto d) {
         if (d == null)
@@ -37,7 +40,7 @@ public class DeliveryMapper {
         e.setLongitude(d.getLongitude());
         e.setWeight(d.getWeight());
         e.setVolume(d.getVolume());
-        e.setStatus(d.getStatus());
+        e.setStatus(DeliveryStatus.parse(d.getStatus()));
         return e;
     }
 }
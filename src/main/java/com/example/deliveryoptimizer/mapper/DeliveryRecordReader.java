@@ -0,0 +1,309 @@
+package com.example.deliveryoptimizer.mapper;
+
+import com.example.deliveryoptimizer.dto.DeliveryDto;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads deliveries one at a time from a bulk upload, so uploads of any size
+ * are parsed in constant memory.
+ *
+ * Supported formats:
+ * - CSV: optional header line naming the columns (latitude, longitude,
+ * weight, volume, status in any order); without header the columns are in
+ * that order. Fields follow RFC 4180: a field in double quotes may contain
+ * commas, line breaks and doubled quotes ("" for one "); whitespace around
+ * a field is dropped, inside quotes it is kept
+ * - NDJSON: one delivery JSON object per line
+ * - JSON: one array of delivery objects
+ *
+ * A record that cannot be read is returned with an error instead of a
+ * delivery and reading goes on with the next one, except after malformed
+ * JSON in an array (the rest of the array cannot be located).
+ */
+public abstract class DeliveryRecordReader implements Closeable {
+
+    /**
+     * One record of the upload: either a delivery or the reason it could not
+     * be read.
+     */
+    public static final class Record {
+        private final int line;
+        private final DeliveryDto delivery;
+        private final String error;
+
+        Record(int line, DeliveryDto delivery, String error) {
+            this.line = line;
+            this.delivery = delivery;
+            this.error = error;
+        }
+
+        /** Line of the upload where the record starts (1-based). */
+        public int getLine() {
+            return line;
+        }
+
+        public DeliveryDto getDelivery() {
+            return delivery;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+
+    /**
+     * Next record, or null at the end of the upload.
+     */
+    public abstract Record next() throws IOException;
+
+    public static DeliveryRecordReader csv(InputStream in) {
+        return new Csv(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+    }
+
+    public static DeliveryRecordReader ndjson(InputStream in, ObjectMapper mapper) {
+        return new Ndjson(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)), mapper);
+    }
+
+    public static DeliveryRecordReader jsonArray(InputStream in, ObjectMapper mapper) throws IOException {
+        return new JsonArray(mapper.getFactory().createParser(in), mapper);
+    }
+
+    private static final String[] CSV_COLUMNS = { "latitude", "longitude", "weight", "volume", "status" };
+
+    private static final class Csv extends DeliveryRecordReader {
+        private final BufferedReader reader;
+        // column index of each of CSV_COLUMNS (-1 when absent)
+        private int[] columns;
+        private int line;
+
+        Csv(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Record next() throws IOException {
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (text.isBlank())
+                    continue;
+                int start = line;
+                String[] fields = fields(text);
+                if (fields == null)
+                    return new Record(start, null, "unterminated quoted field");
+                if (columns == null) {
+                    columns = header(fields);
+                    if (columns != null)
+                        continue;
+                    columns = new int[] { 0, 1, 2, 3, 4 };
+                }
+                return parse(fields, start);
+            }
+            return null;
+        }
+
+        /**
+         * Split a record into its fields, reading the following lines while
+         * a quoted field is open.
+         *
+         * @return the fields, or null if the upload ends inside quotes
+         */
+        private String[] fields(String text) throws IOException {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            // the current field was quoted: it is not trimmed, and the
+            // whitespace after its closing quote is dropped
+            boolean wasQuoted = false;
+            int i = 0;
+            while (true) {
+                if (i == text.length()) {
+                    if (!quoted)
+                        break;
+                    // the quoted field goes on on the next line
+                    text = reader.readLine();
+                    if (text == null)
+                        return null;
+                    line++;
+                    field.append('\n');
+                    i = 0;
+                    continue;
+                }
+                char c = text.charAt(i++);
+                if (quoted) {
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i < text.length() && text.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else if (c == ',') {
+                    fields.add(wasQuoted ? field.toString() : field.toString().trim());
+                    field.setLength(0);
+                    wasQuoted = false;
+                } else if (Character.isWhitespace(c) && (field.length() == 0 || wasQuoted)) {
+                    // leading whitespace, or whitespace after the closing quote
+                } else if (c == '"' && field.length() == 0 && !wasQuoted) {
+                    quoted = wasQuoted = true;
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(wasQuoted ? field.toString() : field.toString().trim());
+            return fields.toArray(new String[0]);
+        }
+
+        private int[] header(String[] fields) {
+            Map<String, Integer> names = new HashMap<>();
+            for (int i = 0; i < fields.length; i++)
+                names.put(fields[i].toLowerCase(), i);
+            if (!names.containsKey("latitude") || !names.containsKey("longitude"))
+                return null;
+            int[] cols = new int[CSV_COLUMNS.length];
+            for (int c = 0; c < cols.length; c++)
+                cols[c] = names.getOrDefault(CSV_COLUMNS[c], -1);
+            return cols;
+        }
+
+        private Record parse(String[] fields, int start) {
+            DeliveryDto dto = new DeliveryDto();
+            try {
+                dto.setLatitude(number(fields, 0));
+                dto.setLongitude(number(fields, 1));
+                dto.setWeight(number(fields, 2));
+                dto.setVolume(number(fields, 3));
+            } catch (NumberFormatException ex) {
+                return new Record(start, null, ex.getMessage());
+            }
+            int status = columns[4];
+            if (status >= 0 && status < fields.length && !fields[status].isEmpty())
+                dto.setStatus(fields[status]);
+            return new Record(start, dto, null);
+        }
+
+        private double number(String[] fields, int column) {
+            int i = columns[column];
+            if (i < 0 || i >= fields.length || fields[i].isEmpty()) {
+                // coordinates are required, weight and volume default to 0
+                if (column < 2)
+                    throw new NumberFormatException(CSV_COLUMNS[column] + " is missing");
+                return 0.0;
+            }
+            try {
+                return Double.parseDouble(fields[i]);
+            } catch (NumberFormatException ex) {
+                throw new NumberFormatException(CSV_COLUMNS[column] + " is not a number: " + fields[i]);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    private static final class Ndjson extends DeliveryRecordReader {
+        private final BufferedReader reader;
+        private final ObjectMapper mapper;
+        private int line;
+
+        Ndjson(BufferedReader reader, ObjectMapper mapper) {
+            this.reader = reader;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public Record next() throws IOException {
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (text.isBlank())
+                    continue;
+                try {
+                    return new Record(line, mapper.readValue(text, DeliveryDto.class), null);
+                } catch (IOException ex) {
+                    return new Record(line, null, firstLine(ex.getMessage()));
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    private static final class JsonArray extends DeliveryRecordReader {
+        private final JsonParser parser;
+        private final ObjectMapper mapper;
+        private boolean started;
+        private boolean done;
+
+        JsonArray(JsonParser parser, ObjectMapper mapper) {
+            this.parser = parser;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public Record next() throws IOException {
+            if (done)
+                return null;
+            int line = parser.getCurrentLocation().getLineNr();
+            try {
+                if (!started) {
+                    started = true;
+                    if (parser.nextToken() != JsonToken.START_ARRAY) {
+                        done = true;
+                        return new Record(line, null, "expected a JSON array");
+                    }
+                }
+                JsonToken token = parser.nextToken();
+                line = parser.getTokenLocation().getLineNr();
+                if (token == JsonToken.END_ARRAY || token == null) {
+                    done = true;
+                    return null;
+                }
+                // structure errors end the upload, mapping errors only this record
+                JsonNode node = parser.readValueAsTree();
+                try {
+                    return new Record(line, mapper.treeToValue(node, DeliveryDto.class), null);
+                } catch (IOException ex) {
+                    return new Record(line, null, firstLine(ex.getMessage()));
+                }
+            } catch (JsonParseException ex) {
+                done = true;
+                return new Record(line, null, firstLine(ex.getOriginalMessage()));
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            parser.close();
+        }
+    }
+
+    private static String firstLine(String message) {
+        if (message == null)
+            return "invalid record";
+        int nl = message.indexOf('\n');
+        return nl < 0 ? message : message.substring(0, nl);
+    }
+}
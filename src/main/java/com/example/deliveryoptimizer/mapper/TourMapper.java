@@ -0,0 +1,28 @@
+package com.example.deliveryoptimizer.mapper;
+
+import com.example.deliveryoptimizer.dto.TourDto;
+import com.example.deliveryoptimizer.entity.Tour;
+
+import java.util.stream.Collectors;
+
+/**
+ * Manual mapper from Tour entity to TourDto.
+ */
+public class TourMapper {
+
+    /**
+     * Convert entity to DTO. Returns null if input is null.
+     *
+     * @param distance total tour distance in meters (computed by the caller)
+     */
+    public static TourDto toDto(Tour t, double distance) {
+        if (t == null)
+            return null;
+        return new TourDto(
+                t.getId(),
+                t.getDate(),
+                t.getVehicle() != null ? t.getVehicle().getId() : null,
+                distance,
+                t.getDeliveries().stream().map(DeliveryMapper::toDto).collect(Collectors.toList()));
+    }
+}
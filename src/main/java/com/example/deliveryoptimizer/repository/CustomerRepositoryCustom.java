@@ -0,0 +1,20 @@
+package com.example.deliveryoptimizer.repository;
+
+import com.example.deliveryoptimizer.entity.Customer;
+
+import java.util.List;
+
+/**
+ * Customer queries built at runtime (implemented by
+ * {@link CustomerRepositoryImpl}).
+ */
+public interface CustomerRepositoryCustom {
+
+    /**
+     * Customers inside a box, read through the geo_cell index.
+     *
+     * @param box minLat, maxLat, minLon, maxLon in degrees (minLon &gt; maxLon
+     *            when crossing the antimeridian)
+     */
+    List<Customer> findInBox(double[] box);
+}
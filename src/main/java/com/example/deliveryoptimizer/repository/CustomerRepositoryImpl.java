@@ -0,0 +1,32 @@
+package com.example.deliveryoptimizer.repository;
+
+import com.example.deliveryoptimizer.entity.Customer;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+
+/**
+ * Criteria implementations of {@link CustomerRepositoryCustom}; Spring Data
+ * merges them into {@link CustomerRepository}.
+ */
+public class CustomerRepositoryImpl implements CustomerRepositoryCustom {
+
+    private final EntityManager entityManager;
+
+    public CustomerRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<Customer> findInBox(double[] box) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Customer> q = cb.createQuery(Customer.class);
+        Root<Customer> c = q.from(Customer.class);
+        q.select(c).where(GeoCellPredicates.inBox(cb, c, box)).orderBy(cb.asc(c.get("id")));
+        return entityManager.createQuery(q).getResultList();
+    }
+}
@@ -4,7 +4,13 @@ import com.example.deliveryoptimizer.entity.DeliveryHistory;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.List;
+
 @Repository
 public interface DeliveryHistoryRepository extends JpaRepository<DeliveryHistory, Long> {
 
+    // history of one customer over a date range (served by the
+    // (customer_id, date) index)
+    List<DeliveryHistory> findByCustomerIdAndDateBetweenOrderByDate(Long customerId, LocalDate from, LocalDate to);
 }
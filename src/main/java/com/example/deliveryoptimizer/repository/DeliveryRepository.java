@@ -1,14 +1,22 @@
 package com.example.deliveryoptimizer.repository;
 
+import com.example.deliveryoptimizer.dto.DeliveryDto;
 import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.DeliveryStatus;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 /**
  * Repository interface for Delivery entities.
@@ -16,16 +24,60 @@ import org.springframework.data.domain.Pageable;
  * are enabled.
  */
 @Repository
-public interface DeliveryRepository extends JpaRepository<Delivery, Long> {
+public interface DeliveryRepository extends JpaRepository<Delivery, Long>, DeliveryRepositoryCustom {
     // Example derived query method: find deliveries by status
-    List<Delivery> findByStatus(String status);
+    List<Delivery> findByStatus(DeliveryStatus status);
 
     // 2) Derived query with pagination
-    Page<Delivery> findByStatus(String status, Pageable pageable);
+    Page<Delivery> findByStatus(DeliveryStatus status, Pageable pageable);
 
-    // 3) Example JPQL query (search deliveries where status contains the provided
-    // value)
-    @Query("SELECT d FROM Delivery d WHERE d.status LIKE CONCAT('%', :status, '%')")
-    Page<Delivery> searchByStatusLike(@Param("status") String status, Pageable pageable);
+    // 3) Number of deliveries per status, one grouped query over the
+    // (status, id) index; statuses without deliveries are absent. Rows are
+    // {DeliveryStatus, Long}
+    @Query("SELECT d.status, COUNT(d) FROM Delivery d WHERE d.status IS NOT NULL GROUP BY d.status")
+    List<Object[]> countByStatus();
+
+    // 4) Listing pages: DTO projections, only the six columns the API returns
+    // (no entity hydration, no tour/customer loads)
+    @Query(value = "SELECT new com.example.deliveryoptimizer.dto.DeliveryDto(d.id, d.latitude, d.longitude, "
+            + "d.weight, d.volume, d.status) FROM Delivery d",
+            countQuery = "SELECT COUNT(d) FROM Delivery d")
+    Page<DeliveryDto> findAllAsDto(Pageable pageable);
+
+    @Query(value = "SELECT new com.example.deliveryoptimizer.dto.DeliveryDto(d.id, d.latitude, d.longitude, "
+            + "d.weight, d.volume, d.status) FROM Delivery d WHERE d.status = :status",
+            countQuery = "SELECT COUNT(d) FROM Delivery d WHERE d.status = :status")
+    Page<DeliveryDto> findByStatusAsDto(@Param("status") DeliveryStatus status, Pageable pageable);
+
+    // Deliveries to optimize, with their customer (time slot, result cache
+    // fingerprint) fetched in the same select
+    @EntityGraph(attributePaths = "customer")
+    List<Delivery> findWithCustomerByIdIn(Collection<Long> ids);
+
+    // 5) Streaming exports: DTO projections (no managed entities, no eager
+    // associations) read with a JDBC fetch size; must be consumed inside a
+    // transaction and closed
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.example.deliveryoptimizer.dto.DeliveryDto(d.id, d.latitude, d.longitude, d.weight, "
+            + "d.volume, d.status) FROM Delivery d ORDER BY d.id")
+    Stream<DeliveryDto> streamAllAsDto();
+
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.example.deliveryoptimizer.dto.DeliveryDto(d.id, d.latitude, d.longitude, d.weight, "
+            + "d.volume, d.status) FROM Delivery d WHERE d.status = :status ORDER BY d.id")
+    Stream<DeliveryDto> streamByStatusAsDto(@Param("status") DeliveryStatus status);
+
+    // 6) Keyset pagination: the rows after the given id in id order (seek on
+    // the primary key instead of skipping an offset); Slice reads one extra row
+    // to tell whether there is a next page and never counts. Pass an unsorted
+    // Pageable of page 0.
+    @Query("SELECT new com.example.deliveryoptimizer.dto.DeliveryDto(d.id, d.latitude, d.longitude, d.weight, "
+            + "d.volume, d.status) FROM Delivery d WHERE d.id > :afterId ORDER BY d.id")
+    Slice<DeliveryDto> findAfterAsDto(@Param("afterId") long afterId, Pageable pageable);
+
+    @Query("SELECT new com.example.deliveryoptimizer.dto.DeliveryDto(d.id, d.latitude, d.longitude, d.weight, "
+            + "d.volume, d.status) FROM Delivery d WHERE d.status = :status AND d.id > :afterId ORDER BY d.id")
+    Slice<DeliveryDto> findByStatusAfterAsDto(@Param("status") DeliveryStatus status, @Param("afterId") long afterId,
+            Pageable pageable);
 
 }
@@ -0,0 +1,22 @@
+package com.example.deliveryoptimizer.repository;
+
+import com.example.deliveryoptimizer.dto.DeliveryDto;
+import com.example.deliveryoptimizer.entity.DeliveryStatus;
+
+import java.util.List;
+
+/**
+ * Delivery queries built at runtime (implemented by
+ * {@link DeliveryRepositoryImpl}).
+ */
+public interface DeliveryRepositoryCustom {
+
+    /**
+     * Deliveries inside a box, in id order, read through the geo_cell index.
+     *
+     * @param box    minLat, maxLat, minLon, maxLon in degrees (minLon &gt;
+     *               maxLon when crossing the antimeridian)
+     * @param status only deliveries with this status when not null
+     */
+    List<DeliveryDto> findInBoxAsDto(double[] box, DeliveryStatus status);
+}
@@ -0,0 +1,41 @@
+package com.example.deliveryoptimizer.repository;
+
+import com.example.deliveryoptimizer.dto.DeliveryDto;
+import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.DeliveryStatus;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+/**
+ * Criteria implementations of {@link DeliveryRepositoryCustom}; Spring Data
+ * merges them into {@link DeliveryRepository}.
+ */
+public class DeliveryRepositoryImpl implements DeliveryRepositoryCustom {
+
+    private final EntityManager entityManager;
+
+    public DeliveryRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<DeliveryDto> findInBoxAsDto(double[] box, DeliveryStatus status) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<DeliveryDto> q = cb.createQuery(DeliveryDto.class);
+        Root<Delivery> d = q.from(Delivery.class);
+        Predicate where = GeoCellPredicates.inBox(cb, d, box);
+        if (status != null)
+            where = cb.and(where, cb.equal(d.get("status"), status));
+        q.select(cb.construct(DeliveryDto.class, d.get("id"), d.get("latitude"), d.get("longitude"),
+                d.get("weight"), d.get("volume"), d.get("status")))
+                .where(where)
+                .orderBy(cb.asc(d.get("id")));
+        return entityManager.createQuery(q).getResultList();
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.deliveryoptimizer.repository;
+
+import com.example.deliveryoptimizer.util.GeoCells;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+
+/**
+ * Criteria predicate "position inside a box" for entities with latitude,
+ * longitude and geoCell attributes: the indexed cell ranges prune the rows,
+ * the coordinate comparisons drop the cells' points outside the box.
+ */
+final class GeoCellPredicates {
+
+    private GeoCellPredicates() {
+    }
+
+    /**
+     * @param box minLat, maxLat, minLon, maxLon (minLon &gt; maxLon when
+     *            crossing the antimeridian)
+     */
+    static Predicate inBox(CriteriaBuilder cb, Path<?> entity, double[] box) {
+        Path<Long> cell = entity.get("geoCell");
+        Path<Double> lat = entity.get("latitude");
+        Path<Double> lon = entity.get("longitude");
+
+        List<Predicate> cells = new ArrayList<>();
+        for (long[] range : GeoCells.ranges(box))
+            cells.add(cb.between(cell, range[0], range[1]));
+
+        Predicate lonInBox = box[2] <= box[3]
+                ? cb.between(lon, box[2], box[3])
+                : cb.or(cb.greaterThanOrEqualTo(lon, box[2]), cb.lessThanOrEqualTo(lon, box[3]));
+        return cb.and(cb.or(cells.toArray(new Predicate[0])), cb.between(lat, box[0], box[1]), lonInBox);
+    }
+}
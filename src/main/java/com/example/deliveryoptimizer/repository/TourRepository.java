@@ -8,5 +8,5 @@ import org.springframework.stereotype.Repository;
  * Repository interface for Tour entities.
  */
 @Repository
-public interface TourRepository extends JpaRepository<Tour, Long> {
+public interface TourRepository extends JpaRepository<Tour, Long>, TourRepositoryCustom {
 }
@@ -0,0 +1,18 @@
+package com.example.deliveryoptimizer.repository;
+
+import java.util.Collection;
+
+/**
+ * Tour maintenance queries (implemented by {@link TourRepositoryImpl}).
+ */
+public interface TourRepositoryCustom {
+
+    /**
+     * Renumber the tour_position of the deliveries of the given tours
+     * 0..n-1, keeping their order. Deliveries moved to another tour or removed
+     * leave gaps in their former tour, which Hibernate would load as null
+     * elements of {@code Tour.deliveries}. Pending changes must be flushed
+     * first.
+     */
+    void compactPositions(Collection<Long> tourIds);
+}
@@ -0,0 +1,49 @@
+package com.example.deliveryoptimizer.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+/**
+ * Native SQL implementations of {@link TourRepositoryCustom}; Spring Data
+ * merges them into {@link TourRepository}.
+ */
+public class TourRepositoryImpl implements TourRepositoryCustom {
+
+    private final EntityManager entityManager;
+
+    public TourRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void compactPositions(Collection<Long> tourIds) {
+        if (tourIds == null || tourIds.isEmpty())
+            return;
+        List<Object[]> rows = entityManager.createNativeQuery("SELECT id, tour_id, tour_position FROM deliveries "
+                + "WHERE tour_id IN (:tourIds) ORDER BY tour_id, tour_position")
+                .setParameter("tourIds", tourIds)
+                .getResultList();
+        // only the rows after a gap change
+        Query update = entityManager.createNativeQuery(
+                "UPDATE deliveries SET tour_position = :position WHERE id = :id");
+        Object tour = null;
+        int next = 0;
+        for (Object[] row : rows) {
+            if (!row[1].equals(tour)) {
+                tour = row[1];
+                next = 0;
+            }
+            Number position = (Number) row[2];
+            if (position == null || position.intValue() != next) {
+                update.setParameter("position", next)
+                        .setParameter("id", ((Number) row[0]).longValue())
+                        .executeUpdate();
+            }
+            next++;
+        }
+    }
+}
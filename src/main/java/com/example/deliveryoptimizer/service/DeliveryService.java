@@ -1,11 +1,18 @@
 package com.example.deliveryoptimizer.service;
 
 import com.example.deliveryoptimizer.dto.DeliveryDto;
+import com.example.deliveryoptimizer.dto.IngestReport;
 import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.DeliveryStatus;
+import com.example.deliveryoptimizer.mapper.DeliveryRecordReader;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Service contract for Delivery-related operations.
@@ -24,8 +31,61 @@ public interface DeliveryService {
 
   void deleteById(Long id);
 
-  Page<DeliveryDto> getDeliveriesByStatus(String status, int page, int size);
+  Page<DeliveryDto> getDeliveriesByStatus(DeliveryStatus status, int page, int size);
 
   Page<DeliveryDto> getAllDeliveries(int page, int size);
 
+  /**
+   * Keyset page: up to size deliveries (only those with the given status when
+   * not null) with an id greater than afterId, in id order. No count query;
+   * the cost does not depend on how deep the page is.
+   *
+   * @param afterId id of the last delivery of the previous page, null for
+   *                the first page
+   */
+  Slice<DeliveryDto> getDeliveriesAfter(DeliveryStatus status, Long afterId, int size);
+
+  /**
+   * Feed every delivery (only those with the given status when not null) to
+   * the consumer in id order, straight from a database cursor: memory use
+   * does not depend on the number of rows.
+   */
+  void exportDeliveries(DeliveryStatus status, Consumer<DeliveryDto> consumer);
+
+  /**
+   * Validate and insert every delivery of a bulk upload. Records are taken in
+   * batches of {@code deliveries.ingest.batch-size}; the valid records of a
+   * batch are inserted in one transaction (JDBC batched inserts), so a failing
+   * batch is rolled back on its own and the following batches still go in.
+   * Deliveries without status are PENDING; an unknown status rejects the
+   * record.
+   *
+   * @return per-batch counts and the reason each rejected record was not
+   *         inserted
+   */
+  IngestReport ingestDeliveries(DeliveryRecordReader reader) throws IOException;
+
+  /**
+   * Deliveries (only those with the given status when not null) within
+   * radiusMeters of the point, nearest first. Candidates are read through the
+   * geo_cell index over the circle's bounding box, then filtered with the
+   * exact Haversine distance.
+   */
+  List<DeliveryDto> findNearby(double latitude, double longitude, double radiusMeters,
+      DeliveryStatus status);
+
+  /**
+   * Deliveries (only those with the given status when not null) inside the
+   * box, in id order. minLongitude &gt; maxLongitude selects a box crossing
+   * the antimeridian.
+   */
+  List<DeliveryDto> findWithin(double minLatitude, double maxLatitude, double minLongitude, double maxLongitude,
+      DeliveryStatus status);
+
+  /**
+   * Number of deliveries of every status (zero included), in declaration
+   * order, from one grouped query.
+   */
+  Map<DeliveryStatus, Long> countDeliveriesByStatus();
+
 }
@@ -0,0 +1,17 @@
+package com.example.deliveryoptimizer.service;
+
+import com.example.deliveryoptimizer.entity.Warehouse;
+
+/**
+ * Warehouse-to-stop legs (meters) kept across requests and restarts: the
+ * warehouses and customers hardly ever move, so each leg only has to be
+ * computed once.
+ */
+public interface DepotDistanceStore {
+
+    /**
+     * Distance from the warehouse to the point (degrees), from the store when
+     * present, otherwise computed and stored.
+     */
+    double distance(Warehouse warehouse, double latitude, double longitude);
+}
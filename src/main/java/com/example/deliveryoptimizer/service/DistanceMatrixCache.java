@@ -0,0 +1,35 @@
+package com.example.deliveryoptimizer.service;
+
+import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.Warehouse;
+import com.example.deliveryoptimizer.util.DistanceMatrix;
+
+import java.util.List;
+
+/**
+ * Distance matrices kept across requests, so re-optimizing (almost) the same
+ * deliveries from the same warehouse only computes the rows of the
+ * deliveries that are new or have moved.
+ */
+public interface DistanceMatrixCache {
+
+    /**
+     * Matrix for the warehouse and deliveries, as
+     * {@link DistanceMatrix#of(Warehouse, List)} would build it.
+     *
+     * @param warehouse  point 0, or null for (0,0)
+     * @param deliveries points 1..n, in this order
+     */
+    DistanceMatrix matrix(Warehouse warehouse, List<Delivery> deliveries);
+
+    /**
+     * Forget every cached distance of a delivery (e.g. its coordinates
+     * changed).
+     */
+    void invalidate(Long deliveryId);
+
+    /**
+     * Bytes currently held by the cache.
+     */
+    long memoryBytes();
+}
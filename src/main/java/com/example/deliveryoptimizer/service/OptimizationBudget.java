@@ -0,0 +1,149 @@
+package com.example.deliveryoptimizer.service;
+
+import com.example.deliveryoptimizer.entity.Delivery;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ * Time budget and cancellation token for an anytime optimization.
+ *
+ * Optimizers poll {@link #isExhausted()} and stop early when the deadline has
+ * passed or {@link #cancel()} was called (e.g. the HTTP client went away).
+ * The best tour found so far is published through {@link #publish} so
+ * callers can return or stream it at any time.
+ *
+ * A budget can be narrowed with {@link #slice(long)}: the slice shares the
+ * cancellation flag and best solution of its parent but has its own,
+ * earlier, deadline.
+ */
+public final class OptimizationBudget {
+
+    private final OptimizationBudget parent;
+    private final long deadlineNanos;
+    private final boolean hasDeadline;
+
+    private volatile boolean cancelled;
+    private volatile List<Delivery> best;
+    private volatile double bestDistance = Double.POSITIVE_INFINITY;
+    private final List<ObjDoubleConsumer<List<Delivery>>> listeners = new CopyOnWriteArrayList<>();
+
+    private OptimizationBudget(OptimizationBudget parent, long deadlineNanos, boolean hasDeadline) {
+        this.parent = parent;
+        this.deadlineNanos = deadlineNanos;
+        this.hasDeadline = hasDeadline;
+    }
+
+    /**
+     * Budget expiring after the given number of milliseconds; null or a
+     * non-positive value means no deadline (only cancellation stops it).
+     */
+    public static OptimizationBudget ofMillis(Long millis) {
+        if (millis == null || millis <= 0)
+            return unlimited();
+        return new OptimizationBudget(null, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis), true);
+    }
+
+    public static OptimizationBudget unlimited() {
+        return new OptimizationBudget(null, 0L, false);
+    }
+
+    /**
+     * Child budget ending after at most the given number of milliseconds (or
+     * at this budget's deadline if earlier).
+     */
+    public OptimizationBudget slice(long millis) {
+        long sliceEnd = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        long end = hasDeadline && deadlineNanos - sliceEnd < 0 ? deadlineNanos : sliceEnd;
+        return new OptimizationBudget(this, end, true);
+    }
+
+    public boolean hasDeadline() {
+        return hasDeadline;
+    }
+
+    /**
+     * {@link System#nanoTime()} value of the deadline (only meaningful when
+     * {@link #hasDeadline()}).
+     */
+    public long deadlineNanos() {
+        return deadlineNanos;
+    }
+
+    public void cancel() {
+        root().cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return root().cancelled;
+    }
+
+    /**
+     * True once cancelled or past the deadline (of this budget or a parent).
+     */
+    public boolean isExhausted() {
+        if (isCancelled())
+            return true;
+        long now = System.nanoTime();
+        for (OptimizationBudget b = this; b != null; b = b.parent) {
+            if (b.hasDeadline && now - b.deadlineNanos >= 0)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Offer a complete tour; it is kept (and listeners notified) only if it is
+     * shorter than the best one published so far.
+     *
+     * Listeners are called under the budget's lock, so concurrent publishers
+     * (portfolio racers, improver slices) notify them one at a time, each
+     * tour with its own distance and in strictly decreasing distance order;
+     * they must only hand the tour over (e.g. to an event executor).
+     */
+    public void publish(List<Delivery> tour, double distance) {
+        OptimizationBudget root = root();
+        synchronized (root) {
+            if (tour == null || !(distance < root.bestDistance))
+                return;
+            List<Delivery> published = Collections.unmodifiableList(new ArrayList<>(tour));
+            root.best = published;
+            root.bestDistance = distance;
+            for (ObjDoubleConsumer<List<Delivery>> l : root.listeners)
+                l.accept(published, distance);
+        }
+    }
+
+    /**
+     * Best tour published so far, or null.
+     */
+    public List<Delivery> best() {
+        return root().best;
+    }
+
+    public double bestDistance() {
+        return root().bestDistance;
+    }
+
+    /**
+     * Register a callback invoked with every new best tour and its distance.
+     */
+    public void addListener(ObjDoubleConsumer<List<Delivery>> listener) {
+        root().listeners.add(listener);
+    }
+
+    public void removeListener(ObjDoubleConsumer<List<Delivery>> listener) {
+        root().listeners.remove(listener);
+    }
+
+    private OptimizationBudget root() {
+        OptimizationBudget b = this;
+        while (b.parent != null)
+            b = b.parent;
+        return b;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.deliveryoptimizer.service;
+
+import com.example.deliveryoptimizer.dto.DeliveryDto;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Optimization submitted through the job API: its state, its budget (best
+ * tour so far, cancellation) and its result once finished.
+ *
+ * QUEUED -> RUNNING -> DONE, FAILED or CANCELLED; a queued job cancelled
+ * before it starts never runs.
+ */
+public final class OptimizationJob {
+
+    public enum Status {
+        QUEUED, RUNNING, DONE, FAILED, CANCELLED
+    }
+
+    private final String id;
+    private final OptimizationBudget budget;
+    private final long createdAt = System.currentTimeMillis();
+    private final AtomicReference<Status> status = new AtomicReference<>(Status.QUEUED);
+    // completed with the tour when the job ends, whatever its status
+    private final CompletableFuture<List<DeliveryDto>> result = new CompletableFuture<>();
+    private volatile String error;
+    private volatile long finishedAt;
+
+    public OptimizationJob(String id, OptimizationBudget budget) {
+        this.id = id;
+        this.budget = budget;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public OptimizationBudget getBudget() {
+        return budget;
+    }
+
+    public Status getStatus() {
+        return status.get();
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Epoch millis the job ended at, 0 while it is queued or running.
+     */
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Tour of a finished job (null for a failed or never started one).
+     */
+    public CompletableFuture<List<DeliveryDto>> getResult() {
+        return result;
+    }
+
+    public boolean isFinished() {
+        return result.isDone();
+    }
+
+    /**
+     * Move from QUEUED to RUNNING; false if the job was cancelled meanwhile.
+     */
+    public boolean start() {
+        return status.compareAndSet(Status.QUEUED, Status.RUNNING);
+    }
+
+    /**
+     * End a running job with its tour (the best one found if it was
+     * cancelled while running).
+     */
+    public void finish(List<DeliveryDto> tour) {
+        status.set(budget.isCancelled() ? Status.CANCELLED : Status.DONE);
+        end(tour);
+    }
+
+    public void fail(String message) {
+        error = message;
+        status.set(Status.FAILED);
+        end(null);
+    }
+
+    /**
+     * Stop the optimization; a job still queued ends immediately.
+     */
+    public void cancel() {
+        budget.cancel();
+        if (status.compareAndSet(Status.QUEUED, Status.CANCELLED))
+            end(null);
+    }
+
+    private void end(List<DeliveryDto> tour) {
+        finishedAt = System.currentTimeMillis();
+        result.complete(tour);
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.deliveryoptimizer.service;
+
+import com.example.deliveryoptimizer.dto.DeliveryDto;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Runs optimizations as jobs on the bounded optimization executor, so clients
+ * submit, poll and fetch the result instead of holding a request open.
+ */
+public interface OptimizationJobService {
+
+    /**
+     * Queue an optimization.
+     *
+     * @param budget time budget and cancellation of the job
+     * @param task   the optimization, given the job's budget
+     * @return the queued job
+     * @throws org.springframework.core.task.TaskRejectedException when the
+     *         executor queue is full
+     */
+    OptimizationJob submit(OptimizationBudget budget, Function<OptimizationBudget, List<DeliveryDto>> task);
+
+    /**
+     * Job by id, or null if unknown or expired.
+     */
+    OptimizationJob get(String id);
+
+    /**
+     * Cancel a job; returns it, or null if unknown or expired.
+     */
+    OptimizationJob cancel(String id);
+}
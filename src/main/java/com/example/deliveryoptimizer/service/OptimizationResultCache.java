@@ -0,0 +1,31 @@
+package com.example.deliveryoptimizer.service;
+
+import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.Warehouse;
+
+import java.util.List;
+
+/**
+ * Recently optimized tours, so an identical optimize request (same
+ * warehouse, deliveries, optimizer and vehicle, with unchanged delivery data)
+ * is answered without solving again.
+ */
+public interface OptimizationResultCache {
+
+    /**
+     * Tour computed for an identical request that has not expired, in terms of
+     * the given deliveries, or null.
+     */
+    List<Delivery> get(Warehouse warehouse, List<Delivery> deliveries, String optimizerName, Long vehicleId);
+
+    /**
+     * Remember the tour computed for a request.
+     */
+    void put(Warehouse warehouse, List<Delivery> deliveries, String optimizerName, Long vehicleId,
+            List<Delivery> tour);
+
+    /**
+     * Drop every cached tour that contains the delivery (e.g. it changed).
+     */
+    void invalidate(Long deliveryId);
+}
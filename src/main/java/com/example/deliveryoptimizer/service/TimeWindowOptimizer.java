@@ -0,0 +1,23 @@
+package com.example.deliveryoptimizer.service;
+
+import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.Warehouse;
+
+import java.util.List;
+
+/**
+ * Routing with time windows (VRPTW): each delivery must be served within its
+ * customer's preferred time slot, inside the warehouse's opening hours.
+ */
+public interface TimeWindowOptimizer {
+
+    /**
+     * Plan a route that meets every delivery's time window where possible.
+     *
+     * @param deliveries deliveries to plan
+     * @param warehouse  depot the route starts from and returns to
+     * @return feasible stops in visit order with their service start, and the
+     *         stops whose slot cannot be met
+     */
+    TimeWindowPlan plan(List<Delivery> deliveries, Warehouse warehouse);
+}
@@ -0,0 +1,44 @@
+package com.example.deliveryoptimizer.service;
+
+import com.example.deliveryoptimizer.entity.Delivery;
+
+import java.util.List;
+
+/**
+ * Result of time-window-aware routing: the stops that can be served inside
+ * their customer's preferred slot, in visit order with their planned service
+ * start, and the stops that cannot.
+ */
+public class TimeWindowPlan {
+
+    private final List<Delivery> route;
+    private final double[] serviceStartMinutes;
+    private final List<Delivery> infeasible;
+
+    public TimeWindowPlan(List<Delivery> route, double[] serviceStartMinutes, List<Delivery> infeasible) {
+        this.route = route;
+        this.serviceStartMinutes = serviceStartMinutes;
+        this.infeasible = infeasible;
+    }
+
+    /**
+     * Feasible deliveries in visit order.
+     */
+    public List<Delivery> getRoute() {
+        return route;
+    }
+
+    /**
+     * Planned service start of each route stop, in minutes since midnight.
+     */
+    public double[] getServiceStartMinutes() {
+        return serviceStartMinutes;
+    }
+
+    /**
+     * Deliveries whose slot cannot be met (flagged, not routed).
+     */
+    public List<Delivery> getInfeasible() {
+        return infeasible;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.deliveryoptimizer.service;
+
+import com.example.deliveryoptimizer.util.DistanceMatrix;
+
+/**
+ * Post-optimization stage applied to the output of any {@link TourOptimizer}.
+ * Implementations work on primitive index arrays so they can be chained
+ * cheaply (e.g. 2-opt, Or-opt).
+ */
+public interface TourImprover {
+
+    /**
+     * Improve a tour in place. The order array always holds a complete tour,
+     * also when the search is stopped early.
+     *
+     * @param order  delivery indexes (as used to build the matrix) in visit
+     *               order; the tour starts and ends at the warehouse.
+     *               Rewritten with the improved order.
+     * @param matrix distances for the warehouse and deliveries
+     * @param budget deadline and cancellation flag to poll
+     * @return true if the search converged, false if it was stopped by the
+     *         budget (calling again may improve further)
+     */
+    boolean improve(int[] order, DistanceMatrix matrix, OptimizationBudget budget);
+}
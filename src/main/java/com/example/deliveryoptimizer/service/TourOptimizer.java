@@ -2,6 +2,7 @@ package com.example.deliveryoptimizer.service;
 
 import com.example.deliveryoptimizer.entity.Delivery;
 import com.example.deliveryoptimizer.entity.Warehouse;
+import com.example.deliveryoptimizer.util.DistanceMatrix;
 import java.util.List;
 
 /**
@@ -22,4 +23,36 @@ public interface TourOptimizer {
      * @return ordered list of deliveries representing the calculated tour
      */
     List<Delivery> calculateOptimalTour(List<Delivery> deliveries, Warehouse warehouse);
+
+    /**
+     * Same as {@link #calculateOptimalTour(List, Warehouse)} but reuses a
+     * precomputed matrix built by {@link DistanceMatrix#of(Warehouse, List)}
+     * for exactly these deliveries (same order) and warehouse.
+     * Implementations that do not use distances can ignore the matrix.
+     */
+    default List<Delivery> calculateOptimalTour(List<Delivery> deliveries, Warehouse warehouse,
+            DistanceMatrix matrix) {
+        return calculateOptimalTour(deliveries, warehouse);
+    }
+
+    /**
+     * Anytime variant of
+     * {@link #calculateOptimalTour(List, Warehouse, DistanceMatrix)}: stops
+     * early once the budget is exhausted and still returns a complete tour
+     * (every delivery exactly once). Implementations that cannot be
+     * interrupted ignore the budget.
+     */
+    default List<Delivery> calculateOptimalTour(List<Delivery> deliveries, Warehouse warehouse,
+            DistanceMatrix matrix, OptimizationBudget budget) {
+        return calculateOptimalTour(deliveries, warehouse, matrix);
+    }
+
+    /**
+     * Whether distance-only improvers (2-opt, Or-opt) may reorder this
+     * optimizer's tours. Optimizers honouring other constraints (e.g. time
+     * windows) return false.
+     */
+    default boolean allowsDistanceImprovement() {
+        return true;
+    }
 }
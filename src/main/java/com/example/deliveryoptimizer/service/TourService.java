@@ -1,7 +1,9 @@
 package com.example.deliveryoptimizer.service;
 
 import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.Tour;
 import com.example.deliveryoptimizer.entity.Warehouse;
+import com.example.deliveryoptimizer.util.DistanceMatrix;
 
 import java.util.List;
 
@@ -11,18 +13,110 @@ import java.util.List;
 public interface TourService {
 
     /**
-     * Calculate an optimized tour using the named optimizer.
+     * Calculate an optimized tour using the named optimizer. The tour is
+     * persisted in the background (see {@link TourWriter}): it may not be
+     * stored yet when this returns.
      *
      * @param deliveries   list of deliveries to include
-     * @param optimizerName optimizer identifier (e.g. "NEAREST" or "CLARKE"); if null uses default
+     * @param warehouse    depot the tour starts from and returns to (null to
+     *                     ignore the depot legs)
+     * @param optimizerName optimizer identifier (e.g. "NEAREST", "CLARKE", "PORTFOLIO" or "CLUSTERED"); if null uses default
      * @param vehicleId    id of the vehicle to be used (can be used to get capacity/constraints)
      * @return ordered list of deliveries representing the tour
+     * @throws IllegalArgumentException for "TIME_WINDOWS": such routes may
+     *                                  leave stops out, see
+     *                                  {@link #getTimeWindowTour(List, Warehouse, Long)}
      */
-    List<Delivery> getOptimizedTour(List<Delivery> deliveries, String optimizerName, Long vehicleId);
+    List<Delivery> getOptimizedTour(List<Delivery> deliveries, Warehouse warehouse, String optimizerName,
+            Long vehicleId);
+
+    /**
+     * Anytime variant of {@link #getOptimizedTour(List, Warehouse, String, Long)}: every
+     * improved tour is published to the budget while the optimization runs,
+     * and the best tour so far is returned once the budget is exhausted. A
+     * budget with a deadline replaces the configured local search time budget;
+     * a cancelled run is not persisted.
+     */
+    List<Delivery> getOptimizedTour(List<Delivery> deliveries, Warehouse warehouse, String optimizerName,
+            Long vehicleId, OptimizationBudget budget);
+
+    /**
+     * Same optimization as
+     * {@link #getOptimizedTour(List, Warehouse, String, Long, OptimizationBudget)} without
+     * persisting the tour; safe to call from several threads at once.
+     */
+    List<Delivery> calculateTour(List<Delivery> deliveries, Warehouse warehouse, String optimizerName,
+            OptimizationBudget budget);
+
+    /**
+     * Persist one Tour (dated today) per route with one saveAll, so within the
+     * caller's transaction all tours and delivery assignments are written
+     * together. The deliveries may be detached: they are read again by id,
+     * and the tours they leave keep no gaps in their positions.
+     *
+     * @param routes     deliveries of each tour in visit order
+     * @param vehicleIds vehicle of each route (same size as routes; entries
+     *                   may be null)
+     * @return the persisted tours, in the order of the routes
+     */
+    List<Tour> saveTours(List<List<Delivery>> routes, List<Long> vehicleIds);
+
+    /**
+     * Split deliveries into one route per vehicle (capacitated, heterogeneous
+     * fleet) and persist one Tour per route with its assigned vehicle.
+     *
+     * @param deliveries deliveries to plan
+     * @param warehouse  depot the routes start from and return to
+     * @param vehicleIds vehicles to use; null or empty uses the whole fleet
+     * @return the persisted tours; deliveries that fit no vehicle are not part
+     *         of any tour
+     */
+    List<Tour> getOptimizedTours(List<Delivery> deliveries, Warehouse warehouse, List<Long> vehicleIds);
+
+    /**
+     * Plan a route that respects the customers' preferred time slots and the
+     * warehouse opening hours, and persist it as a Tour (in the background).
+     *
+     * @param deliveries deliveries to plan
+     * @param warehouse  depot the route starts from and returns to
+     * @param vehicleId  vehicle assigned to the tour (optional)
+     * @return the route with planned service starts, and the deliveries whose
+     *         slot cannot be met (not part of the persisted tour)
+     */
+    TimeWindowPlan getTimeWindowTour(List<Delivery> deliveries, Warehouse warehouse, Long vehicleId);
+
+    /**
+     * Add deliveries to an already persisted tour by cheapest insertion: each
+     * one goes where it lengthens the tour least, the planned stops keep their
+     * relative order.
+     *
+     * @param tourId     persisted tour
+     * @param deliveries deliveries to add (already in the tour are ignored)
+     * @param warehouse  depot of the tour, or null to ignore the depot legs
+     * @param fixedStops leading stops that must stay first (already driven)
+     * @return the updated tour, or null if it does not exist
+     */
+    Tour insertDeliveries(Long tourId, List<Delivery> deliveries, Warehouse warehouse, int fixedStops);
+
+    /**
+     * Remove deliveries (e.g. cancelled) from a persisted tour; the other stops
+     * keep their order and the deliveries themselves are kept.
+     *
+     * @return the updated tour, or null if it does not exist
+     */
+    Tour removeDeliveries(Long tourId, List<Long> deliveryIds);
 
     /**
      * Compute the total distance (meters) of a tour starting and ending at the warehouse.
      */
     double getTotalDistance(List<Delivery> deliveries, Warehouse warehouse);
 
+    /**
+     * Compute the total distance (meters) of a tour using an already built matrix.
+     *
+     * @param matrix matrix built for the warehouse and deliveries
+     * @param order  delivery indexes (as used to build the matrix) in visit order
+     */
+    double getTotalDistance(DistanceMatrix matrix, int[] order);
+
 }
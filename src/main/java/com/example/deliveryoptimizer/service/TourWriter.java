@@ -0,0 +1,84 @@
+package com.example.deliveryoptimizer.service;
+
+import com.example.deliveryoptimizer.entity.Delivery;
+
+import java.util.List;
+
+/**
+ * Write-behind persistence of optimized tours: optimizations hand their tour
+ * over and return at once, the tours are written in the background.
+ */
+public interface TourWriter {
+
+    /**
+     * Queue a tour (dated today) for persistence. Blocks while the queue is
+     * full, up to a configured timeout after which the tour is rejected
+     * (counted in {@link Stats#getRejected()}).
+     *
+     * @param ordered   persisted deliveries in visit order (deliveries
+     *                  without id are skipped)
+     * @param vehicleId vehicle of the tour, or null
+     * @return false if the tour was rejected
+     */
+    boolean submit(List<Delivery> ordered, Long vehicleId);
+
+    /**
+     * Wait until every tour queued so far is written (or failed for good).
+     *
+     * @return false if tours were still pending after the timeout
+     */
+    boolean flush(long timeoutMs) throws InterruptedException;
+
+    Stats stats();
+
+    /**
+     * Counters since startup.
+     */
+    final class Stats {
+        private final int queued;
+        private final long submitted;
+        private final long written;
+        private final long failed;
+        private final long rejected;
+        private final long retries;
+
+        public Stats(int queued, long submitted, long written, long failed, long rejected, long retries) {
+            this.queued = queued;
+            this.submitted = submitted;
+            this.written = written;
+            this.failed = failed;
+            this.rejected = rejected;
+            this.retries = retries;
+        }
+
+        /** Tours waiting in the queue. */
+        public int getQueued() {
+            return queued;
+        }
+
+        /** Tours accepted into the queue. */
+        public long getSubmitted() {
+            return submitted;
+        }
+
+        /** Tours persisted. */
+        public long getWritten() {
+            return written;
+        }
+
+        /** Tours given up on after all attempts. */
+        public long getFailed() {
+            return failed;
+        }
+
+        /** Tours not accepted because the queue stayed full. */
+        public long getRejected() {
+            return rejected;
+        }
+
+        /** Batch writes attempted again after a failure. */
+        public long getRetries() {
+            return retries;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.deliveryoptimizer.service;
+
+import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.Tour;
+import com.example.deliveryoptimizer.entity.Vehicle;
+import com.example.deliveryoptimizer.entity.Warehouse;
+import com.example.deliveryoptimizer.util.DistanceMatrix;
+
+import java.util.List;
+
+/**
+ * Capacitated multi-vehicle routing (CVRP): splits deliveries into one route
+ * per vehicle of a heterogeneous fleet.
+ */
+public interface VehicleRoutingOptimizer {
+
+    /**
+     * Build routes that respect each vehicle's capacityWeight, capacityVolume
+     * and maxDeliveries (values <= 0 mean "no limit"). Each vehicle gets at
+     * most one route.
+     *
+     * @param deliveries deliveries to plan
+     * @param warehouse  depot all routes start from and return to
+     * @param fleet      available vehicles
+     * @param matrix     matrix built for exactly these deliveries and warehouse
+     * @return one (not yet persisted) Tour per route, with its vehicle and
+     *         ordered deliveries; deliveries that fit no remaining vehicle are
+     *         left out of every tour
+     */
+    List<Tour> calculateRoutes(List<Delivery> deliveries, Warehouse warehouse, List<Vehicle> fleet,
+            DistanceMatrix matrix);
+
+    /**
+     * Same as {@link #calculateRoutes(List, Warehouse, List, DistanceMatrix)},
+     * building the matrix itself.
+     */
+    default List<Tour> calculateRoutes(List<Delivery> deliveries, Warehouse warehouse, List<Vehicle> fleet) {
+        return calculateRoutes(deliveries, warehouse, fleet, DistanceMatrix.of(warehouse, deliveries));
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.deliveryoptimizer.service.impl;
+
+import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.Warehouse;
+import com.example.deliveryoptimizer.util.GeoPoints;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cheapest insertion of new deliveries into an existing route, without
+ * reordering the stops already planned.
+ *
+ * The route's leg lengths are computed once and then updated incrementally:
+ * inserting u between a and b only replaces leg (a, b) by (a, u) and (u, b),
+ * so each insertion costs one distance per route stop (to u) and the rest of
+ * the route is left untouched.
+ */
+final class CheapestInsertion {
+
+    private static final int STRIDE = GeoPoints.PREPARED_STRIDE;
+
+    private final List<Delivery> route;
+    private final boolean hasDepot;
+    private final double[] depot = new double[STRIDE];
+    private final int fixedStops;
+
+    // per stop: its prepared distance terms (STRIDE values, see
+    // GeoPoints.prepare); leg i ends at stop i (leg m is the return to the
+    // warehouse)
+    private double[] geo;
+    private double[] leg;
+    private int m;
+
+    /**
+     * @param route      stops in visit order; modified in place
+     * @param warehouse  start/end of the route, or null for an open route
+     *                   (no warehouse legs)
+     * @param fixedStops number of leading stops that must stay first (e.g.
+     *                   already driven); new deliveries go after them
+     */
+    CheapestInsertion(List<Delivery> route, Warehouse warehouse, int fixedStops) {
+        this.route = route;
+        this.hasDepot = warehouse != null;
+        if (hasDepot)
+            GeoPoints.prepare(warehouse.getLatitude(), warehouse.getLongitude(), depot, 0);
+        this.m = route.size();
+        this.fixedStops = Math.max(0, Math.min(fixedStops, m));
+
+        int capacity = Math.max(16, m * 2);
+        geo = new double[capacity * STRIDE];
+        leg = new double[capacity + 1];
+        for (int i = 0; i < m; i++) {
+            Delivery d = route.get(i);
+            GeoPoints.prepare(d.getLatitude(), d.getLongitude(), geo, i * STRIDE);
+        }
+        for (int i = 0; i <= m; i++)
+            leg[i] = dist(i - 1, i);
+    }
+
+    /**
+     * Insert one delivery where it lengthens the route least.
+     *
+     * @return the added length in meters
+     */
+    double insert(Delivery u) {
+        double[] p = new double[STRIDE];
+        GeoPoints.prepare(u.getLatitude(), u.getLongitude(), p, 0);
+
+        // distance from u to the stop before each leg, walking the route once
+        int bestLeg = -1;
+        double bestDelta = Double.POSITIVE_INFINITY;
+        double toPrev = fixedStops == 0 ? toDepot(p, 0)
+                : GeoPoints.distance(geo, (fixedStops - 1) * STRIDE, p, 0);
+        for (int i = fixedStops; i <= m; i++) {
+            double toNext = i == m ? toDepot(p, 0) : GeoPoints.distance(geo, i * STRIDE, p, 0);
+            double delta = toPrev + toNext - leg[i];
+            if (delta < bestDelta) {
+                bestDelta = delta;
+                bestLeg = i;
+            }
+            toPrev = toNext;
+        }
+
+        place(bestLeg, u, p);
+        return bestDelta;
+    }
+
+    /**
+     * Total route length in meters.
+     */
+    double length() {
+        double total = 0.0;
+        for (int i = 0; i <= m; i++)
+            total += leg[i];
+        return total;
+    }
+
+    private void place(int p, Delivery u, double[] prepared) {
+        if (m + 1 >= leg.length - 1) {
+            int capacity = (leg.length - 1) * 2;
+            geo = Arrays.copyOf(geo, capacity * STRIDE);
+            leg = Arrays.copyOf(leg, capacity + 1);
+        }
+        System.arraycopy(geo, p * STRIDE, geo, (p + 1) * STRIDE, (m - p) * STRIDE);
+        System.arraycopy(leg, p, leg, p + 1, m + 1 - p);
+        System.arraycopy(prepared, 0, geo, p * STRIDE, STRIDE);
+        m++;
+        route.add(p, u);
+        leg[p] = dist(p - 1, p);
+        leg[p + 1] = dist(p, p + 1);
+    }
+
+    // distance between stops a and b, where -1 and m are the warehouse
+    private double dist(int a, int b) {
+        boolean aDepot = a < 0 || a >= m;
+        boolean bDepot = b < 0 || b >= m;
+        if (aDepot && bDepot)
+            return 0.0;
+        if (aDepot)
+            return toDepot(geo, b * STRIDE);
+        if (bDepot)
+            return toDepot(geo, a * STRIDE);
+        return GeoPoints.distance(geo, a * STRIDE, geo, b * STRIDE);
+    }
+
+    private double toDepot(double[] point, int offset) {
+        return hasDepot ? GeoPoints.distance(depot, 0, point, offset) : 0.0;
+    }
+}
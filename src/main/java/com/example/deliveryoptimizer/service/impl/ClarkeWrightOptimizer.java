@@ -1,206 +1,514 @@
 package com.example.deliveryoptimizer.service.impl;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.Tour;
+import com.example.deliveryoptimizer.entity.Vehicle;
 import com.example.deliveryoptimizer.entity.Warehouse;
+import com.example.deliveryoptimizer.service.OptimizationBudget;
 import com.example.deliveryoptimizer.service.TourOptimizer;
+import com.example.deliveryoptimizer.service.VehicleRoutingOptimizer;
+import com.example.deliveryoptimizer.util.DistanceMatrix;
+import com.example.deliveryoptimizer.util.GeoPoints;
+import com.example.deliveryoptimizer.util.SpatialGrid;
 
 import java.util.*;
 
 /**
  * Simple Clarke-Wright Savings optimizer (basic version).
- * - Computes savings for every pair: s(i,j) = dist(W,i)+dist(W,j)-dist(i,j)
- * - Sorts pairs by savings descending
+ * - Computes savings for every pair: s(i,j) = dist(W,i)+dist(W,j)-dist(i,j),
+ * or, when {@code optimizer.clarke.neighbors} is set, only for each delivery's
+ * k nearest neighbours (bounded memory for large days): the neighbours come
+ * from a {@link SpatialGrid} and, unless a matrix is passed in, the savings
+ * distances are computed on demand, so no n x n matrix is built
+ * - Sorts pairs by savings descending (packed long keys, parallel primitive sort)
  * - Attempts to merge routes if pair endpoints match and capacity (total
  * weight) allows
- * - Uses a simple fixed vehicle capacity (constant) for checks
+ * - Uses a simple fixed vehicle capacity (constant) for checks, or, through
+ * {@link VehicleRoutingOptimizer}, the weight/volume/stop limits of a fleet;
+ * the resulting routes are then assigned to vehicles (best fit decreasing)
  *
  * Note: This is a straightforward educational implementation (not
  * production-grade).
  */
 @Service
-public class ClarkeWrightOptimizer implements TourOptimizer {
+public class ClarkeWrightOptimizer implements TourOptimizer, VehicleRoutingOptimizer {
 
-    // Simple capacity used for demonstration (kg). Replace by vehicle-specific
-    // capacity later.
+    // Simple capacity used for demonstration (kg) when planning a single tour
+    // without a fleet.
     private static final double DEFAULT_VEHICLE_CAPACITY = 1000.0;
 
+    // the budget is polled once every (mask + 1) examined savings
+    private static final int BUDGET_CHECK_MASK = 4095;
+
+    // saving keys hold delivery indexes on 16 bits
+    private static final int MAX_DELIVERIES = 1 << 16;
+
+    // Number of nearest neighbours per delivery used to generate savings; 0
+    // (default) computes savings for every pair
+    private final int neighbors;
+
+    public ClarkeWrightOptimizer(@Value("${optimizer.clarke.neighbors:0}") int neighbors) {
+        this.neighbors = neighbors;
+    }
+
     @Override
     public List<Delivery> calculateOptimalTour(List<Delivery> deliveries, Warehouse warehouse) {
         if (deliveries == null || deliveries.isEmpty())
             return new ArrayList<>();
+        // the sparse mode targets large days: no matrix at all
+        DistanceMatrix matrix = sparse(deliveries.size()) ? null : DistanceMatrix.of(warehouse, deliveries);
+        return merge(deliveries, warehouse, matrix, FleetLimits.DEFAULT, OptimizationBudget.unlimited()).flatten();
+    }
+
+    @Override
+    public List<Delivery> calculateOptimalTour(List<Delivery> deliveries, Warehouse warehouse,
+            DistanceMatrix matrix) {
+        return calculateOptimalTour(deliveries, warehouse, matrix, OptimizationBudget.unlimited());
+    }
+
+    /**
+     * Stops merging once the budget is exhausted; the routes built so far are
+     * flattened as usual, so the result is still a complete tour.
+     */
+    @Override
+    public List<Delivery> calculateOptimalTour(List<Delivery> deliveries, Warehouse warehouse,
+            DistanceMatrix matrix, OptimizationBudget budget) {
+        if (deliveries == null || deliveries.isEmpty())
+            return new ArrayList<>();
+
+        // Flatten routes into a single ordered list (routes ordered by the input
+        // position of their first delivery)
+        return merge(deliveries, warehouse, matrix, FleetLimits.DEFAULT, budget).flatten();
+    }
+
+    @Override
+    public List<Tour> calculateRoutes(List<Delivery> deliveries, Warehouse warehouse, List<Vehicle> fleet) {
+        if (deliveries == null || deliveries.isEmpty() || fleet == null || fleet.isEmpty())
+            return new ArrayList<>();
+        DistanceMatrix matrix = sparse(deliveries.size()) ? null : DistanceMatrix.of(warehouse, deliveries);
+        return calculateRoutes(deliveries, warehouse, fleet, matrix);
+    }
 
-        final double depotLat = warehouse != null ? warehouse.getLatitude() : 0.0;
-        final double depotLon = warehouse != null ? warehouse.getLongitude() : 0.0;
+    @Override
+    public List<Tour> calculateRoutes(List<Delivery> deliveries, Warehouse warehouse, List<Vehicle> fleet,
+            DistanceMatrix matrix) {
+        if (deliveries == null || deliveries.isEmpty() || fleet == null || fleet.isEmpty())
+            return new ArrayList<>();
+        RouteChains routes = merge(deliveries, warehouse, matrix, FleetLimits.of(fleet),
+                OptimizationBudget.unlimited());
+        return assignVehicles(routes, fleet);
+    }
 
+    /**
+     * Savings merge phase: start with one route per delivery and merge route
+     * endpoints by decreasing saving while the merged load still fits at least
+     * one vehicle, or until the budget is exhausted.
+     *
+     * @param matrix distances to use, or null in sparse mode to compute them
+     *               on demand
+     */
+    private RouteChains merge(List<Delivery> deliveries, Warehouse warehouse, DistanceMatrix matrix,
+            FleetLimits limits, OptimizationBudget budget) {
         int n = deliveries.size();
+        if (n > MAX_DELIVERIES)
+            throw new IllegalArgumentException("too many deliveries for one savings run: " + n);
 
-        List<List<Delivery>> routes = new ArrayList<>();
-        List<Double> routeWeights = new ArrayList<>();
-        for (Delivery d : deliveries) {
-            List<Delivery> r = new ArrayList<>();
-            r.add(d);
-            routes.add(r);
-            routeWeights.add(d.getWeight());
+        RouteChains routes = new RouteChains(deliveries);
+
+        // Compute savings (all pairs, or each delivery's k nearest neighbours)
+        // packed as sortable long keys, and sort them descending
+        long[] savings;
+        if (sparse(n)) {
+            SpatialGrid grid = grid(deliveries);
+            Legs legs = matrix != null ? new MatrixLegs(matrix) : new GeoLegs(grid.points(), warehouse);
+            savings = sparseSavings(legs, grid.nearestNeighbors(neighbors), n);
+        } else {
+            savings = denseSavings(matrix != null ? matrix : DistanceMatrix.of(warehouse, deliveries), n);
         }
+        Arrays.parallelSort(savings);
 
-        double[] distDepot = new double[n];
-        double[][] dist = new double[n][n];
-        for (int i = 0; i < n; i++) {
-            Delivery di = deliveries.get(i);
-            distDepot[i] = NearestNeighborOptimizer.distance(depotLat, depotLon, di.getLatitude(), di.getLongitude());
+        // Try to merge routes according to savings
+        for (int p = 0; p < savings.length; p++) {
+            if ((p & BUDGET_CHECK_MASK) == 0 && budget.isExhausted())
+                break;
+            long key = savings[p];
+            int i = pairI(key);
+            int j = pairJ(key);
+
+            int rI = routes.find(i);
+            int rJ = routes.find(j);
+            if (rI == rJ)
+                continue; // same route
+
+            // We'll support two cases: end of route(i) -> start of route(j) OR
+            // end of route(j) -> start of route(i); deliveries in the middle of a
+            // route cannot be merged through
+            int tail;
+            int head;
+            if (routes.isTail(i) && routes.isHead(j)) {
+                tail = i;
+                head = j;
+            } else if (routes.isTail(j) && routes.isHead(i)) {
+                tail = j;
+                head = i;
+            } else {
+                continue;
+            }
+
+            // Check capacity (weight, volume and number of stops)
+            if (!limits.fits(routes.weight(rI) + routes.weight(rJ), routes.volume(rI) + routes.volume(rJ),
+                    routes.count(rI) + routes.count(rJ))) {
+                // cannot merge due to capacity
+                continue;
+            }
+
+            routes.link(tail, head);
         }
+        return routes;
+    }
+
+    /**
+     * Best-fit decreasing: routes by decreasing weight each take the smallest
+     * unused vehicle they fit in. Routes left without a vehicle are dropped.
+     */
+    private static List<Tour> assignVehicles(RouteChains routes, List<Vehicle> fleet) {
+        List<Integer> heads = routes.heads();
+        heads.sort(Comparator.comparingDouble((Integer h) -> routes.weight(routes.find(h)))
+                .thenComparingDouble(h -> routes.volume(routes.find(h)))
+                .reversed());
+
+        List<Vehicle> vehicles = new ArrayList<>(fleet);
+        vehicles.sort(Comparator.comparingDouble(FleetLimits::weightLimit)
+                .thenComparingDouble(FleetLimits::volumeLimit)
+                .thenComparingInt(FleetLimits::countLimit));
+        boolean[] used = new boolean[vehicles.size()];
+
+        List<Tour> tours = new ArrayList<>();
+        for (int h : heads) {
+            int r = routes.find(h);
+            for (int v = 0; v < vehicles.size(); v++) {
+                Vehicle vehicle = vehicles.get(v);
+                if (used[v] || !FleetLimits.fits(vehicle, routes.weight(r), routes.volume(r), routes.count(r)))
+                    continue;
+                used[v] = true;
+                Tour tour = new Tour();
+                tour.setVehicle(vehicle);
+                for (Delivery d : routes.route(h))
+                    tour.addDelivery(d);
+                tours.add(tour);
+                break;
+            }
+        }
+        return tours;
+    }
+
+    private boolean sparse(int n) {
+        return neighbors > 0 && neighbors < n - 1;
+    }
+
+    private static long[] denseSavings(DistanceMatrix matrix, int n) {
+        long[] keys = new long[(int) ((long) n * (n - 1) / 2)];
+        int c = 0;
         for (int i = 0; i < n; i++) {
-            for (int j = 0; j < n; j++) {
-                if (i == j)
-                    dist[i][j] = 0.0;
-                else {
-                    Delivery di = deliveries.get(i);
-                    Delivery dj = deliveries.get(j);
-                    dist[i][j] = NearestNeighborOptimizer.distance(di.getLatitude(), di.getLongitude(),
-                            dj.getLatitude(), dj.getLongitude());
-                }
+            double di = matrix.fromDepot(i);
+            for (int j = i + 1; j < n; j++) {
+                keys[c++] = savingKey(di + matrix.fromDepot(j) - matrix.between(i, j), i, j);
             }
         }
+        return keys;
+    }
 
-        // Compute savings list
-        class Saving {
-            int i;
-            int j;
-            double s;
+    private static SpatialGrid grid(List<Delivery> deliveries) {
+        int n = deliveries.size();
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int i = 0; i < n; i++) {
+            lat[i] = deliveries.get(i).getLatitude();
+            lon[i] = deliveries.get(i).getLongitude();
         }
-        List<Saving> savings = new ArrayList<>();
+        return new SpatialGrid(lat, lon);
+    }
+
+    private long[] sparseSavings(Legs legs, int[] nn, int n) {
+        int k = neighbors;
+        long[] keys = new long[n * k];
+        int c = 0;
         for (int i = 0; i < n; i++) {
-            for (int j = i + 1; j < n; j++) {
-                double s = distDepot[i] + distDepot[j] - dist[i][j];
-                Saving sv = new Saving();
-                sv.i = i;
-                sv.j = j;
-                sv.s = s;
-                savings.add(sv);
+            for (int p = i * k; p < (i + 1) * k; p++) {
+                int j = nn[p];
+                // a pair listed from both sides is only kept once (from its smaller index)
+                if (j < i && contains(nn, j * k, k, i))
+                    continue;
+                int a = Math.min(i, j);
+                int b = Math.max(i, j);
+                keys[c++] = savingKey(legs.fromDepot(a) + legs.fromDepot(b) - legs.between(a, b), a, b);
             }
         }
+        return Arrays.copyOf(keys, c);
+    }
 
-        // Sort savings descending
-        savings.sort((a, b) -> Double.compare(b.s, a.s));
+    private static boolean contains(int[] values, int from, int len, int value) {
+        for (int p = from; p < from + len; p++) {
+            if (values[p] == value)
+                return true;
+        }
+        return false;
+    }
 
-        // Helper: find route index and whether delivery is at start or end
-        // (Use the class-level nested RoutePos defined below)
+    /**
+     * Encode a saving so that ascending long order is descending saving order,
+     * ties broken by (i, j): high 32 bits hold the saving as an order-preserving
+     * float, low 32 bits hold i and j on 16 bits each (at most
+     * {@link #MAX_DELIVERIES} deliveries).
+     */
+    private static long savingKey(double saving, int i, int j) {
+        int bits = Float.floatToIntBits((float) saving);
+        int ordered = bits ^ ((bits >> 31) & 0x7fffffff);
+        return ((long) ~ordered << 32) | (((long) i << 16) | j);
+    }
 
-        // Try to merge routes according to savings
-        for (Saving sv : savings) {
-            int idxI = sv.i;
-            int idxJ = sv.j;
+    private static int pairI(long key) {
+        return (int) (key >>> 16) & 0xffff;
+    }
 
-            RoutePos posI = findRouteContaining(routes, deliveries.get(idxI));
-            RoutePos posJ = findRouteContaining(routes, deliveries.get(idxJ));
+    private static int pairJ(long key) {
+        return (int) key & 0xffff;
+    }
 
-            if (posI == null || posJ == null)
-                continue; // safety
-            if (posI.routeIdx == posJ.routeIdx)
-                continue; // same route
+    /**
+     * Distances between deliveries (indexes in the input list) and from the
+     * warehouse, as the sparse savings need them.
+     */
+    private interface Legs {
+        double fromDepot(int i);
 
-            int rI = posI.routeIdx;
-            int rJ = posJ.routeIdx;
-
-            // Determine if endpoints align for a merge (end of one to start of the other)
-            boolean canMerge = false;
-            boolean iAtEnd = posI.atEnd;
-            boolean iAtStart = posI.atStart;
-            boolean jAtEnd = posJ.atEnd;
-            boolean jAtStart = posJ.atStart;
-
-            // We'll support two cases: rI end -> rJ start OR rJ end -> rI start
-            if (iAtEnd && jAtStart) {
-                canMerge = true;
-            } else if (jAtEnd && iAtStart) {
-                // swap roles to keep merge direction consistent: merge rJ -> rI
-                // implement by swapping rI and rJ
-                int tmp = rI;
-                rI = rJ;
-                rJ = tmp;
-                canMerge = true;
-            }
+        double between(int i, int j);
+    }
 
-            if (!canMerge)
-                continue;
+    private static final class MatrixLegs implements Legs {
+        private final DistanceMatrix matrix;
 
-            // Check capacity (simple sum of weights)
-            double combinedWeight = routeWeights.get(rI) + routeWeights.get(rJ);
-            if (combinedWeight > DEFAULT_VEHICLE_CAPACITY) {
-                // cannot merge due to capacity
-                continue;
+        MatrixLegs(DistanceMatrix matrix) {
+            this.matrix = matrix;
+        }
+
+        @Override
+        public double fromDepot(int i) {
+            return matrix.fromDepot(i);
+        }
+
+        @Override
+        public double between(int i, int j) {
+            return matrix.between(i, j);
+        }
+    }
+
+    /**
+     * Haversine distances computed when asked; a null warehouse is (0,0), as
+     * in {@link DistanceMatrix}.
+     */
+    private static final class GeoLegs implements Legs {
+        private final GeoPoints points;
+        private final double[] depot = new double[GeoPoints.PREPARED_STRIDE];
+
+        GeoLegs(GeoPoints points, Warehouse warehouse) {
+            this.points = points;
+            GeoPoints.prepare(warehouse != null ? warehouse.getLatitude() : 0.0,
+                    warehouse != null ? warehouse.getLongitude() : 0.0, depot, 0);
+        }
+
+        @Override
+        public double fromDepot(int i) {
+            return points.distance(depot, 0, i);
+        }
+
+        @Override
+        public double between(int i, int j) {
+            return points.distance(i, j);
+        }
+    }
+
+    /**
+     * Routes under construction, kept as linked chains over delivery indexes.
+     * Each route is identified by the union-find root of its members, which
+     * stores the route's total weight; {@code prev}/{@code next} give O(1)
+     * endpoint checks and O(1) splices.
+     */
+    private static final class RouteChains {
+        private final List<Delivery> deliveries;
+        private final int[] parent;
+        private final int[] prev;
+        private final int[] next;
+        private final double[] weight;
+        private final double[] volume;
+        private final int[] count;
+
+        RouteChains(List<Delivery> deliveries) {
+            int n = deliveries.size();
+            this.deliveries = deliveries;
+            this.parent = new int[n];
+            this.prev = new int[n];
+            this.next = new int[n];
+            this.weight = new double[n];
+            this.volume = new double[n];
+            this.count = new int[n];
+            for (int i = 0; i < n; i++) {
+                parent[i] = i;
+                prev[i] = -1;
+                next[i] = -1;
+                weight[i] = deliveries.get(i).getWeight();
+                volume[i] = deliveries.get(i).getVolume();
+                count[i] = 1;
             }
+        }
 
-            // perform merge: append route rJ to route rI
-            List<Delivery> merged = new ArrayList<>(routes.get(rI));
-            merged.addAll(routes.get(rJ));
-
-            // replace rI with merged, remove rJ
-            routes.set(rI, merged);
-            routeWeights.set(rI, combinedWeight);
-            // remove higher index first to avoid shifting issues
-            int removeIdx = rJ;
-            // If rJ < rI then rI index shifts after removal
-            if (rJ < rI) {
-                routes.remove(removeIdx);
-                routeWeights.remove(removeIdx);
-                rI = rI - 1;
-            } else {
-                routes.remove(removeIdx);
-                routeWeights.remove(removeIdx);
+        /**
+         * Route id (union-find root) of delivery i, with path halving.
+         */
+        int find(int i) {
+            while (parent[i] != i) {
+                parent[i] = parent[parent[i]];
+                i = parent[i];
             }
+            return i;
+        }
+
+        boolean isHead(int i) {
+            return prev[i] < 0;
         }
 
-        // Flatten routes into a single ordered list (concatenate routes)
-        List<Delivery> result = new ArrayList<>();
-        for (List<Delivery> r : routes)
-            result.addAll(r);
-        return result;
+        boolean isTail(int i) {
+            return next[i] < 0;
+        }
+
+        double weight(int route) {
+            return weight[route];
+        }
+
+        double volume(int route) {
+            return volume[route];
+        }
+
+        int count(int route) {
+            return count[route];
+        }
+
+        /**
+         * Append the route starting at {@code head} after the route ending at
+         * {@code tail}.
+         */
+        void link(int tail, int head) {
+            int a = find(tail);
+            int b = find(head);
+            next[tail] = head;
+            prev[head] = tail;
+            parent[b] = a;
+            weight[a] += weight[b];
+            volume[a] += volume[b];
+            count[a] += count[b];
+        }
+
+        /**
+         * First delivery of every route, in input order.
+         */
+        List<Integer> heads() {
+            List<Integer> result = new ArrayList<>();
+            for (int i = 0; i < prev.length; i++) {
+                if (prev[i] < 0)
+                    result.add(i);
+            }
+            return result;
+        }
+
+        List<Delivery> route(int head) {
+            List<Delivery> result = new ArrayList<>();
+            for (int k = head; k >= 0; k = next[k])
+                result.add(deliveries.get(k));
+            return result;
+        }
+
+        List<Delivery> flatten() {
+            List<Delivery> result = new ArrayList<>(deliveries.size());
+            for (int head : heads())
+                result.addAll(route(head));
+            return result;
+        }
     }
 
     /**
-     * Find the route index containing a delivery and whether it's at start/end.
+     * Capacity profiles of a fleet, reduced to the vehicles not dominated by
+     * another one (a route fits the fleet if it fits one of them).
      */
-    private RoutePos findRouteContaining(List<List<Delivery>> routes, Delivery d) {
-        for (int ri = 0; ri < routes.size(); ri++) {
-            List<Delivery> r = routes.get(ri);
-            if (r.isEmpty())
-                continue;
-            if (r.get(0).equals(d)) {
-                RoutePos p = new RoutePos();
-                p.routeIdx = ri;
-                p.atStart = true;
-                p.atEnd = (r.size() == 1);
-                return p;
+    private static final class FleetLimits {
+
+        // Simple capacity used when no fleet is given (kg, no volume or stop limit)
+        static final FleetLimits DEFAULT = new FleetLimits(new double[] { DEFAULT_VEHICLE_CAPACITY },
+                new double[] { Double.POSITIVE_INFINITY }, new int[] { Integer.MAX_VALUE });
+
+        private final double[] weight;
+        private final double[] volume;
+        private final int[] count;
+
+        private FleetLimits(double[] weight, double[] volume, int[] count) {
+            this.weight = weight;
+            this.volume = volume;
+            this.count = count;
+        }
+
+        static FleetLimits of(List<Vehicle> fleet) {
+            List<Vehicle> kept = new ArrayList<>();
+            for (Vehicle v : fleet) {
+                boolean dominated = false;
+                for (Vehicle o : fleet) {
+                    if (o != v && weightLimit(o) >= weightLimit(v) && volumeLimit(o) >= volumeLimit(v)
+                            && countLimit(o) >= countLimit(v)
+                            && (weightLimit(o) > weightLimit(v) || volumeLimit(o) > volumeLimit(v)
+                                    || countLimit(o) > countLimit(v) || fleet.indexOf(o) < fleet.indexOf(v))) {
+                        dominated = true;
+                        break;
+                    }
+                }
+                if (!dominated)
+                    kept.add(v);
             }
-            if (r.get(r.size() - 1).equals(d)) {
-                RoutePos p = new RoutePos();
-                p.routeIdx = ri;
-                p.atStart = (r.size() == 1);
-                p.atEnd = true;
-                return p;
+            double[] w = new double[kept.size()];
+            double[] vol = new double[kept.size()];
+            int[] c = new int[kept.size()];
+            for (int i = 0; i < kept.size(); i++) {
+                w[i] = weightLimit(kept.get(i));
+                vol[i] = volumeLimit(kept.get(i));
+                c[i] = countLimit(kept.get(i));
             }
-            // if in middle, we don't allow merge via that delivery
-            for (int k = 1; k < r.size() - 1; k++) {
-                if (r.get(k).equals(d)) {
-                    RoutePos p = new RoutePos();
-                    p.routeIdx = ri;
-                    p.atStart = false;
-                    p.atEnd = false;
-                    return p;
-                }
+            return new FleetLimits(w, vol, c);
+        }
+
+        boolean fits(double w, double v, int c) {
+            for (int i = 0; i < weight.length; i++) {
+                if (w <= weight[i] && v <= volume[i] && c <= count[i])
+                    return true;
             }
+            return false;
+        }
+
+        static boolean fits(Vehicle vehicle, double w, double v, int c) {
+            return w <= weightLimit(vehicle) && v <= volumeLimit(vehicle) && c <= countLimit(vehicle);
+        }
+
+        // limits <= 0 are treated as "not set"
+        static double weightLimit(Vehicle v) {
+            return v.getCapacityWeight() > 0 ? v.getCapacityWeight() : Double.POSITIVE_INFINITY;
+        }
+
+        static double volumeLimit(Vehicle v) {
+            return v.getCapacityVolume() > 0 ? v.getCapacityVolume() : Double.POSITIVE_INFINITY;
         }
-        return null;
-    }
 
-    // Local helper classes used inside methods
-    private static class RoutePos {
-        int routeIdx;
-        boolean atStart;
-        boolean atEnd;
+        static int countLimit(Vehicle v) {
+            return v.getMaxDeliveries() > 0 ? v.getMaxDeliveries() : Integer.MAX_VALUE;
+        }
     }
 
 }
@@ -0,0 +1,291 @@
+package com.example.deliveryoptimizer.service.impl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.Warehouse;
+import com.example.deliveryoptimizer.service.OptimizationBudget;
+import com.example.deliveryoptimizer.service.TourOptimizer;
+import com.example.deliveryoptimizer.util.DistanceMatrix;
+import com.example.deliveryoptimizer.util.DistanceUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Geographic decomposition for large days.
+ *
+ * - Sweep: deliveries are sorted by polar angle around the warehouse (or
+ * their centroid when no warehouse is given), starting after the widest empty
+ * angular gap, and cut into clusters of at most
+ * {@code optimizer.decomposition.cluster-size} deliveries
+ * - Each cluster is optimized independently, in parallel on the shared
+ * optimization pool, by the configured delegate optimizer with its own small
+ * distance matrix (O(n * cluster-size) memory instead of O(n^2))
+ * - Cluster tours are stitched in sweep order, each one oriented to start
+ * next to where the previous one ended
+ * - Boundaries are repaired with a windowed 2-opt over the stops on both
+ * sides of each seam
+ */
+@Service
+public class ClusteredOptimizer implements TourOptimizer {
+
+    // minimum gain (meters) for a repair move to be applied
+    private static final double EPSILON = 1e-7;
+
+    // repair passes per seam
+    private static final int MAX_REPAIR_PASSES = 5;
+
+    private final Map<String, TourOptimizer> optimizers;
+    private final String delegateName;
+    private final ForkJoinPool pool;
+    private final int clusterSize;
+    private final int repairWindow;
+
+    public ClusteredOptimizer(Map<String, TourOptimizer> optimizers,
+            @Value("${optimizer.decomposition.delegate:clarkeWrightOptimizer}") String delegateName,
+            ForkJoinPool optimizationPool,
+            @Value("${optimizer.decomposition.cluster-size:500}") int clusterSize,
+            @Value("${optimizer.decomposition.repair-window:50}") int repairWindow) {
+        this.optimizers = optimizers;
+        this.delegateName = delegateName;
+        this.pool = optimizationPool;
+        this.clusterSize = Math.max(1, clusterSize);
+        this.repairWindow = repairWindow;
+    }
+
+    private TourOptimizer delegate() {
+        TourOptimizer delegate = optimizers.get(delegateName);
+        if (delegate == null || delegate == this)
+            throw new IllegalStateException("No TourOptimizer bean named " + delegateName);
+        return delegate;
+    }
+
+    @Override
+    public List<Delivery> calculateOptimalTour(List<Delivery> deliveries, Warehouse warehouse) {
+        return decompose(deliveries, warehouse, OptimizationBudget.unlimited());
+    }
+
+    /**
+     * The shared matrix is not used: each cluster gets its own.
+     */
+    @Override
+    public List<Delivery> calculateOptimalTour(List<Delivery> deliveries, Warehouse warehouse,
+            DistanceMatrix matrix, OptimizationBudget budget) {
+        return decompose(deliveries, warehouse, budget);
+    }
+
+    private List<Delivery> decompose(List<Delivery> deliveries, Warehouse warehouse, OptimizationBudget budget) {
+        if (deliveries == null || deliveries.isEmpty())
+            return new ArrayList<>();
+        TourOptimizer delegate = delegate();
+        if (deliveries.size() <= clusterSize)
+            return solve(delegate, deliveries, warehouse, budget);
+
+        double[] center = center(deliveries, warehouse);
+        List<List<Delivery>> clusters = sweep(deliveries, center);
+
+        List<ForkJoinTask<List<Delivery>>> tasks = new ArrayList<>(clusters.size());
+        for (List<Delivery> cluster : clusters)
+            tasks.add(pool.submit(() -> solve(delegate, cluster, warehouse, budget)));
+        List<List<Delivery>> tours = new ArrayList<>(clusters.size());
+        for (int c = 0; c < clusters.size(); c++) {
+            List<Delivery> tour;
+            try {
+                tour = tasks.get(c).join();
+            } catch (RuntimeException ex) {
+                tour = clusters.get(c); // keep the sweep order of a failed cluster
+            }
+            tours.add(tour);
+        }
+
+        return stitch(tours, center);
+    }
+
+    /**
+     * Optimize one cluster; results that are not a permutation of the cluster
+     * fall back to its sweep order.
+     */
+    private static List<Delivery> solve(TourOptimizer delegate, List<Delivery> cluster, Warehouse warehouse,
+            OptimizationBudget budget) {
+        if (budget.isExhausted())
+            return cluster;
+        List<Delivery> tour = delegate.calculateOptimalTour(cluster, warehouse,
+                DistanceMatrix.of(warehouse, cluster), budget);
+        if (tour == null || tour.size() != cluster.size())
+            return cluster;
+        Set<Delivery> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        seen.addAll(cluster);
+        for (Delivery d : tour) {
+            if (!seen.remove(d))
+                return cluster;
+        }
+        return tour;
+    }
+
+    private static double[] center(List<Delivery> deliveries, Warehouse warehouse) {
+        if (warehouse != null)
+            return new double[] { warehouse.getLatitude(), warehouse.getLongitude() };
+        double lat = 0.0;
+        double lon = 0.0;
+        for (Delivery d : deliveries) {
+            lat += d.getLatitude();
+            lon += d.getLongitude();
+        }
+        return new double[] { lat / deliveries.size(), lon / deliveries.size() };
+    }
+
+    /**
+     * Cut deliveries sorted by polar angle into clusters of (almost) equal
+     * size, starting right after the widest angular gap.
+     */
+    private List<List<Delivery>> sweep(List<Delivery> deliveries, double[] center) {
+        int n = deliveries.size();
+        double cosLat = Math.cos(Math.toRadians(center[0]));
+        double[] angle = new double[n];
+        Integer[] byAngle = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            Delivery d = deliveries.get(i);
+            angle[i] = Math.atan2(d.getLatitude() - center[0], (d.getLongitude() - center[1]) * cosLat);
+            byAngle[i] = i;
+        }
+        Arrays.sort(byAngle, Comparator.comparingDouble(i -> angle[i]));
+
+        int start = 0;
+        double widest = angle[byAngle[0]] + 2 * Math.PI - angle[byAngle[n - 1]];
+        for (int k = 1; k < n; k++) {
+            double gap = angle[byAngle[k]] - angle[byAngle[k - 1]];
+            if (gap > widest) {
+                widest = gap;
+                start = k;
+            }
+        }
+
+        int count = (n + clusterSize - 1) / clusterSize;
+        List<List<Delivery>> clusters = new ArrayList<>(count);
+        for (int c = 0; c < count; c++) {
+            int from = (int) ((long) n * c / count);
+            int to = (int) ((long) n * (c + 1) / count);
+            List<Delivery> cluster = new ArrayList<>(to - from);
+            for (int k = from; k < to; k++)
+                cluster.add(deliveries.get(byAngle[(start + k) % n]));
+            clusters.add(cluster);
+        }
+        return clusters;
+    }
+
+    /**
+     * Concatenate cluster tours, reversing a tour when its last delivery is
+     * closer to the previous cluster's end than its first one, then repair
+     * the seams.
+     */
+    private List<Delivery> stitch(List<List<Delivery>> tours, double[] center) {
+        int n = 0;
+        for (List<Delivery> tour : tours)
+            n += tour.size();
+
+        // positions 0 and n + 1 are the tour's start/end point; coordinates
+        // are kept in radians with the cosine of the latitude, computed once
+        // per stop
+        Delivery[] stops = new Delivery[n + 2];
+        double[] lat = new double[n + 2];
+        double[] lon = new double[n + 2];
+        double[] cos = new double[n + 2];
+        lat[0] = lat[n + 1] = Math.toRadians(center[0]);
+        lon[0] = lon[n + 1] = Math.toRadians(center[1]);
+        cos[0] = cos[n + 1] = Math.cos(lat[0]);
+
+        int[] seams = new int[tours.size()];
+        int p = 1;
+        for (int c = 0; c < tours.size(); c++) {
+            List<Delivery> tour = tours.get(c);
+            if (tour.isEmpty())
+                continue;
+            Delivery first = tour.get(0);
+            Delivery last = tour.get(tour.size() - 1);
+            boolean reversed = d(lat, lon, cos, p - 1, last) < d(lat, lon, cos, p - 1, first);
+            seams[c] = p;
+            for (int k = 0; k < tour.size(); k++) {
+                Delivery d = tour.get(reversed ? tour.size() - 1 - k : k);
+                stops[p] = d;
+                lat[p] = Math.toRadians(d.getLatitude());
+                lon[p] = Math.toRadians(d.getLongitude());
+                cos[p] = Math.cos(lat[p]);
+                p++;
+            }
+        }
+
+        if (repairWindow > 0) {
+            for (int c = 1; c < seams.length; c++) {
+                if (seams[c] > 0)
+                    repair(stops, lat, lon, cos, Math.max(1, seams[c] - repairWindow),
+                            Math.min(n, seams[c] + repairWindow - 1));
+            }
+        }
+
+        List<Delivery> result = new ArrayList<>(n);
+        for (int k = 1; k <= n; k++)
+            result.add(stops[k]);
+        return result;
+    }
+
+    /**
+     * 2-opt on the path between positions lo and hi; the stops at lo - 1 and
+     * hi + 1 stay in place.
+     */
+    private static void repair(Delivery[] stops, double[] lat, double[] lon, double[] cos, int lo, int hi) {
+        for (int pass = 0; pass < MAX_REPAIR_PASSES; pass++) {
+            boolean improved = false;
+            for (int i = lo; i < hi; i++) {
+                double before = d(lat, lon, cos, i - 1, i);
+                for (int j = i + 1; j <= hi; j++) {
+                    double delta = d(lat, lon, cos, i - 1, j) + d(lat, lon, cos, i, j + 1) - before
+                            - d(lat, lon, cos, j, j + 1);
+                    if (delta < -EPSILON) {
+                        reverse(stops, lat, lon, cos, i, j);
+                        before = d(lat, lon, cos, i - 1, i);
+                        improved = true;
+                    }
+                }
+            }
+            if (!improved)
+                return;
+        }
+    }
+
+    private static double d(double[] lat, double[] lon, double[] cos, int a, int b) {
+        return DistanceUtils.haversineRadians(lat[a], lon[a], cos[a], lat[b], lon[b], cos[b]);
+    }
+
+    private static double d(double[] lat, double[] lon, double[] cos, int a, Delivery b) {
+        double phi = Math.toRadians(b.getLatitude());
+        return DistanceUtils.haversineRadians(lat[a], lon[a], cos[a], phi, Math.toRadians(b.getLongitude()),
+                Math.cos(phi));
+    }
+
+    private static void reverse(Delivery[] stops, double[] lat, double[] lon, double[] cos, int i, int j) {
+        for (; i < j; i++, j--) {
+            Delivery s = stops[i];
+            stops[i] = stops[j];
+            stops[j] = s;
+            double t = lat[i];
+            lat[i] = lat[j];
+            lat[j] = t;
+            t = lon[i];
+            lon[i] = lon[j];
+            lon[j] = t;
+            t = cos[i];
+            cos[i] = cos[j];
+            cos[j] = t;
+        }
+    }
+}
@@ -1,17 +1,33 @@
 package com.example.deliveryoptimizer.service.impl;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.DeliveryStatus;
 import com.example.deliveryoptimizer.repository.DeliveryRepository;
 import com.example.deliveryoptimizer.service.DeliveryService;
 import com.example.deliveryoptimizer.dto.DeliveryDto;
+import com.example.deliveryoptimizer.dto.IngestReport;
 import com.example.deliveryoptimizer.mapper.DeliveryMapper;
+import com.example.deliveryoptimizer.mapper.DeliveryRecordReader;
+import com.example.deliveryoptimizer.util.DistanceUtils;
+import com.example.deliveryoptimizer.util.GeoCells;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Simple implementation of {@link DeliveryService} that delegates to
@@ -22,10 +38,15 @@ import java.util.Optional;
 public class DeliveryServiceImpl implements DeliveryService {
 
   private final DeliveryRepository deliveryRepository;
+  private final TransactionTemplate transactionTemplate;
+  private final int ingestBatchSize;
 
   // Constructor-style injection (suitable for XML wiring)
-  public DeliveryServiceImpl(DeliveryRepository deliveryRepository) {
+  public DeliveryServiceImpl(DeliveryRepository deliveryRepository, TransactionTemplate transactionTemplate,
+      @Value("${deliveries.ingest.batch-size:500}") int ingestBatchSize) {
     this.deliveryRepository = deliveryRepository;
+    this.transactionTemplate = transactionTemplate;
+    this.ingestBatchSize = Math.max(1, ingestBatchSize);
   }
 
   @Override
@@ -49,15 +70,141 @@ public class DeliveryServiceImpl implements DeliveryService {
   }
 
   @Override
-  public Page<DeliveryDto> getDeliveriesByStatus(String status, int page, int size) {
-    Page<Delivery> deliveries = deliveryRepository.findByStatus(status, PageRequest.of(page, size));
-    // Convert Page<Delivery> to Page<DeliveryDto> using map()
-    return deliveries.map(DeliveryMapper::toDto);
+  public Page<DeliveryDto> getDeliveriesByStatus(DeliveryStatus status, int page, int size) {
+    // projected straight into DTOs: no entities, no association loads
+    return deliveryRepository.findByStatusAsDto(status, PageRequest.of(page, size));
   }
 
   @Override
   public Page<DeliveryDto> getAllDeliveries(int page, int size) {
-    Page<Delivery> deliveries = deliveryRepository.findAll(PageRequest.of(page, size));
-    return deliveries.map(DeliveryMapper::toDto);
+    return deliveryRepository.findAllAsDto(PageRequest.of(page, size));
+  }
+
+  @Override
+  public Slice<DeliveryDto> getDeliveriesAfter(DeliveryStatus status, Long afterId, int size) {
+    long after = afterId != null ? afterId : Long.MIN_VALUE;
+    PageRequest first = PageRequest.of(0, Math.max(1, size));
+    return status != null
+        ? deliveryRepository.findByStatusAfterAsDto(status, after, first)
+        : deliveryRepository.findAfterAsDto(after, first);
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public void exportDeliveries(DeliveryStatus status, Consumer<DeliveryDto> consumer) {
+    try (Stream<DeliveryDto> rows = status != null
+        ? deliveryRepository.streamByStatusAsDto(status)
+        : deliveryRepository.streamAllAsDto()) {
+      rows.forEach(consumer);
+    }
+  }
+
+  @Override
+  public IngestReport ingestDeliveries(DeliveryRecordReader reader) throws IOException {
+    IngestReport report = new IngestReport();
+    List<Delivery> valid = new ArrayList<>(ingestBatchSize);
+    IngestReport.Batch batch = null;
+    int records = 0;
+    DeliveryRecordReader.Record record;
+    while ((record = reader.next()) != null) {
+      if (batch == null)
+        batch = new IngestReport.Batch(report.getBatches().size(), record.getLine());
+      batch.setLastLine(record.getLine());
+      records++;
+      String error = record.getError() != null ? record.getError() : validate(record.getDelivery());
+      if (error != null) {
+        batch.getErrors().add("line " + record.getLine() + ": " + error);
+        batch.setRejected(batch.getRejected() + 1);
+      } else {
+        Delivery delivery = DeliveryMapper.toEntity(record.getDelivery());
+        // ids are always allocated here, an upload cannot overwrite rows
+        delivery.setId(null);
+        if (delivery.getStatus() == null)
+          delivery.setStatus(DeliveryStatus.PENDING);
+        valid.add(delivery);
+      }
+      if (records == ingestBatchSize) {
+        insertBatch(report, batch, valid);
+        batch = null;
+        records = 0;
+      }
+    }
+    if (batch != null)
+      insertBatch(report, batch, valid);
+    return report;
+  }
+
+  private void insertBatch(IngestReport report, IngestReport.Batch batch, List<Delivery> valid) {
+    if (!valid.isEmpty()) {
+      try {
+        transactionTemplate.executeWithoutResult(tx -> deliveryRepository.saveAll(valid));
+        batch.setInserted(valid.size());
+      } catch (RuntimeException ex) {
+        batch.setRejected(batch.getRejected() + valid.size());
+        Throwable cause = NestedExceptionUtils.getMostSpecificCause(ex);
+        batch.getErrors().add("batch rolled back: " + cause.getMessage());
+      }
+    }
+    report.setReceived(report.getReceived() + batch.getInserted() + batch.getRejected());
+    report.setInserted(report.getInserted() + batch.getInserted());
+    report.setRejected(report.getRejected() + batch.getRejected());
+    report.getBatches().add(batch);
+    valid.clear();
+  }
+
+  @Override
+  public List<DeliveryDto> findNearby(double latitude, double longitude, double radiusMeters,
+      DeliveryStatus status) {
+    double[] box = GeoCells.boundingBox(latitude, longitude, radiusMeters);
+    List<DeliveryDto> candidates = deliveryRepository.findInBoxAsDto(box, status);
+    List<Map.Entry<Double, DeliveryDto>> nearby = new ArrayList<>();
+    DistanceUtils.Origin origin = new DistanceUtils.Origin(latitude, longitude);
+    for (DeliveryDto d : candidates) {
+      double meters = origin.distanceTo(d.getLatitude(), d.getLongitude());
+      if (meters <= radiusMeters)
+        nearby.add(Map.entry(meters, d));
+    }
+    nearby.sort(Map.Entry.comparingByKey());
+    List<DeliveryDto> result = new ArrayList<>(nearby.size());
+    for (Map.Entry<Double, DeliveryDto> e : nearby)
+      result.add(e.getValue());
+    return result;
+  }
+
+  @Override
+  public List<DeliveryDto> findWithin(double minLatitude, double maxLatitude, double minLongitude,
+      double maxLongitude, DeliveryStatus status) {
+    double[] box = { minLatitude, maxLatitude, minLongitude, maxLongitude };
+    return deliveryRepository.findInBoxAsDto(box, status);
+  }
+
+  @Override
+  public Map<DeliveryStatus, Long> countDeliveriesByStatus() {
+    Map<DeliveryStatus, Long> counts = new EnumMap<>(DeliveryStatus.class);
+    for (DeliveryStatus status : DeliveryStatus.values())
+      counts.put(status, 0L);
+    for (Object[] row : deliveryRepository.countByStatus())
+      counts.put((DeliveryStatus) row[0], (Long) row[1]);
+    return counts;
+  }
+
+  /**
+   * Reason the delivery cannot be stored, or null if it is valid.
+   */
+  static String validate(DeliveryDto d) {
+    if (!(d.getLatitude() >= -90 && d.getLatitude() <= 90))
+      return "latitude out of range: " + d.getLatitude();
+    if (!(d.getLongitude() >= -180 && d.getLongitude() <= 180))
+      return "longitude out of range: " + d.getLongitude();
+    if (!(d.getWeight() >= 0) || Double.isInfinite(d.getWeight()))
+      return "invalid weight: " + d.getWeight();
+    if (!(d.getVolume() >= 0) || Double.isInfinite(d.getVolume()))
+      return "invalid volume: " + d.getVolume();
+    try {
+      DeliveryStatus.parse(d.getStatus());
+    } catch (IllegalArgumentException ex) {
+      return ex.getMessage();
+    }
+    return null;
   }
 }
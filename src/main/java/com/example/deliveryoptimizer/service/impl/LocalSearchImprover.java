@@ -0,0 +1,305 @@
+package com.example.deliveryoptimizer.service.impl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.deliveryoptimizer.service.OptimizationBudget;
+import com.example.deliveryoptimizer.service.TourImprover;
+import com.example.deliveryoptimizer.util.DistanceMatrix;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Local search improver combining 2-opt and Or-opt (segments of 1 to 3
+ * deliveries moved elsewhere, possibly reversed; length 1 is a relocate).
+ *
+ * - Moves are only tried towards each delivery's k nearest neighbours
+ * - Don't-look bits: a delivery is re-examined only after one of its tour
+ * edges changed (work queue of "active" deliveries)
+ * - The tour is a cycle over matrix points (warehouse = point 0) kept in an
+ * int array plus a position index; all buffers are allocated once per call so
+ * the search loop itself does not allocate
+ * - Stops when no active delivery is left or the budget is exhausted
+ * (deadline reached or cancelled)
+ * - The neighbour lists are kept per matrix instance, so repeated calls on
+ * the same matrix (time slices, restarts) do not recompute them, even when
+ * concurrent requests improve tours on other matrices in between
+ */
+@Service
+public class LocalSearchImprover implements TourImprover {
+
+    // minimum gain (meters) for a move to be applied; avoids cycling on rounding
+    private static final double EPSILON = 1e-7;
+
+    // longest segment moved by Or-opt
+    private static final int MAX_SEGMENT = 3;
+
+    // the budget is polled once every (mask + 1) examined deliveries
+    private static final int TIME_CHECK_MASK = 15;
+
+    private final int neighbors;
+
+    // neighbour lists by matrix; DistanceMatrix has identity equality and is
+    // weakly referenced, so a finished request's matrix can be collected
+    private final Map<DistanceMatrix, int[]> neighborLists = Collections.synchronizedMap(new WeakHashMap<>());
+
+    public LocalSearchImprover(@Value("${optimizer.local-search.neighbors:10}") int neighbors) {
+        this.neighbors = neighbors;
+    }
+
+    @Override
+    public boolean improve(int[] order, DistanceMatrix matrix, OptimizationBudget budget) {
+        if (order.length < 3)
+            return true;
+        return new Search(order, matrix, neighborLists(matrix), budget).run();
+    }
+
+    private int[] neighborLists(DistanceMatrix matrix) {
+        int[] cached = neighborLists.get(matrix);
+        if (cached != null)
+            return cached;
+        // computed outside the lock; a concurrent first call on the same
+        // matrix computes the same lists and the first one stored wins
+        int[] nn = matrix.nearestNeighbors(neighbors);
+        cached = neighborLists.putIfAbsent(matrix, nn);
+        return cached != null ? cached : nn;
+    }
+
+    /**
+     * State of one improvement run.
+     */
+    private static final class Search {
+        private final int[] order;
+        private final DistanceMatrix matrix;
+        private final int[] nn;
+        private final int k;
+        private final OptimizationBudget budget;
+
+        private final int m;
+        private final int[] tour;
+        private final int[] pos;
+        private final int[] queue;
+        private final boolean[] queued;
+        private final int[] segment = new int[MAX_SEGMENT];
+        private int head;
+        private int count;
+        private int examined;
+
+        Search(int[] order, DistanceMatrix matrix, int[] nn, OptimizationBudget budget) {
+            this.order = order;
+            this.matrix = matrix;
+            this.nn = nn;
+            this.k = nn.length / order.length;
+            this.budget = budget;
+            this.m = order.length + 1;
+            this.tour = new int[m];
+            this.pos = new int[m];
+            this.queue = new int[m];
+            this.queued = new boolean[m];
+        }
+
+        /**
+         * @return true if a local optimum was reached
+         */
+        boolean run() {
+            // point 0 is the warehouse, delivery i is point i + 1
+            tour[0] = 0;
+            for (int i = 0; i < order.length; i++) {
+                tour[i + 1] = order[i] + 1;
+            }
+            for (int p = 0; p < m; p++) {
+                pos[tour[p]] = p;
+            }
+            for (int p = 1; p < m; p++) {
+                push(tour[p]);
+            }
+
+            while (count > 0) {
+                if ((examined++ & TIME_CHECK_MASK) == 0 && budget.isExhausted())
+                    break;
+                int a = poll();
+                if (twoOpt(a) || orOpt(a))
+                    push(a);
+            }
+
+            // rotate back so the tour starts right after the warehouse
+            int start = pos[0];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = tour[(start + 1 + i) % m] - 1;
+            }
+            return count == 0;
+        }
+
+        private boolean twoOpt(int a) {
+            for (int dir = 0; dir < 2; dir++) {
+                int b = dir == 0 ? succ(a) : pred(a);
+                double dab = d(a, b);
+                for (int t = 0; t < k; t++) {
+                    int c = neighbor(a, t);
+                    double dac = d(a, c);
+                    if (dac >= dab - EPSILON)
+                        break; // neighbours are sorted: no further gain possible
+                    int e = dir == 0 ? succ(c) : pred(c);
+                    if (c == b || e == a)
+                        continue;
+                    double delta = dac + d(b, e) - dab - d(c, e);
+                    if (delta < -EPSILON) {
+                        // forward: a b .. c e -> a c .. b e ; backward: e c .. b a -> e b .. c a
+                        if (dir == 0)
+                            reverse(pos[b], pos[c]);
+                        else
+                            reverse(pos[c], pos[b]);
+                        push(b);
+                        push(c);
+                        push(e);
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private boolean orOpt(int a) {
+            int ps = pos[a];
+            for (int s = 1; s <= MAX_SEGMENT && s <= m - 3; s++) {
+                int last = tour[(ps + s - 1) % m];
+                int p = pred(a);
+                int nx = succ(last);
+                double removeGain = d(p, a) + d(last, nx) - d(p, nx);
+                if (removeGain <= EPSILON)
+                    continue;
+                for (int t = 0; t < k; t++) {
+                    int c = neighbor(a, t);
+                    double dac = d(a, c);
+                    if (dac >= removeGain - EPSILON)
+                        break;
+                    if (inSegment(c, ps, s))
+                        continue;
+
+                    // c, a .. last, e
+                    int e = succ(c);
+                    if (e != a && dac + d(last, e) - d(c, e) - removeGain < -EPSILON) {
+                        moveSegment(ps, s, c, false);
+                        pushMoved(p, nx, a, last, c, e);
+                        return true;
+                    }
+                    // f, last .. a, c
+                    int f = pred(c);
+                    if (f != last && d(f, last) + dac - d(f, c) - removeGain < -EPSILON) {
+                        moveSegment(ps, s, f, true);
+                        pushMoved(p, nx, a, last, c, f);
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private void pushMoved(int p, int nx, int a, int last, int c, int other) {
+            push(p);
+            push(nx);
+            push(last);
+            push(c);
+            push(other);
+        }
+
+        private boolean inSegment(int city, int ps, int s) {
+            return (pos[city] - ps + m) % m < s;
+        }
+
+        /**
+         * Reverse the tour between positions i and j (inclusive, going
+         * forward). The shorter side of the cycle is reversed; both give the
+         * same tour.
+         */
+        private void reverse(int i, int j) {
+            int len = (j - i + m) % m + 1;
+            if (2 * len > m) {
+                int ni = (j + 1) % m;
+                j = (i - 1 + m) % m;
+                i = ni;
+                len = m - len;
+            }
+            for (int step = 0; step < len / 2; step++) {
+                int x = tour[i];
+                int y = tour[j];
+                tour[i] = y;
+                pos[y] = i;
+                tour[j] = x;
+                pos[x] = j;
+                i = i + 1 == m ? 0 : i + 1;
+                j = j == 0 ? m - 1 : j - 1;
+            }
+        }
+
+        /**
+         * Move the s cities starting at position ps right after city x
+         * (optionally reversed), shifting whichever side of the cycle between
+         * them is shorter.
+         */
+        private void moveSegment(int ps, int s, int x, boolean reversed) {
+            for (int i = 0; i < s; i++) {
+                segment[i] = tour[(ps + i) % m];
+            }
+            int from = (ps + s) % m;
+            int ahead = (pos[x] - from + m) % m + 1; // cities from the segment's successor up to x
+            int behind = m - s - ahead; // cities after x up to the segment's predecessor
+            int start;
+            if (ahead <= behind) {
+                for (int i = 0; i < ahead; i++) {
+                    set((ps + i) % m, tour[(from + i) % m]);
+                }
+                start = (ps + ahead) % m;
+            } else {
+                for (int i = 0; i < behind; i++) {
+                    set((ps + s - 1 - i + m) % m, tour[(ps - 1 - i + m) % m]);
+                }
+                start = (pos[x] + 1) % m;
+            }
+            for (int i = 0; i < s; i++) {
+                set((start + i) % m, reversed ? segment[s - 1 - i] : segment[i]);
+            }
+        }
+
+        private void set(int p, int city) {
+            tour[p] = city;
+            pos[city] = p;
+        }
+
+        private int succ(int city) {
+            int p = pos[city] + 1;
+            return tour[p == m ? 0 : p];
+        }
+
+        private int pred(int city) {
+            int p = pos[city];
+            return tour[p == 0 ? m - 1 : p - 1];
+        }
+
+        private int neighbor(int city, int t) {
+            return nn[(city - 1) * k + t] + 1;
+        }
+
+        private double d(int x, int y) {
+            return matrix.get(x, y);
+        }
+
+        private void push(int city) {
+            if (city == 0 || queued[city])
+                return; // the warehouse is never examined on its own
+            queued[city] = true;
+            queue[(head + count) % m] = city;
+            count++;
+        }
+
+        private int poll() {
+            int city = queue[head];
+            head = (head + 1) % m;
+            count--;
+            queued[city] = false;
+            return city;
+        }
+    }
+}
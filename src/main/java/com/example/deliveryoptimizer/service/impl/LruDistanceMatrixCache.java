@@ -0,0 +1,175 @@
+package com.example.deliveryoptimizer.service.impl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.Warehouse;
+import com.example.deliveryoptimizer.service.DistanceMatrixCache;
+import com.example.deliveryoptimizer.util.DistanceMatrix;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link DistanceMatrixCache} holding the last matrix built for each warehouse
+ * position, bounded by {@code optimizer.matrix-cache.max-mb}.
+ *
+ * - A request for the exact same points returns the cached matrix as is
+ * - Otherwise a new matrix is built that copies the cells between deliveries
+ * already cached with the same id and coordinates and computes the rest; it
+ * replaces the cached one (rows of deliveries no longer requested are
+ * dropped)
+ * - Deliveries without id are always recomputed
+ * - Warehouses are evicted least recently used first once the memory bound
+ * is exceeded; a matrix larger than the bound is not cached
+ */
+@Service
+public class LruDistanceMatrixCache implements DistanceMatrixCache {
+
+    // rough per-delivery overhead of the id index (entry, boxed key and value)
+    private static final long INDEX_BYTES_PER_POINT = 64;
+
+    private final long maxBytes;
+
+    // access-ordered: iteration starts at the least recently used warehouse
+    private final LinkedHashMap<DepotKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+
+    public LruDistanceMatrixCache(@Value("${optimizer.matrix-cache.max-mb:256}") long maxMegabytes) {
+        this.maxBytes = Math.max(0, maxMegabytes) * 1024 * 1024;
+    }
+
+    @Override
+    public DistanceMatrix matrix(Warehouse warehouse, List<Delivery> deliveries) {
+        int n = deliveries.size();
+        double[] lat = new double[n + 1];
+        double[] lon = new double[n + 1];
+        Long[] ids = new Long[n + 1];
+        lat[0] = warehouse != null ? warehouse.getLatitude() : 0.0;
+        lon[0] = warehouse != null ? warehouse.getLongitude() : 0.0;
+        for (int i = 0; i < n; i++) {
+            Delivery d = deliveries.get(i);
+            lat[i + 1] = d.getLatitude();
+            lon[i + 1] = d.getLongitude();
+            ids[i + 1] = d.getId();
+        }
+        if (maxBytes == 0)
+            return DistanceMatrix.of(lat, lon, false);
+
+        DepotKey key = new DepotKey(lat[0], lon[0]);
+        Entry cached;
+        int[] reuse = new int[n + 1];
+        boolean identical;
+        synchronized (this) {
+            cached = entries.get(key);
+            identical = cached != null && cached.lookup(ids, lat, lon, reuse);
+        }
+        if (identical)
+            return cached.matrix;
+
+        DistanceMatrix matrix = cached != null
+                ? DistanceMatrix.of(lat, lon, false, cached.matrix, reuse)
+                : DistanceMatrix.of(lat, lon, false);
+        put(key, new Entry(ids, lat, lon, matrix));
+        return matrix;
+    }
+
+    @Override
+    public synchronized void invalidate(Long deliveryId) {
+        if (deliveryId == null)
+            return;
+        for (Entry entry : entries.values())
+            entry.index.remove(deliveryId);
+    }
+
+    @Override
+    public synchronized long memoryBytes() {
+        return usedBytes;
+    }
+
+    private synchronized void put(DepotKey key, Entry entry) {
+        Entry previous = entries.remove(key);
+        if (previous != null)
+            usedBytes -= previous.bytes;
+        if (entry.bytes > maxBytes)
+            return;
+        entries.put(key, entry);
+        usedBytes += entry.bytes;
+        Iterator<Entry> lru = entries.values().iterator();
+        while (usedBytes > maxBytes && lru.hasNext()) {
+            usedBytes -= lru.next().bytes;
+            lru.remove();
+        }
+    }
+
+    private static final class DepotKey {
+        private final double lat;
+        private final double lon;
+
+        DepotKey(double lat, double lon) {
+            this.lat = lat;
+            this.lon = lon;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof DepotKey))
+                return false;
+            DepotKey other = (DepotKey) o;
+            return Double.compare(lat, other.lat) == 0 && Double.compare(lon, other.lon) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Double.hashCode(lat) * 31 + Double.hashCode(lon);
+        }
+    }
+
+    private static final class Entry {
+        private final double[] lat;
+        private final double[] lon;
+        // delivery id -> point index in the matrix; invalidated ids are removed
+        private final Map<Long, Integer> index;
+        private final DistanceMatrix matrix;
+        private final long bytes;
+
+        Entry(Long[] ids, double[] lat, double[] lon, DistanceMatrix matrix) {
+            this.lat = lat;
+            this.lon = lon;
+            this.matrix = matrix;
+            this.index = new HashMap<>();
+            for (int i = 1; i < ids.length; i++) {
+                if (ids[i] != null)
+                    index.put(ids[i], i);
+            }
+            this.bytes = matrix.memoryBytes() + (long) lat.length * 2 * Double.BYTES
+                    + (long) index.size() * INDEX_BYTES_PER_POINT;
+        }
+
+        /**
+         * Fill reuse[i] with the cached index of point i (-1 when it must be
+         * computed).
+         *
+         * @return true if the points are exactly the cached ones, in order
+         */
+        boolean lookup(Long[] ids, double[] qLat, double[] qLon, int[] reuse) {
+            reuse[0] = 0; // same key: same warehouse position
+            boolean identical = qLat.length == lat.length;
+            for (int i = 1; i < ids.length; i++) {
+                Integer cached = ids[i] != null ? index.get(ids[i]) : null;
+                if (cached != null && lat[cached] == qLat[i] && lon[cached] == qLon[i]) {
+                    reuse[i] = cached;
+                    identical &= cached == i;
+                } else {
+                    reuse[i] = -1;
+                    identical = false;
+                }
+            }
+            return identical;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.deliveryoptimizer.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.deliveryoptimizer.entity.Warehouse;
+import com.example.deliveryoptimizer.service.DepotDistanceStore;
+import com.example.deliveryoptimizer.util.DistanceUtils;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link DepotDistanceStore} backed by a memory-mapped file
+ * ({@code optimizer.depot-store.path}), so legs survive restarts and are
+ * shared by every process of the host that maps the same file. Without a path
+ * legs are simply computed.
+ *
+ * The file is a fixed-size open-addressing hash table filled lazily:
+ * - Header: magic and capacity (slots)
+ * - Slot (32 bytes): warehouse and stop coordinates quantized to 1e-7
+ * degrees (~1 cm) as four ints, the distance as a double, and a check word
+ * derived from all of them (0 = empty slot)
+ * - Writers store the fields then publish the check word; readers only
+ * accept a slot whose check word matches its content, so a slot torn by a
+ * concurrent writer (thread or process) is a miss, never a wrong distance
+ * - Lookups probe at most {@link #MAX_PROBES} slots; when they are all taken
+ * the leg is computed and not stored
+ */
+@Service
+public class MappedDepotDistanceStore implements DepotDistanceStore {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedDepotDistanceStore.class);
+
+    private static final long MAGIC = 0x4445504F544C4547L; // "DEPOTLEG"
+    private static final int HEADER_BYTES = 64;
+    private static final int SLOT_BYTES = 32;
+    private static final int MAX_PROBES = 16;
+    private static final double QUANTUM = 1e7;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class,
+            ByteOrder.nativeOrder());
+
+    // null when no file is configured (or it could not be mapped)
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+
+    public MappedDepotDistanceStore(@Value("${optimizer.depot-store.path:}") String path,
+            @Value("${optimizer.depot-store.capacity:1048576}") int capacity) {
+        int slots = Math.min(Math.max(capacity, 1), (Integer.MAX_VALUE - HEADER_BYTES) / SLOT_BYTES);
+        MappedByteBuffer mapped = null;
+        if (path != null && !path.isBlank()) {
+            try {
+                mapped = map(Paths.get(path), slots);
+            } catch (IOException | RuntimeException ex) {
+                log.warn("Depot distance store {} unavailable, legs will be computed: {}", path, ex.getMessage());
+            }
+        }
+        this.buffer = mapped;
+        this.capacity = mapped != null ? (int) mapped.getLong(8) : 0;
+    }
+
+    private static MappedByteBuffer map(Path path, int slots) throws IOException {
+        if (path.getParent() != null)
+            Files.createDirectories(path.getParent());
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            if (channel.size() >= HEADER_BYTES) {
+                // an existing store keeps its own capacity
+                MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+                header.order(ByteOrder.nativeOrder());
+                if (header.getLong(0) != MAGIC)
+                    throw new IOException("not a depot distance store");
+                long existing = header.getLong(8);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                        HEADER_BYTES + existing * SLOT_BYTES);
+                buffer.order(ByteOrder.nativeOrder());
+                return buffer;
+            }
+            // the mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_BYTES + (long) slots * SLOT_BYTES);
+            buffer.order(ByteOrder.nativeOrder());
+            buffer.putLong(8, slots);
+            buffer.putLong(0, MAGIC);
+            return buffer;
+        }
+    }
+
+    @Override
+    public double distance(Warehouse warehouse, double latitude, double longitude) {
+        double wLat = warehouse.getLatitude();
+        double wLon = warehouse.getLongitude();
+        if (buffer == null)
+            return DistanceUtils.haversine(wLat, wLon, latitude, longitude);
+
+        int k0 = quantize(wLat);
+        int k1 = quantize(wLon);
+        int k2 = quantize(latitude);
+        int k3 = quantize(longitude);
+        long hash = mix(k0, k1, k2, k3);
+        int home = (int) Long.remainderUnsigned(hash, capacity);
+        int free = -1;
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int offset = HEADER_BYTES + ((home + probe) % capacity) * SLOT_BYTES;
+            long check = (long) LONGS.getAcquire(buffer, offset + 24);
+            if (check == 0) {
+                free = offset;
+                break; // keys are never removed: an empty slot ends the chain
+            }
+            int s0 = buffer.getInt(offset);
+            int s1 = buffer.getInt(offset + 4);
+            int s2 = buffer.getInt(offset + 8);
+            int s3 = buffer.getInt(offset + 12);
+            double meters = buffer.getDouble(offset + 16);
+            if (check != check(mix(s0, s1, s2, s3), meters))
+                continue; // torn by a concurrent writer
+            if (s0 == k0 && s1 == k1 && s2 == k2 && s3 == k3)
+                return meters;
+        }
+
+        double meters = DistanceUtils.haversine(wLat, wLon, latitude, longitude);
+        if (free >= 0) {
+            buffer.putInt(free, k0);
+            buffer.putInt(free + 4, k1);
+            buffer.putInt(free + 8, k2);
+            buffer.putInt(free + 12, k3);
+            buffer.putDouble(free + 16, meters);
+            LONGS.setRelease(buffer, free + 24, check(hash, meters));
+        }
+        return meters;
+    }
+
+    private static int quantize(double degrees) {
+        return (int) Math.round(degrees * QUANTUM);
+    }
+
+    private static long mix(int a, int b, int c, int d) {
+        long h = 0x9E3779B97F4A7C15L;
+        h = (h ^ (((long) a << 32) | (b & 0xFFFFFFFFL))) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 31) ^ (((long) c << 32) | (d & 0xFFFFFFFFL))) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 29);
+    }
+
+    private static long check(long hash, double meters) {
+        long check = (hash ^ Double.doubleToLongBits(meters)) * 0xD6E8FEB86659FD93L;
+        return check != 0 ? check : 1;
+    }
+}
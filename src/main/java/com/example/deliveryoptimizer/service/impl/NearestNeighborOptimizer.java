@@ -5,8 +5,12 @@ import org.springframework.stereotype.Service;
 import com.example.deliveryoptimizer.entity.Delivery;
 import com.example.deliveryoptimizer.entity.Warehouse;
 import com.example.deliveryoptimizer.service.TourOptimizer;
+import com.example.deliveryoptimizer.util.DistanceMatrix;
+import com.example.deliveryoptimizer.util.SpatialGrid;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -19,7 +23,10 @@ import java.util.List;
  * to the current point and mark it visited; append it to the result list.
  * - Return the ordered list of deliveries. (Returning to warehouse is implicit)
  *
- * Complexity: O(n^2) in number of deliveries.
+ * Without a precomputed {@link DistanceMatrix} the nearest unvisited delivery
+ * is found through a {@link SpatialGrid}, so each step only looks at the
+ * cells around the current point (roughly O(n log n) overall for evenly
+ * spread deliveries). With a shared matrix the scan is O(n^2) table lookups.
  */
 @Service
 public class NearestNeighborOptimizer implements TourOptimizer {
@@ -30,36 +37,80 @@ public class NearestNeighborOptimizer implements TourOptimizer {
             return new ArrayList<>();
         }
 
-        // copy to avoid mutating caller list
-        List<Delivery> remaining = new ArrayList<>(deliveries);
-        List<Delivery> route = new ArrayList<>(deliveries.size());
+        int n = deliveries.size();
+
+        // order the points by the tie-break rule (smaller id first, then input
+        // order) so the grid's "smaller index wins" tie-break matches tieBreak()
+        Integer[] byTieBreak = new Integer[n];
+        for (int i = 0; i < n; i++)
+            byTieBreak[i] = i;
+        Arrays.sort(byTieBreak, Comparator.comparing((Integer i) -> deliveries.get(i).getId(),
+                Comparator.nullsLast(Comparator.naturalOrder())));
+
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int k = 0; k < n; k++) {
+            Delivery d = deliveries.get(byTieBreak[k]);
+            lat[k] = d.getLatitude();
+            lon[k] = d.getLongitude();
+        }
+        SpatialGrid grid = new SpatialGrid(lat, lon);
+
+        List<Delivery> route = new ArrayList<>(n);
 
         // start point: warehouse coordinates
         double curLat = warehouse != null ? warehouse.getLatitude() : 0.0;
         double curLon = warehouse != null ? warehouse.getLongitude() : 0.0;
 
-        while (!remaining.isEmpty()) {
+        while (grid.size() > 0) {
+            int k = grid.nearest(curLat, curLon);
+            grid.remove(k);
+            route.add(deliveries.get(byTieBreak[k]));
+
+            // move current point to this delivery
+            curLat = lat[k];
+            curLon = lon[k];
+        }
+
+        return route;
+    }
+
+    @Override
+    public List<Delivery> calculateOptimalTour(List<Delivery> deliveries, Warehouse warehouse,
+            DistanceMatrix matrix) {
+        if (deliveries == null || deliveries.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        int n = deliveries.size();
+        boolean[] visited = new boolean[n];
+        List<Delivery> route = new ArrayList<>(n);
+
+        // start point: warehouse (point 0 of the matrix)
+        int cur = 0;
+
+        for (int step = 0; step < n; step++) {
             int bestIndex = -1;
             double bestDist = Double.POSITIVE_INFINITY;
 
-            for (int i = 0; i < remaining.size(); i++) {
-                Delivery d = remaining.get(i);
-                double dist = distance(curLat, curLon, d.getLatitude(), d.getLongitude());
+            // scan in input order so ties resolve exactly as before
+            for (int i = 0; i < n; i++) {
+                if (visited[i])
+                    continue;
+                double dist = matrix.get(cur, i + 1);
                 // deterministic tie-breaker: if equal distance, choose smaller id (if
                 // available)
-                if (dist < bestDist || (dist == bestDist && tieBreak(d, remaining.get(bestIndex)))) {
+                if (bestIndex < 0 || dist < bestDist
+                        || (dist == bestDist && tieBreak(deliveries.get(i), deliveries.get(bestIndex)))) {
                     bestDist = dist;
                     bestIndex = i;
                 }
             }
 
-            // pick the nearest
-            Delivery pick = remaining.remove(bestIndex);
-            route.add(pick);
-
-            // move current point to this delivery
-            curLat = pick.getLatitude();
-            curLon = pick.getLongitude();
+            // pick the nearest and move current point to it
+            visited[bestIndex] = true;
+            route.add(deliveries.get(bestIndex));
+            cur = bestIndex + 1;
         }
 
         return route;
@@ -82,20 +133,4 @@ public class NearestNeighborOptimizer implements TourOptimizer {
             return true;
         return cid.compareTo(bid) < 0;
     }
-
-    /**
-     * Haversine distance between two points in meters.
-     */
-    public static double distance(double lat1, double lon1, double lat2, double lon2) {
-        final int R = 6_371_000; // Earth radius in meters
-        double φ1 = Math.toRadians(lat1);
-        double φ2 = Math.toRadians(lat2);
-        double Δφ = Math.toRadians(lat2 - lat1);
-        double Δλ = Math.toRadians(lon2 - lon1);
-
-        double a = Math.sin(Δφ / 2) * Math.sin(Δφ / 2)
-                + Math.cos(φ1) * Math.cos(φ2) * Math.sin(Δλ / 2) * Math.sin(Δλ / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        return R * c;
-    }
 }
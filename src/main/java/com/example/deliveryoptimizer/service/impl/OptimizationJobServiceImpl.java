@@ -0,0 +1,88 @@
+package com.example.deliveryoptimizer.service.impl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+
+import com.example.deliveryoptimizer.dto.DeliveryDto;
+import com.example.deliveryoptimizer.service.OptimizationBudget;
+import com.example.deliveryoptimizer.service.OptimizationJob;
+import com.example.deliveryoptimizer.service.OptimizationJobService;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * In-memory {@link OptimizationJobService}: jobs share the optimization
+ * executor (and its queue bound) with the synchronous optimize endpoint, and
+ * finished jobs are forgotten {@code optimizer.jobs.retention-seconds} after
+ * they end.
+ */
+@Service
+public class OptimizationJobServiceImpl implements OptimizationJobService {
+
+    private final AsyncTaskExecutor executor;
+    private final long retentionMs;
+    private final Map<String, OptimizationJob> jobs = new ConcurrentHashMap<>();
+
+    public OptimizationJobServiceImpl(AsyncTaskExecutor optimizationExecutor,
+            @Value("${optimizer.jobs.retention-seconds:600}") long retentionSeconds) {
+        this.executor = optimizationExecutor;
+        this.retentionMs = retentionSeconds * 1000;
+    }
+
+    @Override
+    public OptimizationJob submit(OptimizationBudget budget, Function<OptimizationBudget, List<DeliveryDto>> task) {
+        purgeExpired();
+        OptimizationJob job = new OptimizationJob(UUID.randomUUID().toString(), budget);
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job, task));
+        } catch (TaskRejectedException ex) {
+            jobs.remove(job.getId());
+            throw ex;
+        }
+        return job;
+    }
+
+    private static void run(OptimizationJob job, Function<OptimizationBudget, List<DeliveryDto>> task) {
+        if (!job.start())
+            return; // cancelled while queued
+        try {
+            job.finish(task.apply(job.getBudget()));
+        } catch (RuntimeException ex) {
+            job.fail(ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName());
+        }
+    }
+
+    @Override
+    public OptimizationJob get(String id) {
+        OptimizationJob job = jobs.get(id);
+        if (job != null && expired(job, System.currentTimeMillis())) {
+            jobs.remove(id);
+            return null;
+        }
+        return job;
+    }
+
+    @Override
+    public OptimizationJob cancel(String id) {
+        OptimizationJob job = get(id);
+        if (job != null)
+            job.cancel();
+        return job;
+    }
+
+    private void purgeExpired() {
+        long now = System.currentTimeMillis();
+        jobs.values().removeIf(job -> expired(job, now));
+    }
+
+    private boolean expired(OptimizationJob job, long now) {
+        return job.isFinished() && now - job.getFinishedAt() > retentionMs;
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.deliveryoptimizer.service.impl;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.Warehouse;
+import com.example.deliveryoptimizer.service.OptimizationBudget;
+import com.example.deliveryoptimizer.service.TourImprover;
+import com.example.deliveryoptimizer.service.TourOptimizer;
+import com.example.deliveryoptimizer.util.DistanceMatrix;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Portfolio optimizer: races several strategies on a shared distance matrix
+ * and keeps the shortest tour.
+ *
+ * - Nearest neighbour and Clarke-Wright run once each
+ * - The remaining pool threads run randomized restarts: a randomized nearest
+ * neighbour construction followed by iterated local search (double-bridge
+ * perturbation + the registered improvers) until the budget is exhausted
+ * - Every candidate is evaluated with the same matrix; each new best tour is
+ * published to the budget
+ * - All strategies share one bounded ForkJoin pool, so concurrent requests
+ * cannot use more threads than configured
+ */
+@Service
+public class PortfolioOptimizer implements TourOptimizer {
+
+    // the randomized construction picks uniformly among this many nearest
+    // unvisited deliveries
+    private static final int RANDOM_CANDIDATES = 3;
+
+    // above this size the matrix is kept in single precision
+    private static final int SINGLE_PRECISION_THRESHOLD = 2000;
+
+    private final TourOptimizer nearestOptimizer;
+    private final TourOptimizer clarkeOptimizer;
+    private final List<TourImprover> improvers;
+    private final ForkJoinPool pool;
+    private final long restartBudgetMs;
+
+    public PortfolioOptimizer(@Qualifier("nearestNeighborOptimizer") TourOptimizer nearestOptimizer,
+            @Qualifier("clarkeWrightOptimizer") TourOptimizer clarkeOptimizer,
+            List<TourImprover> improvers, ForkJoinPool optimizationPool,
+            @Value("${optimizer.portfolio.time-budget-ms:1000}") long restartBudgetMs) {
+        this.nearestOptimizer = nearestOptimizer;
+        this.clarkeOptimizer = clarkeOptimizer;
+        this.improvers = improvers != null ? improvers : new ArrayList<>();
+        this.pool = optimizationPool;
+        this.restartBudgetMs = restartBudgetMs;
+    }
+
+    @Override
+    public List<Delivery> calculateOptimalTour(List<Delivery> deliveries, Warehouse warehouse) {
+        if (deliveries == null || deliveries.isEmpty())
+            return new ArrayList<>();
+        DistanceMatrix matrix = DistanceMatrix.of(warehouse, deliveries,
+                deliveries.size() > SINGLE_PRECISION_THRESHOLD);
+        return calculateOptimalTour(deliveries, warehouse, matrix);
+    }
+
+    @Override
+    public List<Delivery> calculateOptimalTour(List<Delivery> deliveries, Warehouse warehouse,
+            DistanceMatrix matrix) {
+        return calculateOptimalTour(deliveries, warehouse, matrix, OptimizationBudget.unlimited());
+    }
+
+    /**
+     * Without a deadline the restarts stop after
+     * {@code optimizer.portfolio.time-budget-ms}; the constructions always
+     * run to completion unless the budget is cancelled.
+     */
+    @Override
+    public List<Delivery> calculateOptimalTour(List<Delivery> deliveries, Warehouse warehouse,
+            DistanceMatrix matrix, OptimizationBudget budget) {
+        if (deliveries == null || deliveries.isEmpty())
+            return new ArrayList<>();
+        if (deliveries.size() < 3)
+            return nearestOptimizer.calculateOptimalTour(deliveries, warehouse, matrix);
+
+        Incumbent best = new Incumbent(deliveries, budget);
+        OptimizationBudget restartBudget = budget.hasDeadline() ? budget : budget.slice(restartBudgetMs);
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        tasks.add(pool.submit(() -> construct(nearestOptimizer, deliveries, warehouse, matrix, budget, best)));
+        tasks.add(pool.submit(() -> construct(clarkeOptimizer, deliveries, warehouse, matrix, budget, best)));
+        int restarts = Math.max(1, pool.getParallelism() - tasks.size());
+        for (int w = 0; w < restarts; w++) {
+            long seed = w;
+            tasks.add(pool.submit(() -> restart(new Random(seed), matrix, restartBudget, best)));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            try {
+                task.join();
+            } catch (RuntimeException ex) {
+                // a failing strategy only removes its candidate
+            }
+        }
+
+        int[] order = best.order();
+        if (order == null)
+            return new ArrayList<>(deliveries);
+        List<Delivery> result = new ArrayList<>(order.length);
+        for (int idx : order)
+            result.add(deliveries.get(idx));
+        return result;
+    }
+
+    private void construct(TourOptimizer optimizer, List<Delivery> deliveries, Warehouse warehouse,
+            DistanceMatrix matrix, OptimizationBudget budget, Incumbent best) {
+        List<Delivery> tour = optimizer.calculateOptimalTour(deliveries, warehouse, matrix, budget);
+        if (tour == null || tour.size() != deliveries.size())
+            return;
+        Map<Delivery, Integer> index = new IdentityHashMap<>();
+        for (int i = 0; i < deliveries.size(); i++)
+            index.put(deliveries.get(i), i);
+        int[] order = new int[tour.size()];
+        for (int i = 0; i < order.length; i++) {
+            Integer idx = index.remove(tour.get(i));
+            if (idx == null)
+                return; // not a permutation of the input
+            order[i] = idx;
+        }
+        best.offer(order, matrix.tourLength(order));
+    }
+
+    /**
+     * Iterated local search from a randomized construction: perturb the
+     * worker's current tour, improve it and keep it if it got shorter.
+     */
+    private void restart(Random rnd, DistanceMatrix matrix, OptimizationBudget budget, Incumbent best) {
+        int[] current = randomizedNearest(rnd, matrix);
+        improve(current, matrix, budget);
+        double currentLength = matrix.tourLength(current);
+        best.offer(current, currentLength);
+
+        int[] candidate = new int[current.length];
+        while (!budget.isExhausted()) {
+            System.arraycopy(current, 0, candidate, 0, current.length);
+            perturb(rnd, candidate);
+            improve(candidate, matrix, budget);
+            double length = matrix.tourLength(candidate);
+            if (length < currentLength) {
+                int[] swap = current;
+                current = candidate;
+                candidate = swap;
+                currentLength = length;
+                best.offer(current, currentLength);
+            }
+            if (improvers.isEmpty())
+                current = randomizedNearest(rnd, matrix); // nothing to iterate on: plain restarts
+        }
+    }
+
+    private void improve(int[] order, DistanceMatrix matrix, OptimizationBudget budget) {
+        for (TourImprover improver : improvers)
+            improver.improve(order, matrix, budget);
+    }
+
+    /**
+     * Nearest neighbour from the warehouse, picking uniformly among the
+     * {@link #RANDOM_CANDIDATES} closest unvisited deliveries at each step.
+     */
+    private static int[] randomizedNearest(Random rnd, DistanceMatrix matrix) {
+        int n = matrix.size() - 1;
+        int[] order = new int[n];
+        boolean[] visited = new boolean[n];
+        int[] candidates = new int[RANDOM_CANDIDATES];
+        double[] candidateDist = new double[RANDOM_CANDIDATES];
+        int cur = -1; // warehouse
+        for (int step = 0; step < n; step++) {
+            int count = 0;
+            for (int j = 0; j < n; j++) {
+                if (visited[j])
+                    continue;
+                double d = cur < 0 ? matrix.fromDepot(j) : matrix.between(cur, j);
+                if (count == RANDOM_CANDIDATES && d >= candidateDist[count - 1])
+                    continue;
+                int pos = count < RANDOM_CANDIDATES ? count++ : count - 1;
+                while (pos > 0 && candidateDist[pos - 1] > d) {
+                    candidateDist[pos] = candidateDist[pos - 1];
+                    candidates[pos] = candidates[pos - 1];
+                    pos--;
+                }
+                candidateDist[pos] = d;
+                candidates[pos] = j;
+            }
+            cur = candidates[rnd.nextInt(count)];
+            visited[cur] = true;
+            order[step] = cur;
+        }
+        return order;
+    }
+
+    /**
+     * Double-bridge move (A B C D -> A C B D), which 2-opt and Or-opt cannot
+     * undo in one step; tours too short for it get a random reversal instead.
+     */
+    private static void perturb(Random rnd, int[] order) {
+        int n = order.length;
+        if (n < 8) {
+            int i = rnd.nextInt(n);
+            int j = rnd.nextInt(n);
+            for (int a = Math.min(i, j), b = Math.max(i, j); a < b; a++, b--) {
+                int t = order[a];
+                order[a] = order[b];
+                order[b] = t;
+            }
+            return;
+        }
+        int p1 = 1 + rnd.nextInt(n / 4);
+        int p2 = p1 + 1 + rnd.nextInt(n / 4);
+        int p3 = p2 + 1 + rnd.nextInt(n / 4);
+        int[] copy = order.clone();
+        int k = p1;
+        for (int i = p2; i < p3; i++)
+            order[k++] = copy[i];
+        for (int i = p1; i < p2; i++)
+            order[k++] = copy[i];
+    }
+
+    /**
+     * Shortest tour found by any strategy.
+     */
+    private static final class Incumbent {
+        private final List<Delivery> deliveries;
+        private final OptimizationBudget budget;
+        private int[] order;
+        private double length = Double.POSITIVE_INFINITY;
+
+        Incumbent(List<Delivery> deliveries, OptimizationBudget budget) {
+            this.deliveries = deliveries;
+            this.budget = budget;
+        }
+
+        void offer(int[] candidate, double candidateLength) {
+            List<Delivery> tour;
+            synchronized (this) {
+                if (!(candidateLength < length))
+                    return;
+                order = candidate.clone();
+                length = candidateLength;
+                tour = new ArrayList<>(order.length);
+                for (int idx : order)
+                    tour.add(deliveries.get(idx));
+            }
+            budget.publish(tour, candidateLength);
+        }
+
+        synchronized int[] order() {
+            return order;
+        }
+    }
+}
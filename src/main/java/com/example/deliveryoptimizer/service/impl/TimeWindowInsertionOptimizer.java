@@ -0,0 +1,202 @@
+package com.example.deliveryoptimizer.service.impl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.deliveryoptimizer.entity.Customer;
+import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.Warehouse;
+import com.example.deliveryoptimizer.service.TimeWindowOptimizer;
+import com.example.deliveryoptimizer.service.TimeWindowPlan;
+import com.example.deliveryoptimizer.service.TourOptimizer;
+import com.example.deliveryoptimizer.util.DistanceMatrix;
+import com.example.deliveryoptimizer.util.TimeWindows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Time-window-aware insertion heuristic (single vehicle VRPTW).
+ *
+ * - Windows come from Customer.preferredTimeSlot and Warehouse.openingHours,
+ * parsed once through {@link TimeWindows} into primitive arrays
+ * - The route leaves the warehouse when it opens and must be back before it
+ * closes; travel time is distance / {@code optimizer.time-windows.speed-kmh},
+ * plus a fixed service time per stop; arriving early means waiting
+ * - Deliveries are inserted by increasing window end, each at the feasible
+ * position with the smallest detour
+ * - Feasibility of an insertion is O(1): the route keeps the service start of
+ * every stop (forward) and the latest service start that keeps all later
+ * stops on time (backward slack)
+ * - Deliveries that fit nowhere are reported as infeasible
+ */
+@Service
+public class TimeWindowInsertionOptimizer implements TourOptimizer, TimeWindowOptimizer {
+
+    private final double metersPerMinute;
+    private final double serviceMinutes;
+
+    public TimeWindowInsertionOptimizer(@Value("${optimizer.time-windows.speed-kmh:30}") double speedKmh,
+            @Value("${optimizer.time-windows.service-minutes:5}") double serviceMinutes) {
+        this.metersPerMinute = speedKmh * 1000.0 / 60.0;
+        this.serviceMinutes = serviceMinutes;
+    }
+
+    /**
+     * Feasible stops in visit order, followed by the infeasible ones.
+     */
+    @Override
+    public List<Delivery> calculateOptimalTour(List<Delivery> deliveries, Warehouse warehouse) {
+        TimeWindowPlan plan = plan(deliveries, warehouse);
+        List<Delivery> tour = new ArrayList<>(plan.getRoute());
+        tour.addAll(plan.getInfeasible());
+        return tour;
+    }
+
+    /**
+     * Distance-only improvers would break the time windows.
+     */
+    @Override
+    public boolean allowsDistanceImprovement() {
+        return false;
+    }
+
+    /**
+     * Without a warehouse the route starts at its first stop (no depot legs).
+     */
+    @Override
+    public TimeWindowPlan plan(List<Delivery> deliveries, Warehouse warehouse) {
+        if (deliveries == null || deliveries.isEmpty())
+            return new TimeWindowPlan(new ArrayList<>(), new double[0], new ArrayList<>());
+        return new Insertion(deliveries, warehouse).run();
+    }
+
+    /**
+     * State of one insertion run. Points follow {@link DistanceMatrix}: 0 is
+     * the warehouse, delivery i is point i + 1. Route position 0 and m + 1 are
+     * the warehouse.
+     */
+    private final class Insertion {
+        private final List<Delivery> deliveries;
+        private final boolean hasDepot;
+        private final DistanceMatrix matrix;
+        private final int n;
+        private final int[] window;
+
+        private final int[] route;
+        private final double[] begin;
+        private final double[] latest;
+        private int m;
+
+        Insertion(List<Delivery> deliveries, Warehouse warehouse) {
+            this.deliveries = deliveries;
+            this.hasDepot = warehouse != null;
+            this.matrix = DistanceMatrix.of(warehouse, deliveries);
+            this.n = deliveries.size();
+            this.window = new int[n + 1];
+            window[0] = hasDepot ? TimeWindows.parse(warehouse.getOpeningHours()) : TimeWindows.ANY;
+            for (int i = 0; i < n; i++) {
+                Customer c = deliveries.get(i).getCustomer();
+                window[i + 1] = TimeWindows.parse(c != null ? c.getPreferredTimeSlot() : null);
+            }
+            this.route = new int[n + 2];
+            this.begin = new double[n + 2];
+            this.latest = new double[n + 2];
+        }
+
+        TimeWindowPlan run() {
+            // empty route: warehouse -> warehouse
+            m = 0;
+            begin[0] = TimeWindows.start(window[0]);
+            begin[1] = begin[0];
+            latest[0] = begin[0];
+            latest[1] = TimeWindows.end(window[0]);
+
+            Integer[] byDeadline = new Integer[n];
+            for (int i = 0; i < n; i++)
+                byDeadline[i] = i + 1;
+            Arrays.sort(byDeadline, Comparator.comparingInt((Integer p) -> TimeWindows.end(window[p]))
+                    .thenComparing(Comparator.comparingDouble((Integer p) -> matrix.get(0, p)).reversed()));
+
+            List<Delivery> infeasible = new ArrayList<>();
+            for (int u : byDeadline) {
+                int bestPos = -1;
+                double bestDelta = Double.POSITIVE_INFINITY;
+                for (int p = 0; p <= m; p++) {
+                    int a = route[p];
+                    int b = route[p + 1];
+                    double delta = d(a, u) + d(u, b) - d(a, b);
+                    if (delta < bestDelta && feasible(p, u)) {
+                        bestDelta = delta;
+                        bestPos = p;
+                    }
+                }
+                if (bestPos < 0)
+                    infeasible.add(deliveries.get(u - 1));
+                else
+                    insert(bestPos, u);
+            }
+
+            List<Delivery> ordered = new ArrayList<>(m);
+            double[] starts = new double[m];
+            for (int p = 1; p <= m; p++) {
+                ordered.add(deliveries.get(route[p] - 1));
+                starts[p - 1] = begin[p];
+            }
+            return new TimeWindowPlan(ordered, starts, infeasible);
+        }
+
+        /**
+         * Can point u be served between route positions p and p + 1 without
+         * making it or any later stop late?
+         */
+        private boolean feasible(int p, int u) {
+            int a = route[p];
+            double startU = Math.max(begin[p] + service(a) + t(a, u), TimeWindows.start(window[u]));
+            if (startU > TimeWindows.end(window[u]))
+                return false;
+            int b = route[p + 1];
+            double startB = Math.max(startU + service(u) + t(u, b), windowStart(p + 1));
+            return startB <= latest[p + 1];
+        }
+
+        private void insert(int p, int u) {
+            System.arraycopy(route, p + 1, route, p + 2, m + 1 - p);
+            route[p + 1] = u;
+            m++;
+            // forward: service starts from the new stop on
+            for (int q = p + 1; q <= m + 1; q++) {
+                int prev = route[q - 1];
+                begin[q] = Math.max(begin[q - 1] + service(prev) + t(prev, route[q]), windowStart(q));
+            }
+            // backward: latest service starts up to the new stop
+            latest[m + 1] = TimeWindows.end(window[0]);
+            for (int q = m; q >= 0; q--) {
+                int cur = route[q];
+                double end = q == 0 ? begin[0] : TimeWindows.end(window[cur]);
+                latest[q] = Math.min(end, latest[q + 1] - t(cur, route[q + 1]) - service(cur));
+            }
+        }
+
+        // the warehouse only constrains the departure (position 0)
+        private double windowStart(int q) {
+            return route[q] == 0 && q > 0 ? 0.0 : TimeWindows.start(window[route[q]]);
+        }
+
+        private double service(int point) {
+            return point == 0 ? 0.0 : serviceMinutes;
+        }
+
+        private double d(int a, int b) {
+            if (!hasDepot && (a == 0 || b == 0))
+                return 0.0;
+            return matrix.get(a, b);
+        }
+
+        private double t(int a, int b) {
+            return d(a, b) / metersPerMinute;
+        }
+    }
+}
@@ -1,18 +1,38 @@
 package com.example.deliveryoptimizer.service.impl;
 
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.deliveryoptimizer.entity.Delivery;
 import com.example.deliveryoptimizer.entity.Tour;
+import com.example.deliveryoptimizer.entity.Vehicle;
 import com.example.deliveryoptimizer.entity.Warehouse;
+import com.example.deliveryoptimizer.repository.DeliveryRepository;
 import com.example.deliveryoptimizer.repository.TourRepository;
+import com.example.deliveryoptimizer.repository.VehicleRepository;
+import com.example.deliveryoptimizer.service.DepotDistanceStore;
+import com.example.deliveryoptimizer.service.DistanceMatrixCache;
+import com.example.deliveryoptimizer.service.OptimizationBudget;
+import com.example.deliveryoptimizer.service.TimeWindowOptimizer;
+import com.example.deliveryoptimizer.service.TimeWindowPlan;
+import com.example.deliveryoptimizer.service.TourImprover;
 import com.example.deliveryoptimizer.service.TourOptimizer;
 import com.example.deliveryoptimizer.service.TourService;
+import com.example.deliveryoptimizer.service.TourWriter;
+import com.example.deliveryoptimizer.service.VehicleRoutingOptimizer;
+import com.example.deliveryoptimizer.util.DistanceMatrix;
+import com.example.deliveryoptimizer.util.DistanceUtils;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Simple TourService implementation that delegates to one of the provided
@@ -23,56 +43,315 @@ import java.util.Map;
 @Service
 public class TourServiceImpl implements TourService {
 
+    // above this size no matrix is built, so local search is skipped
+    private static final int LOCAL_SEARCH_MAX_DELIVERIES = 5000;
+
+    // improvers run in slices of this length; the best tour is published after
+    // each slice
+    private static final long PUBLISH_INTERVAL_MS = 100;
+
     private final TourOptimizer defaultOptimizer;
     private final Map<String, TourOptimizer> optimizers = new HashMap<>();
     private final TourRepository tourRepository;
+    private final DeliveryRepository deliveryRepository;
+    private final VehicleRepository vehicleRepository;
+    private final VehicleRoutingOptimizer routingOptimizer;
+    private final TimeWindowOptimizer timeWindowOptimizer;
+    private final DistanceMatrixCache matrixCache;
+    private final DepotDistanceStore depotDistances;
+    private final TourWriter tourWriter;
+    private final List<TourImprover> improvers;
+    private final long improveBudgetMs;
 
     /**
      * Constructor: pass the default optimizer first (e.g. ClarkeWright), then any
-     * wired in XML.
+     * wired in XML, the portfolio optimizer racing them, the clustered
+     * optimizer for large days, the multi-vehicle and time-window routing
+     * optimizers, the matrix cache shared across requests, the persistent
+     * warehouse leg store, the write-behind tour writer, then the improvers applied (in order) to every optimized
+     * tour within the given time budget (0 disables them).
      */
-    public TourServiceImpl(TourOptimizer defaultOptimizer, TourOptimizer otherOptimizer,
-            TourRepository tourRepository) {
+    public TourServiceImpl(@Qualifier("clarkeWrightOptimizer") TourOptimizer defaultOptimizer,
+            @Qualifier("nearestNeighborOptimizer") TourOptimizer otherOptimizer,
+            @Qualifier("portfolioOptimizer") TourOptimizer portfolioOptimizer,
+            @Qualifier("clusteredOptimizer") TourOptimizer clusteredOptimizer,
+            TourRepository tourRepository, DeliveryRepository deliveryRepository,
+            VehicleRepository vehicleRepository,
+            VehicleRoutingOptimizer routingOptimizer, TimeWindowOptimizer timeWindowOptimizer,
+            DistanceMatrixCache matrixCache, DepotDistanceStore depotDistances, TourWriter tourWriter,
+            List<TourImprover> improvers,
+            @Value("${optimizer.local-search.time-budget-ms:200}") long improveBudgetMs) {
         this.defaultOptimizer = defaultOptimizer;
         if (defaultOptimizer != null)
             this.optimizers.put("CLARKE", defaultOptimizer);
         if (otherOptimizer != null)
             this.optimizers.put("NEAREST", otherOptimizer);
+        if (portfolioOptimizer != null)
+            this.optimizers.put("PORTFOLIO", portfolioOptimizer);
+        if (clusteredOptimizer != null)
+            this.optimizers.put("CLUSTERED", clusteredOptimizer);
+        if (timeWindowOptimizer instanceof TourOptimizer)
+            this.optimizers.put("TIME_WINDOWS", (TourOptimizer) timeWindowOptimizer);
         this.tourRepository = tourRepository;
+        this.deliveryRepository = deliveryRepository;
+        this.vehicleRepository = vehicleRepository;
+        this.routingOptimizer = routingOptimizer;
+        this.timeWindowOptimizer = timeWindowOptimizer;
+        this.matrixCache = matrixCache;
+        this.depotDistances = depotDistances;
+        this.tourWriter = tourWriter;
+        this.improvers = improvers != null ? improvers : new ArrayList<>();
+        this.improveBudgetMs = improveBudgetMs;
+    }
+
+    @Override
+    public List<Delivery> getOptimizedTour(List<Delivery> deliveries, Warehouse warehouse, String optimizerName,
+            Long vehicleId) {
+        return getOptimizedTour(deliveries, warehouse, optimizerName, vehicleId, OptimizationBudget.unlimited());
+    }
+
+    @Override
+    public List<Delivery> getOptimizedTour(List<Delivery> deliveries, Warehouse warehouse, String optimizerName,
+            Long vehicleId, OptimizationBudget budget) {
+        List<Delivery> ordered = calculateTour(deliveries, warehouse, optimizerName, budget);
+
+        // the caller is gone: do not persist a tour nobody will see
+        if (budget.isCancelled())
+            return ordered;
+
+        tourWriter.submit(ordered, vehicleId);
+        return ordered;
     }
 
     @Override
-    public List<Delivery> getOptimizedTour(List<Delivery> deliveries, String optimizerName, Long vehicleId) {
+    public List<Delivery> calculateTour(List<Delivery> deliveries, Warehouse warehouse, String optimizerName,
+            OptimizationBudget budget) {
         TourOptimizer opt = defaultOptimizer;
         if (optimizerName != null) {
             TourOptimizer chosen = optimizers.get(optimizerName.toUpperCase());
             if (chosen != null)
                 opt = chosen;
         }
+        // its tours end with the stops no time slot fits: never save those
+        // as visited, the time-window plan reports them separately
+        if (opt == timeWindowOptimizer)
+            throw new IllegalArgumentException("TIME_WINDOWS routes are planned with getTimeWindowTour");
+
+        List<Delivery> ordered;
+        if (opt.allowsDistanceImprovement() && improvementEnabled(deliveries, budget)) {
+            // an explicit deadline covers the whole run, otherwise the
+            // improvers get the configured budget
+            OptimizationBudget improveBudget = budget.hasDeadline() ? budget : budget.slice(improveBudgetMs);
+            // one matrix shared by the optimizer and the improvers, reusing
+            // the rows of deliveries optimized by earlier requests
+            DistanceMatrix matrix = matrixCache.matrix(warehouse, deliveries);
+            List<Delivery> initial = opt.calculateOptimalTour(deliveries, warehouse, matrix, budget);
+            ordered = improve(deliveries, initial, warehouse, matrix, improveBudget);
+        } else {
+            ordered = opt.calculateOptimalTour(deliveries, warehouse);
+            budget.publish(ordered, getTotalDistance(ordered, warehouse));
+        }
+        return ordered;
+    }
+
+    @Override
+    public TimeWindowPlan getTimeWindowTour(List<Delivery> deliveries, Warehouse warehouse, Long vehicleId) {
+        TimeWindowPlan plan = timeWindowOptimizer.plan(deliveries, warehouse);
+        tourWriter.submit(plan.getRoute(), vehicleId);
+        return plan;
+    }
+
+    @Override
+    @Transactional
+    public List<Tour> getOptimizedTours(List<Delivery> deliveries, Warehouse warehouse, List<Long> vehicleIds) {
+        if (deliveries == null || deliveries.isEmpty())
+            return new ArrayList<>();
+        List<Vehicle> fleet = vehicleIds == null || vehicleIds.isEmpty()
+                ? vehicleRepository.findAll()
+                : vehicleRepository.findAllById(vehicleIds);
+
+        OptimizationBudget budget = OptimizationBudget.ofMillis(improveBudgetMs);
+        List<Tour> tours = routingOptimizer.calculateRoutes(deliveries, warehouse, fleet);
+
+        LocalDate today = LocalDate.now();
+        for (Tour tour : tours) {
+            tour.setDate(today);
+            // routes are small: improve each one on its own matrix
+            List<Delivery> route = tour.getDeliveries();
+            if (improvementEnabled(route, budget)) {
+                List<Delivery> improved = improve(route, route, warehouse, DistanceMatrix.of(warehouse, route),
+                        budget);
+                tour.setDeliveries(new ArrayList<>(improved));
+            }
+        }
+        return tourRepository.saveAll(tours);
+    }
+
+    @Override
+    public List<Tour> saveTours(List<List<Delivery>> routes, List<Long> vehicleIds) {
+        Set<Long> ids = new HashSet<>();
+        for (Long id : vehicleIds) {
+            if (id != null)
+                ids.add(id);
+        }
+        Map<Long, Vehicle> vehicles = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (Vehicle v : vehicleRepository.findAllById(ids))
+                vehicles.put(v.getId(), v);
+        }
 
-        // vehicleId can be used to lookup vehicle capacity / constraints in future
-        List<Delivery> ordered = opt.calculateOptimalTour(deliveries, null);
+        // the routes' deliveries were loaded outside this transaction:
+        // attaching them as they are would cascade a persist onto detached
+        // entities, so they are read again (with their customers, for the
+        // caller's mapping) in one select
+        Set<Long> deliveryIds = new HashSet<>();
+        for (List<Delivery> route : routes) {
+            for (Delivery d : route)
+                deliveryIds.add(d.getId());
+        }
+        Map<Long, Delivery> managed = new HashMap<>();
+        if (!deliveryIds.isEmpty()) {
+            for (Delivery d : deliveryRepository.findWithCustomerByIdIn(deliveryIds))
+                managed.put(d.getId(), d);
+        }
 
-        // Persist the tour and associate deliveries to it
-        try {
+        LocalDate today = LocalDate.now();
+        List<Tour> tours = new ArrayList<>(routes.size());
+        Set<Long> sources = new HashSet<>();
+        for (int i = 0; i < routes.size(); i++) {
             Tour tour = new Tour();
-            tour.setDate(LocalDate.now());
-            // add deliveries and update back-reference
-            if (ordered != null) {
-                for (Delivery d : ordered) {
-                    tour.addDelivery(d);
-                }
+            tour.setDate(today);
+            Long vehicleId = vehicleIds.get(i);
+            if (vehicleId != null)
+                tour.setVehicle(vehicles.get(vehicleId));
+            for (Delivery d : routes.get(i)) {
+                Delivery attached = managed.get(d.getId());
+                if (attached == null)
+                    throw new IllegalArgumentException("delivery " + d.getId() + " not found");
+                if (attached.getTour() != null)
+                    sources.add(attached.getTour().getId());
+                tour.addDelivery(attached);
             }
-            // save tour (will cascade to deliveries because of CascadeType.ALL on
-            // Tour.deliveries)
-            tourRepository.save(tour);
-        } catch (Exception ex) {
-            // swallow persistence exceptions to keep previous behaviour (still return
-            // ordered list)
-            // In future we can log this exception or propagate depending on requirements.
+            tours.add(tour);
         }
+        List<Tour> saved = tourRepository.saveAll(tours);
+        // close the gaps the moved deliveries left in their former tours
+        if (!sources.isEmpty()) {
+            tourRepository.flush();
+            tourRepository.compactPositions(sources);
+        }
+        return saved;
+    }
 
-        return ordered;
+    private boolean improvementEnabled(List<Delivery> deliveries, OptimizationBudget budget) {
+        return !improvers.isEmpty() && (improveBudgetMs > 0 || budget.hasDeadline()) && deliveries != null
+                && deliveries.size() >= 3 && deliveries.size() <= LOCAL_SEARCH_MAX_DELIVERIES;
+    }
+
+    /**
+     * Run the improvers on an optimizer result, publishing the tour to the
+     * budget after each time slice. Results that are not a permutation of the
+     * input (e.g. a fallback that drops deliveries) are returned unchanged.
+     * Published distances are those of {@link #getTotalDistance(List, Warehouse)}.
+     */
+    private List<Delivery> improve(List<Delivery> deliveries, List<Delivery> ordered, Warehouse warehouse,
+            DistanceMatrix matrix, OptimizationBudget budget) {
+        if (ordered == null || ordered.size() != deliveries.size()) {
+            budget.publish(ordered, getTotalDistance(ordered, warehouse));
+            return ordered;
+        }
+        Map<Delivery, Integer> index = new IdentityHashMap<>();
+        for (int i = 0; i < deliveries.size(); i++)
+            index.put(deliveries.get(i), i);
+        int[] order = new int[ordered.size()];
+        for (int i = 0; i < order.length; i++) {
+            Integer idx = index.remove(ordered.get(i));
+            if (idx == null) {
+                budget.publish(ordered, getTotalDistance(ordered, warehouse));
+                return ordered;
+            }
+            order[i] = idx;
+        }
+        budget.publish(ordered, tourLength(matrix, order, warehouse));
+
+        for (TourImprover improver : improvers) {
+            boolean converged = false;
+            while (!converged && !budget.isExhausted()) {
+                converged = improver.improve(order, matrix, budget.slice(PUBLISH_INTERVAL_MS));
+                budget.publish(toDeliveries(deliveries, order), tourLength(matrix, order, warehouse));
+            }
+        }
+        return toDeliveries(deliveries, order);
+    }
+
+    /**
+     * Length of the tour over the matrix with the legs
+     * {@link #getTotalDistance(List, Warehouse)} counts: the warehouse legs only
+     * when there is a warehouse (otherwise the matrix depot is a placeholder).
+     */
+    private static double tourLength(DistanceMatrix matrix, int[] order, Warehouse warehouse) {
+        if (warehouse != null)
+            return matrix.tourLength(order);
+        double total = 0.0;
+        for (int i = 1; i < order.length; i++)
+            total += matrix.between(order[i - 1], order[i]);
+        return total;
+    }
+
+    private static List<Delivery> toDeliveries(List<Delivery> deliveries, int[] order) {
+        List<Delivery> result = new ArrayList<>(order.length);
+        for (int idx : order)
+            result.add(deliveries.get(idx));
+        return result;
+    }
+
+    @Override
+    @Transactional
+    public Tour insertDeliveries(Long tourId, List<Delivery> deliveries, Warehouse warehouse, int fixedStops) {
+        Tour tour = tourRepository.findById(tourId).orElse(null);
+        if (tour == null)
+            return null;
+        List<Delivery> route = tour.getDeliveries();
+        Set<Long> planned = new HashSet<>();
+        for (Delivery d : route)
+            planned.add(d.getId());
+
+        CheapestInsertion insertion = new CheapestInsertion(route, warehouse, fixedStops);
+        Set<Long> sources = new HashSet<>();
+        for (Delivery d : deliveries) {
+            if (d.getId() != null && !planned.add(d.getId()))
+                continue;
+            if (d.getTour() != null && d.getTour() != tour) {
+                sources.add(d.getTour().getId());
+                d.getTour().removeDelivery(d);
+            }
+            insertion.insert(d);
+            d.setTour(tour);
+        }
+        Tour saved = tourRepository.save(tour);
+        // close the gaps the moved deliveries left in their former tours
+        if (!sources.isEmpty()) {
+            tourRepository.flush();
+            tourRepository.compactPositions(sources);
+        }
+        return saved;
+    }
+
+    @Override
+    @Transactional
+    public Tour removeDeliveries(Long tourId, List<Long> deliveryIds) {
+        Tour tour = tourRepository.findById(tourId).orElse(null);
+        if (tour == null)
+            return null;
+        Set<Long> ids = new HashSet<>(deliveryIds);
+        for (Delivery d : new ArrayList<>(tour.getDeliveries())) {
+            if (ids.contains(d.getId()))
+                tour.removeDelivery(d);
+        }
+        Tour saved = tourRepository.save(tour);
+        tourRepository.flush();
+        tourRepository.compactPositions(List.of(tourId));
+        return saved;
     }
 
     @Override
@@ -80,19 +359,32 @@ public class TourServiceImpl implements TourService {
         if (deliveries == null || deliveries.isEmpty())
             return 0.0;
         double total = 0.0;
-        double curLat = warehouse != null ? warehouse.getLatitude() : deliveries.get(0).getLatitude();
-        double curLon = warehouse != null ? warehouse.getLongitude() : deliveries.get(0).getLongitude();
-
-        for (Delivery d : deliveries) {
-            total += NearestNeighborOptimizer.distance(curLat, curLon, d.getLatitude(), d.getLongitude());
-            curLat = d.getLatitude();
-            curLon = d.getLongitude();
-        }
-        // return to warehouse
+        Delivery first = deliveries.get(0);
+        Delivery last = deliveries.get(deliveries.size() - 1);
+        // warehouse legs come from the persistent store
         if (warehouse != null) {
-            total += NearestNeighborOptimizer.distance(curLat, curLon, warehouse.getLatitude(),
-                    warehouse.getLongitude());
+            total += depotDistances.distance(warehouse, first.getLatitude(), first.getLongitude());
+            total += depotDistances.distance(warehouse, last.getLatitude(), last.getLongitude());
+        }
+        // each stop's terms are computed once and reused for its next leg
+        double prevLat = Math.toRadians(first.getLatitude());
+        double prevLon = Math.toRadians(first.getLongitude());
+        double prevCos = Math.cos(prevLat);
+        for (int i = 1; i < deliveries.size(); i++) {
+            Delivery d = deliveries.get(i);
+            double lat = Math.toRadians(d.getLatitude());
+            double lon = Math.toRadians(d.getLongitude());
+            double cos = Math.cos(lat);
+            total += DistanceUtils.haversineRadians(prevLat, prevLon, prevCos, lat, lon, cos);
+            prevLat = lat;
+            prevLon = lon;
+            prevCos = cos;
         }
         return total;
     }
+
+    @Override
+    public double getTotalDistance(DistanceMatrix matrix, int[] order) {
+        return matrix.tourLength(order);
+    }
 }
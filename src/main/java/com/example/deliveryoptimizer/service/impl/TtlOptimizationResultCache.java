@@ -0,0 +1,186 @@
+package com.example.deliveryoptimizer.service.impl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.deliveryoptimizer.entity.Customer;
+import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.Warehouse;
+import com.example.deliveryoptimizer.service.OptimizationResultCache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link OptimizationResultCache} keeping at most
+ * {@code optimizer.result-cache.max-entries} tours for
+ * {@code optimizer.result-cache.ttl-seconds} each (0 disables the cache).
+ *
+ * The key is a SHA-256 fingerprint of the warehouse, the optimizer name, the
+ * vehicle and every delivery sorted by id together with the data the
+ * optimizers read (coordinates, weight, volume, status, customer slot). The
+ * delivery data acts as its version: a request made after any of its rows
+ * changed gets a different key, whichever process changed it. Tours of
+ * changed deliveries are also dropped eagerly through
+ * {@link #invalidate(Long)}.
+ */
+@Service
+public class TtlOptimizationResultCache implements OptimizationResultCache {
+
+    private final long ttlNanos;
+    private final int maxEntries;
+
+    // access-ordered: iteration starts at the least recently used tour
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    public TtlOptimizationResultCache(@Value("${optimizer.result-cache.ttl-seconds:60}") long ttlSeconds,
+            @Value("${optimizer.result-cache.max-entries:1024}") int maxEntries) {
+        this.ttlNanos = Math.max(0, ttlSeconds) * 1_000_000_000L;
+        this.maxEntries = Math.max(0, maxEntries);
+    }
+
+    @Override
+    public List<Delivery> get(Warehouse warehouse, List<Delivery> deliveries, String optimizerName,
+            Long vehicleId) {
+        if (!enabled())
+            return null;
+        String key = fingerprint(warehouse, deliveries, optimizerName, vehicleId);
+        if (key == null)
+            return null;
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null && entry.expiresAt - System.nanoTime() <= 0) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+        if (entry == null)
+            return null;
+
+        Map<Long, Delivery> byId = new HashMap<>();
+        for (Delivery d : deliveries)
+            byId.put(d.getId(), d);
+        List<Delivery> tour = new ArrayList<>(entry.tour.length);
+        for (long id : entry.tour) {
+            Delivery d = byId.get(id);
+            if (d == null)
+                return null;
+            tour.add(d);
+        }
+        return tour;
+    }
+
+    @Override
+    public void put(Warehouse warehouse, List<Delivery> deliveries, String optimizerName, Long vehicleId,
+            List<Delivery> tour) {
+        if (!enabled() || tour == null)
+            return;
+        String key = fingerprint(warehouse, deliveries, optimizerName, vehicleId);
+        if (key == null)
+            return;
+        long[] ids = new long[deliveries.size()];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = deliveries.get(i).getId();
+        Arrays.sort(ids);
+        long[] order = new long[tour.size()];
+        for (int i = 0; i < order.length; i++) {
+            if (tour.get(i).getId() == null)
+                return;
+            order[i] = tour.get(i).getId();
+        }
+
+        synchronized (this) {
+            entries.put(key, new Entry(ids, order, System.nanoTime() + ttlNanos));
+            Iterator<Entry> lru = entries.values().iterator();
+            while (entries.size() > maxEntries && lru.hasNext()) {
+                lru.next();
+                lru.remove();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void invalidate(Long deliveryId) {
+        if (deliveryId == null)
+            return;
+        entries.values().removeIf(e -> Arrays.binarySearch(e.deliveryIds, deliveryId) >= 0);
+    }
+
+    private boolean enabled() {
+        return ttlNanos > 0 && maxEntries > 0;
+    }
+
+    /**
+     * Hex SHA-256 of everything the result depends on, or null when a
+     * delivery has no id (not persisted, cannot be matched later).
+     */
+    private static String fingerprint(Warehouse warehouse, List<Delivery> deliveries, String optimizerName,
+            Long vehicleId) {
+        List<Delivery> sorted = new ArrayList<>(deliveries);
+        for (Delivery d : sorted) {
+            if (d.getId() == null)
+                return null;
+        }
+        sorted.sort((a, b) -> a.getId().compareTo(b.getId()));
+
+        MessageDigest digest = sha256();
+        ByteBuffer buf = ByteBuffer.allocate(6 * Long.BYTES);
+        if (warehouse != null) {
+            buf.putLong(warehouse.getId() != null ? warehouse.getId() : -1L)
+                    .putDouble(warehouse.getLatitude()).putDouble(warehouse.getLongitude());
+            digest.update(buf.flip());
+            update(digest, warehouse.getOpeningHours());
+        }
+        update(digest, optimizerName != null ? optimizerName.toUpperCase() : null);
+        buf.clear().putLong(vehicleId != null ? vehicleId : -1L).putInt(sorted.size());
+        digest.update(buf.flip());
+        for (Delivery d : sorted) {
+            Customer c = d.getCustomer();
+            buf.clear().putLong(d.getId()).putDouble(d.getLatitude()).putDouble(d.getLongitude())
+                    .putDouble(d.getWeight()).putDouble(d.getVolume())
+                    .putLong(c != null && c.getId() != null ? c.getId() : -1L);
+            digest.update(buf.flip());
+            update(digest, d.getStatus() != null ? d.getStatus().name() : null);
+            update(digest, c != null ? c.getPreferredTimeSlot() : null);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // length-prefixed so consecutive strings cannot be confused
+    private static void update(MessageDigest digest, String value) {
+        byte[] bytes = value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(value != null ? bytes.length : -1).flip());
+        digest.update(bytes);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static final class Entry {
+        private final long[] deliveryIds;
+        private final long[] tour;
+        private final long expiresAt;
+
+        Entry(long[] deliveryIds, long[] tour, long expiresAt) {
+            this.deliveryIds = deliveryIds;
+            this.tour = tour;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.example.deliveryoptimizer.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.Tour;
+import com.example.deliveryoptimizer.entity.Vehicle;
+import com.example.deliveryoptimizer.repository.TourRepository;
+import com.example.deliveryoptimizer.repository.VehicleRepository;
+import com.example.deliveryoptimizer.service.TourWriter;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link TourWriter} backed by a bounded queue drained by one background
+ * thread.
+ *
+ * - Up to {@code optimizer.tour-writer.batch-size} queued tours are written
+ * in one transaction: the tour rows, then the tour_id / tour_position of
+ * their deliveries as one JDBC batch update (no merge of the deliveries);
+ * the tours the deliveries left have their positions renumbered in the
+ * same transaction so they keep no gaps
+ * - A failed batch is attempted again up to
+ * {@code optimizer.tour-writer.max-attempts} times with doubling backoff,
+ * then its tours are written one by one so a single bad tour does not take
+ * the others down; tours failing on their own are counted and logged
+ * - Submitting blocks while the queue is full (at most
+ * {@code optimizer.tour-writer.offer-timeout-ms}), which slows the
+ * optimizations down to the write rate
+ * - The worker thread is started and stopped with the context lifecycle;
+ * tours still queued at shutdown are written before it stops
+ */
+@Service
+public class WriteBehindTourWriter implements TourWriter, SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindTourWriter.class);
+
+    // how long shutdown waits for the queue to drain
+    private static final long SHUTDOWN_FLUSH_MS = 10_000;
+
+    // ids per IN list when looking up the tours deliveries leave
+    private static final int LOOKUP_CHUNK = 1000;
+
+    /**
+     * A tour waiting to be written.
+     */
+    static final class PendingTour {
+        final LocalDate date;
+        final Long vehicleId;
+        final List<Long> deliveryIds;
+
+        PendingTour(LocalDate date, Long vehicleId, List<Long> deliveryIds) {
+            this.date = date;
+            this.vehicleId = vehicleId;
+            this.deliveryIds = deliveryIds;
+        }
+    }
+
+    private final TourRepository tourRepository;
+    private final VehicleRepository vehicleRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<PendingTour> queue;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    private final long offerTimeoutMs;
+    // started by start(), guarded by this
+    private Thread worker;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    // accepted and not yet written or failed; guarded by this
+    private long pending;
+    private volatile boolean closed;
+
+    public WriteBehindTourWriter(TourRepository tourRepository, VehicleRepository vehicleRepository,
+            JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            @Value("${optimizer.tour-writer.queue-capacity:1024}") int queueCapacity,
+            @Value("${optimizer.tour-writer.batch-size:50}") int batchSize,
+            @Value("${optimizer.tour-writer.max-attempts:3}") int maxAttempts,
+            @Value("${optimizer.tour-writer.retry-backoff-ms:100}") long retryBackoffMs,
+            @Value("${optimizer.tour-writer.offer-timeout-ms:5000}") long offerTimeoutMs) {
+        this.tourRepository = tourRepository;
+        this.vehicleRepository = vehicleRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffMs = retryBackoffMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+    }
+
+    @Override
+    public boolean submit(List<Delivery> ordered, Long vehicleId) {
+        List<Long> ids = new ArrayList<>();
+        if (ordered != null) {
+            for (Delivery d : ordered) {
+                if (d.getId() != null)
+                    ids.add(d.getId());
+            }
+        }
+        PendingTour tour = new PendingTour(LocalDate.now(), vehicleId, ids);
+        synchronized (this) {
+            pending++;
+        }
+        boolean accepted = false;
+        try {
+            accepted = !closed && queue.offer(tour, offerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        if (accepted) {
+            submitted.incrementAndGet();
+        } else {
+            rejected.incrementAndGet();
+            done(1);
+            log.warn("Tour write queue full, tour of {} deliveries not persisted", ids.size());
+        }
+        return accepted;
+    }
+
+    @Override
+    public synchronized boolean flush(long timeoutMs) throws InterruptedException {
+        long end = System.currentTimeMillis() + timeoutMs;
+        while (pending > 0) {
+            long left = end - System.currentTimeMillis();
+            if (left <= 0)
+                return false;
+            wait(left);
+        }
+        return true;
+    }
+
+    @Override
+    public Stats stats() {
+        return new Stats(queue.size(), submitted.get(), written.get(), failed.get(), rejected.get(),
+                retries.get());
+    }
+
+    @Override
+    public synchronized void start() {
+        if (worker != null)
+            return;
+        closed = false;
+        worker = new Thread(this::drain, "tour-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public void stop() {
+        Thread running;
+        synchronized (this) {
+            running = worker;
+            if (running == null)
+                return;
+            closed = true;
+        }
+        try {
+            if (!flush(SHUTDOWN_FLUSH_MS))
+                log.warn("{} queued tours not persisted at shutdown", queue.size());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        running.interrupt();
+        synchronized (this) {
+            worker = null;
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return worker != null;
+    }
+
+    private synchronized void done(int tours) {
+        pending -= tours;
+        if (pending <= 0)
+            notifyAll();
+    }
+
+    private void drain() {
+        List<PendingTour> batch = new ArrayList<>(batchSize);
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException ex) {
+                return;
+            }
+            queue.drainTo(batch, batchSize - 1);
+            if (!writeWithRetry(batch) && batch.size() > 1) {
+                for (PendingTour tour : batch)
+                    writeOne(tour);
+            }
+            done(batch.size());
+            batch.clear();
+        }
+    }
+
+    /**
+     * @return true if the batch was written (counted), false if every
+     *         attempt failed
+     */
+    private boolean writeWithRetry(List<PendingTour> batch) {
+        long backoff = retryBackoffMs;
+        for (int attempt = 1;; attempt++) {
+            try {
+                writeBatch(batch);
+                written.addAndGet(batch.size());
+                return true;
+            } catch (RuntimeException ex) {
+                if (attempt >= maxAttempts) {
+                    if (batch.size() == 1)
+                        fail(ex);
+                    else
+                        log.warn("Writing {} tours failed after {} attempts, writing them one by one: {}",
+                                batch.size(), attempt, ex.getMessage());
+                    return false;
+                }
+            }
+            retries.incrementAndGet();
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException ex) {
+                // shutting down: give it one last try
+                Thread.currentThread().interrupt();
+            }
+            backoff *= 2;
+        }
+    }
+
+    private void writeOne(PendingTour tour) {
+        try {
+            writeBatch(List.of(tour));
+            written.incrementAndGet();
+        } catch (RuntimeException ex) {
+            fail(ex);
+        }
+    }
+
+    private void fail(RuntimeException ex) {
+        failed.incrementAndGet();
+        log.error("Tour not persisted: {}", ex.getMessage());
+    }
+
+    /**
+     * Write the tours in one transaction, throwing if it was rolled back.
+     */
+    void writeBatch(List<PendingTour> batch) {
+        transactionTemplate.executeWithoutResult(tx -> write(batch));
+    }
+
+    private void write(List<PendingTour> batch) {
+        Set<Long> vehicleIds = new HashSet<>();
+        for (PendingTour p : batch) {
+            if (p.vehicleId != null)
+                vehicleIds.add(p.vehicleId);
+        }
+        Map<Long, Vehicle> vehicles = new HashMap<>();
+        if (!vehicleIds.isEmpty()) {
+            for (Vehicle v : vehicleRepository.findAllById(vehicleIds))
+                vehicles.put(v.getId(), v);
+        }
+
+        List<Tour> tours = new ArrayList<>(batch.size());
+        for (PendingTour p : batch)
+            tours.add(new Tour(p.date, p.vehicleId != null ? vehicles.get(p.vehicleId) : null));
+        tours = tourRepository.saveAll(tours);
+
+        // the last tour of the batch naming a delivery gets it
+        Map<Long, Integer> lastTour = new HashMap<>();
+        for (int t = 0; t < batch.size(); t++) {
+            for (Long id : batch.get(t).deliveryIds)
+                lastTour.put(id, t);
+        }
+        Set<Long> left = previousTours(new ArrayList<>(lastTour.keySet()));
+
+        List<Object[]> assignments = new ArrayList<>();
+        for (int t = 0; t < batch.size(); t++) {
+            List<Long> ids = batch.get(t).deliveryIds;
+            Long tourId = tours.get(t).getId();
+            for (int i = 0; i < ids.size(); i++) {
+                if (lastTour.get(ids.get(i)) == t)
+                    assignments.add(new Object[] { tourId, i, ids.get(i) });
+                else
+                    left.add(tourId);
+            }
+        }
+        jdbcTemplate.batchUpdate("UPDATE deliveries SET tour_id = ?, tour_position = ? WHERE id = ?", assignments);
+        if (!left.isEmpty())
+            tourRepository.compactPositions(left);
+    }
+
+    /**
+     * The tours the given deliveries are currently on.
+     */
+    private Set<Long> previousTours(List<Long> deliveryIds) {
+        Set<Long> tourIds = new LinkedHashSet<>();
+        for (int from = 0; from < deliveryIds.size(); from += LOOKUP_CHUNK) {
+            List<Long> chunk = deliveryIds.subList(from, Math.min(deliveryIds.size(), from + LOOKUP_CHUNK));
+            String in = String.join(",", Collections.nCopies(chunk.size(), "?"));
+            tourIds.addAll(jdbcTemplate.queryForList(
+                    "SELECT DISTINCT tour_id FROM deliveries WHERE tour_id IS NOT NULL AND id IN (" + in + ")",
+                    Long.class, chunk.toArray()));
+        }
+        return tourIds;
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.deliveryoptimizer.util;
+
+import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.Warehouse;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Symmetric distance matrix (meters) shared by the tour optimizers.
+ *
+ * Point 0 is the warehouse (depot) and delivery k of the input list is point
+ * k + 1. Only the strict upper triangle is stored, row-major in one flat
+ * array (double or float precision), so memory is n(n-1)/2 values instead of
+ * n^2. Rows are filled in tiles on the common ForkJoin pool.
+ */
+public final class DistanceMatrix {
+
+    // below this number of points the matrix is built on the calling thread
+    private static final int PARALLEL_THRESHOLD = 256;
+
+    // number of rows computed by one parallel task
+    private static final int TILE_ROWS = 16;
+
+    private final int size;
+    private final int[] rowStart;
+    private final double[] doubles;
+    private final float[] floats;
+
+    private DistanceMatrix(int size, boolean singlePrecision) {
+        long cells = (long) size * (size - 1) / 2;
+        if (cells > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("too many points for a distance matrix: " + size);
+        }
+        this.size = size;
+        this.rowStart = new int[size];
+        for (int i = 1; i < size; i++) {
+            // row i starts after rows 0..i-1, which hold (size-1) + ... + (size-i) cells
+            rowStart[i] = rowStart[i - 1] + (size - i);
+        }
+        this.doubles = singlePrecision ? null : new double[(int) cells];
+        this.floats = singlePrecision ? new float[(int) cells] : null;
+    }
+
+    /**
+     * Build a double precision matrix for the warehouse and deliveries. A null
+     * warehouse is treated as (0,0), like the optimizers do.
+     */
+    public static DistanceMatrix of(Warehouse warehouse, List<Delivery> deliveries) {
+        return of(warehouse, deliveries, false);
+    }
+
+    /**
+     * Build a matrix for the warehouse and deliveries.
+     *
+     * @param singlePrecision store distances as float (half the memory, ~1 m
+     *                        resolution at continental scale)
+     */
+    public static DistanceMatrix of(Warehouse warehouse, List<Delivery> deliveries, boolean singlePrecision) {
+        int n = deliveries.size();
+        double[] lat = new double[n + 1];
+        double[] lon = new double[n + 1];
+        lat[0] = warehouse != null ? warehouse.getLatitude() : 0.0;
+        lon[0] = warehouse != null ? warehouse.getLongitude() : 0.0;
+        for (int i = 0; i < n; i++) {
+            Delivery d = deliveries.get(i);
+            lat[i + 1] = d.getLatitude();
+            lon[i + 1] = d.getLongitude();
+        }
+        return of(lat, lon, singlePrecision);
+    }
+
+    /**
+     * Build a matrix from raw coordinates (degrees). Point indexes follow the
+     * array indexes.
+     */
+    public static DistanceMatrix of(double[] lat, double[] lon, boolean singlePrecision) {
+        return of(lat, lon, singlePrecision, null, null);
+    }
+
+    /**
+     * Build a matrix reusing the cells of a previous one built for an
+     * overlapping set of points: reuse[i] is the index in previous of point i,
+     * or -1 for a new point. Cells between two reused points are copied, only
+     * the others are computed.
+     */
+    public static DistanceMatrix of(double[] lat, double[] lon, boolean singlePrecision,
+            DistanceMatrix previous, int[] reuse) {
+        int m = lat.length;
+        DistanceMatrix matrix = new DistanceMatrix(m, singlePrecision);
+        GeoPoints points = new GeoPoints(lat, lon);
+
+        if (m < PARALLEL_THRESHOLD) {
+            matrix.fillRows(0, m, points, previous, reuse);
+        } else {
+            // triangular rows get shorter towards the end; small tiles let
+            // work-stealing balance the load
+            int tiles = (m + TILE_ROWS - 1) / TILE_ROWS;
+            IntStream.range(0, tiles).parallel().forEach(t -> {
+                int from = t * TILE_ROWS;
+                matrix.fillRows(from, Math.min(m, from + TILE_ROWS), points, previous, reuse);
+            });
+        }
+        return matrix;
+    }
+
+    // each row is one batch kernel call, written straight into the flat
+    // storage (through a scratch row when storing floats); rows of reused
+    // points copy their reused cells
+    private void fillRows(int from, int to, GeoPoints points, DistanceMatrix previous, int[] reuse) {
+        double[] scratch = doubles == null ? new double[size] : null;
+        for (int i = from; i < to; i++) {
+            if (previous != null && reuse[i] >= 0) {
+                for (int j = i + 1, k = rowStart[i]; j < size; j++, k++) {
+                    double d = reuse[j] >= 0 ? previous.get(reuse[i], reuse[j]) : points.distance(i, j);
+                    if (doubles != null)
+                        doubles[k] = d;
+                    else
+                        floats[k] = (float) d;
+                }
+            } else if (doubles != null) {
+                points.distancesFrom(i, i + 1, size, doubles, rowStart[i]);
+            } else {
+                points.distancesFrom(i, i + 1, size, scratch, 0);
+                for (int j = i + 1, k = rowStart[i]; j < size; j++, k++)
+                    floats[k] = (float) scratch[j - i - 1];
+            }
+        }
+    }
+
+    /**
+     * Number of points (warehouse included).
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isSinglePrecision() {
+        return floats != null;
+    }
+
+    /**
+     * Approximate heap footprint in bytes.
+     */
+    public long memoryBytes() {
+        long cells = doubles != null ? (long) doubles.length * Double.BYTES : (long) floats.length * Float.BYTES;
+        return cells + (long) rowStart.length * Integer.BYTES;
+    }
+
+    /**
+     * Distance between points i and j (point 0 is the warehouse).
+     */
+    public double get(int i, int j) {
+        if (i == j)
+            return 0.0;
+        if (i > j) {
+            int tmp = i;
+            i = j;
+            j = tmp;
+        }
+        int idx = rowStart[i] + (j - i - 1);
+        return doubles != null ? doubles[idx] : floats[idx];
+    }
+
+    /**
+     * Distance from the warehouse to delivery k (index in the input list).
+     */
+    public double fromDepot(int k) {
+        return get(0, k + 1);
+    }
+
+    /**
+     * Distance between deliveries a and b (indexes in the input list).
+     */
+    public double between(int a, int b) {
+        return get(a + 1, b + 1);
+    }
+
+    /**
+     * For every delivery, the indexes of its k nearest other deliveries
+     * (closest first), as a flat array where delivery i's neighbours are at
+     * [i*k, (i+1)*k). k is capped at the number of deliveries minus one.
+     * Rows are computed in parallel on the common ForkJoin pool.
+     */
+    public int[] nearestNeighbors(int k) {
+        int n = size - 1;
+        int kk = Math.max(0, Math.min(k, n - 1));
+        int[] result = new int[n * kk];
+        if (kk == 0)
+            return result;
+        IntStream rows = IntStream.range(0, n);
+        if (n >= PARALLEL_THRESHOLD)
+            rows = rows.parallel();
+        rows.forEach(i -> {
+            // insertion into a small sorted buffer; most candidates are rejected
+            // by the comparison against the current k-th best
+            double[] bestDist = new double[kk];
+            int base = i * kk;
+            int count = 0;
+            for (int j = 0; j < n; j++) {
+                if (j == i)
+                    continue;
+                double d = between(i, j);
+                if (count == kk && d >= bestDist[kk - 1])
+                    continue;
+                int pos = count < kk ? count++ : kk - 1;
+                while (pos > 0 && bestDist[pos - 1] > d) {
+                    bestDist[pos] = bestDist[pos - 1];
+                    result[base + pos] = result[base + pos - 1];
+                    pos--;
+                }
+                bestDist[pos] = d;
+                result[base + pos] = j;
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Length of a tour that leaves the warehouse, visits the given deliveries
+     * (indexes in the input list) in order and returns to the warehouse.
+     */
+    public double tourLength(int[] order) {
+        if (order.length == 0)
+            return 0.0;
+        double total = fromDepot(order[0]);
+        for (int i = 1; i < order.length; i++) {
+            total += between(order[i - 1], order[i]);
+        }
+        return total + fromDepot(order[order.length - 1]);
+    }
+}
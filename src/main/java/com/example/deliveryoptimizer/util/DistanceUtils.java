@@ -2,6 +2,9 @@ package com.example.deliveryoptimizer.util;
 
 /**
  * Utility class for geographic distance calculations.
+ *
+ * For many distances at once use {@link GeoPoints}, which precomputes the
+ * per-point terms once; loops measuring from one point use {@link Origin}.
  */
 public class DistanceUtils {
 
@@ -15,16 +18,46 @@ public class DistanceUtils {
      * @return distance in meters
      */
     public static double haversine(double lat1, double lon1, double lat2, double lon2) {
-        final int R = 6_371_000; // Earth radius in meters
         double phi1 = Math.toRadians(lat1);
         double phi2 = Math.toRadians(lat2);
-        double deltaPhi = Math.toRadians(lat2 - lat1);
-        double deltaLambda = Math.toRadians(lon2 - lon1);
+        return haversineRadians(phi1, Math.toRadians(lon1), Math.cos(phi1), phi2, Math.toRadians(lon2),
+                Math.cos(phi2));
+    }
+
+    /**
+     * Haversine between two points given in radians with the cosine of their
+     * latitude, for loops that compute each point's terms once.
+     */
+    public static double haversineRadians(double lat1, double lon1, double cosLat1, double lat2, double lon2,
+            double cosLat2) {
+        double sinHalfDeltaPhi = Math.sin((lat2 - lat1) / 2);
+        double sinHalfDeltaLambda = Math.sin((lon2 - lon1) / 2);
+        double a = sinHalfDeltaPhi * sinHalfDeltaPhi + cosLat1 * cosLat2 * sinHalfDeltaLambda * sinHalfDeltaLambda;
+        return 2 * GeoPoints.EARTH_RADIUS * Math.asin(Math.sqrt(Math.min(1.0, a)));
+    }
+
+    /**
+     * A point distances are measured from, with its terms computed once.
+     */
+    public static final class Origin {
+        private final double lat;
+        private final double lon;
+        private final double cosLat;
+
+        public Origin(double latDeg, double lonDeg) {
+            this.lat = Math.toRadians(latDeg);
+            this.lon = Math.toRadians(lonDeg);
+            this.cosLat = Math.cos(lat);
+        }
 
-        double a = Math.sin(deltaPhi / 2) * Math.sin(deltaPhi / 2)
-                + Math.cos(phi1) * Math.cos(phi2) * Math.sin(deltaLambda / 2) * Math.sin(deltaLambda / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        return R * c;
+        /**
+         * Same distance as {@link DistanceUtils#haversine(double, double, double, double)}
+         * from this origin to the point (degrees).
+         */
+        public double distanceTo(double latDeg, double lonDeg) {
+            double phi = Math.toRadians(latDeg);
+            return haversineRadians(lat, lon, cosLat, phi, Math.toRadians(lonDeg), Math.cos(phi));
+        }
     }
 
     /**
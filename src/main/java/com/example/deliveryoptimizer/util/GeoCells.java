@@ -0,0 +1,101 @@
+package com.example.deliveryoptimizer.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed world grid of 0.01 x 0.01 degree cells (about 1.1 km north-south)
+ * used to index positions in the database.
+ *
+ * The cell id is row * COLS + col, rows counted from the south pole and
+ * columns from the antimeridian, so the cells of one row are consecutive ids:
+ * a box is covered by one id range per row, each an index range scan.
+ *
+ * The same formula is used by the backfill of changelog v6 (in SQL); ranges
+ * are padded by one cell so a point whose cell was rounded differently on
+ * the database side is still found.
+ */
+public final class GeoCells {
+
+    public static final int CELLS_PER_DEGREE = 100;
+    public static final int ROWS = 180 * CELLS_PER_DEGREE;
+    public static final int COLS = 360 * CELLS_PER_DEGREE;
+
+    // above this many rows a box is covered by one range of whole rows
+    private static final int MAX_ROW_RANGES = 128;
+
+    private GeoCells() {
+    }
+
+    public static long cellOf(double latDeg, double lonDeg) {
+        return (long) row(latDeg) * COLS + col(lonDeg);
+    }
+
+    static int row(double latDeg) {
+        return (int) Math.max(0, Math.min(ROWS - 1, Math.floor((latDeg + 90) * CELLS_PER_DEGREE)));
+    }
+
+    static int col(double lonDeg) {
+        return (int) Math.max(0, Math.min(COLS - 1, Math.floor((lonDeg + 180) * CELLS_PER_DEGREE)));
+    }
+
+    /**
+     * Box (minLat, maxLat, minLon, maxLon, in degrees) containing every
+     * point within radiusMeters of the center. minLon &gt; maxLon when the
+     * box crosses the antimeridian; the longitudes span the whole world when
+     * the circle contains a pole.
+     */
+    public static double[] boundingBox(double latDeg, double lonDeg, double radiusMeters) {
+        double dLat = Math.toDegrees(radiusMeters / GeoPoints.EARTH_RADIUS);
+        double minLat = latDeg - dLat;
+        double maxLat = latDeg + dLat;
+        if (minLat <= -90 || maxLat >= 90)
+            return new double[] { Math.max(-90, minLat), Math.min(90, maxLat), -180, 180 };
+        // widest point of the circle is nearer the pole than the center
+        double sinR = Math.sin(radiusMeters / GeoPoints.EARTH_RADIUS);
+        double ratio = sinR / Math.cos(Math.toRadians(latDeg));
+        if (ratio >= 1)
+            return new double[] { minLat, maxLat, -180, 180 };
+        double dLon = Math.toDegrees(Math.asin(ratio));
+        if (dLon >= 180)
+            return new double[] { minLat, maxLat, -180, 180 };
+        double minLon = lonDeg - dLon;
+        double maxLon = lonDeg + dLon;
+        if (minLon < -180)
+            minLon += 360;
+        if (maxLon > 180)
+            maxLon -= 360;
+        return new double[] { minLat, maxLat, minLon, maxLon };
+    }
+
+    /**
+     * Cell id ranges {from, to} (inclusive) covering the box, padded by one
+     * cell on each side.
+     *
+     * @param box minLat, maxLat, minLon, maxLon (minLon &gt; maxLon when
+     *            crossing the antimeridian)
+     */
+    public static List<long[]> ranges(double[] box) {
+        int r0 = Math.max(0, row(box[0]) - 1);
+        int r1 = Math.min(ROWS - 1, row(box[1]) + 1);
+        List<long[]> ranges = new ArrayList<>();
+        if (r1 - r0 + 1 > MAX_ROW_RANGES) {
+            ranges.add(new long[] { (long) r0 * COLS, (long) r1 * COLS + COLS - 1 });
+            return ranges;
+        }
+        boolean crossing = box[2] > box[3];
+        int c0 = col(box[2]) - 1;
+        int c1 = col(box[3]) + 1;
+        for (int r = r0; r <= r1; r++) {
+            long base = (long) r * COLS;
+            if (!crossing) {
+                ranges.add(new long[] { base + Math.max(0, c0), base + Math.min(COLS - 1, c1) });
+            } else {
+                // [c0, east edge] and [west edge, c1]
+                ranges.add(new long[] { base + Math.max(0, c0), base + COLS - 1 });
+                ranges.add(new long[] { base, base + Math.min(COLS - 1, c1) });
+            }
+        }
+        return ranges;
+    }
+}
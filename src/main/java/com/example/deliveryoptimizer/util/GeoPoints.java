@@ -0,0 +1,187 @@
+package com.example.deliveryoptimizer.util;
+
+/**
+ * Batch great-circle distance kernel over points stored as structure of
+ * arrays.
+ *
+ * Everything that only depends on one point is computed once in the
+ * constructor: sin/cos of half the latitude and longitude (radians) and
+ * cos(latitude). With the angle-difference identities
+ * sin((b - a) / 2) = sin(b/2) cos(a/2) - cos(b/2) sin(a/2), a Haversine
+ * distance then needs no trigonometric call at all, only multiplications, one
+ * sqrt and one asin, in straight loops over primitive arrays that the JIT can
+ * unroll (and vectorize where the platform allows).
+ *
+ * Distances agree with
+ * {@link DistanceUtils#haversine(double, double, double, double)} up to
+ * floating-point rounding.
+ *
+ * The equirectangular variant trades accuracy for speed on short (urban)
+ * distances: pairs further apart than {@link #FAST_PATH_MAX_METERS} are
+ * recomputed with Haversine, which bounds its relative error (see
+ * {@link #FAST_PATH_MAX_RELATIVE_ERROR}).
+ */
+public final class GeoPoints {
+
+    public static final double EARTH_RADIUS = 6_371_000.0;
+
+    /** Equirectangular distances above this are recomputed exactly. */
+    public static final double FAST_PATH_MAX_METERS = 50_000.0;
+
+    /**
+     * Bound on the equirectangular relative error below
+     * {@link #FAST_PATH_MAX_METERS}, for latitudes within +/-70 degrees.
+     */
+    public static final double FAST_PATH_MAX_RELATIVE_ERROR = 1e-4;
+
+    /**
+     * Number of values {@link #prepare(double, double, double[], int)} writes
+     * for one point.
+     */
+    public static final int PREPARED_STRIDE = 5;
+
+    private static final double FAST_PATH_MAX_RAD = FAST_PATH_MAX_METERS / EARTH_RADIUS;
+
+    private final int size;
+    private final double[] latRad;
+    private final double[] lonRad;
+    private final double[] cosLat;
+    private final double[] sinHalfLat;
+    private final double[] cosHalfLat;
+    private final double[] sinHalfLon;
+    private final double[] cosHalfLon;
+
+    /**
+     * @param latDeg latitudes in degrees
+     * @param lonDeg longitudes in degrees (same length)
+     */
+    public GeoPoints(double[] latDeg, double[] lonDeg) {
+        size = latDeg.length;
+        latRad = new double[size];
+        lonRad = new double[size];
+        cosLat = new double[size];
+        sinHalfLat = new double[size];
+        cosHalfLat = new double[size];
+        sinHalfLon = new double[size];
+        cosHalfLon = new double[size];
+        for (int i = 0; i < size; i++) {
+            double la = Math.toRadians(latDeg[i]);
+            double lo = Math.toRadians(lonDeg[i]);
+            latRad[i] = la;
+            lonRad[i] = lo;
+            cosLat[i] = Math.cos(la);
+            sinHalfLat[i] = Math.sin(la / 2);
+            cosHalfLat[i] = Math.cos(la / 2);
+            sinHalfLon[i] = Math.sin(lo / 2);
+            cosHalfLon[i] = Math.cos(lo / 2);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Haversine distance (meters) between points i and j.
+     */
+    public double distance(int i, int j) {
+        return haversine(sinHalfLat[i], cosHalfLat[i], sinHalfLon[i], cosHalfLon[i], cosLat[i],
+                sinHalfLat[j], cosHalfLat[j], sinHalfLon[j], cosHalfLon[j], cosLat[j]);
+    }
+
+    /**
+     * Distance from a point prepared with
+     * {@link #prepare(double, double, double[], int)} to point j.
+     */
+    public double distance(double[] prepared, int offset, int j) {
+        return haversine(prepared[offset], prepared[offset + 1], prepared[offset + 2], prepared[offset + 3],
+                prepared[offset + 4], sinHalfLat[j], cosHalfLat[j], sinHalfLon[j], cosHalfLon[j], cosLat[j]);
+    }
+
+    /**
+     * One-to-many: distances from point i to points from..to-1, written to
+     * out[offset..].
+     */
+    public void distancesFrom(int i, int from, int to, double[] out, int offset) {
+        row(sinHalfLat[i], cosHalfLat[i], sinHalfLon[i], cosHalfLon[i], cosLat[i], from, to, out, offset);
+    }
+
+    /**
+     * Many-to-many: out[i * other.size() + j] = distance from point i of this
+     * set to point j of the other set.
+     */
+    public void distancesTo(GeoPoints other, double[] out) {
+        for (int i = 0; i < size; i++) {
+            other.row(sinHalfLat[i], cosHalfLat[i], sinHalfLon[i], cosHalfLon[i], cosLat[i],
+                    0, other.size, out, i * other.size);
+        }
+    }
+
+    /**
+     * Equirectangular fast path of {@link #distancesFrom(int, int, int, double[], int)}:
+     * no transcendental call per pair (x = dLon * mean cos(lat), y = dLat);
+     * pairs further apart than {@link #FAST_PATH_MAX_METERS} fall back to
+     * Haversine, so the relative error stays below
+     * {@link #FAST_PATH_MAX_RELATIVE_ERROR} within +/-70 degrees of latitude.
+     */
+    public void approxDistancesFrom(int i, int from, int to, double[] out, int offset) {
+        double la = latRad[i];
+        double lo = lonRad[i];
+        double c = cosLat[i];
+        // straight loop first, the fallback pass only recomputes long pairs
+        for (int j = from; j < to; j++) {
+            double x = (lonRad[j] - lo) * (0.5 * (c + cosLat[j]));
+            double y = latRad[j] - la;
+            out[offset + j - from] = EARTH_RADIUS * Math.sqrt(x * x + y * y);
+        }
+        for (int j = from; j < to; j++) {
+            if (out[offset + j - from] > FAST_PATH_MAX_METERS
+                    || Math.abs(lonRad[j] - lo) > FAST_PATH_MAX_RAD / Math.max(c, 1e-3))
+                out[offset + j - from] = distance(i, j);
+        }
+    }
+
+    private void row(double sla, double cla, double slo, double clo, double cl, int from, int to,
+            double[] out, int offset) {
+        for (int j = from; j < to; j++) {
+            out[offset + j - from] = haversine(sla, cla, slo, clo, cl,
+                    sinHalfLat[j], cosHalfLat[j], sinHalfLon[j], cosHalfLon[j], cosLat[j]);
+        }
+    }
+
+    /**
+     * Precompute the per-point terms of one position (degrees) into
+     * out[offset..offset + PREPARED_STRIDE), for callers that keep their own
+     * point storage (e.g. a route that grows).
+     */
+    public static void prepare(double latDeg, double lonDeg, double[] out, int offset) {
+        double la = Math.toRadians(latDeg);
+        double lo = Math.toRadians(lonDeg);
+        out[offset] = Math.sin(la / 2);
+        out[offset + 1] = Math.cos(la / 2);
+        out[offset + 2] = Math.sin(lo / 2);
+        out[offset + 3] = Math.cos(lo / 2);
+        out[offset + 4] = Math.cos(la);
+    }
+
+    /**
+     * Distance between two prepared points.
+     */
+    public static double distance(double[] a, int offsetA, double[] b, int offsetB) {
+        return haversine(a[offsetA], a[offsetA + 1], a[offsetA + 2], a[offsetA + 3], a[offsetA + 4],
+                b[offsetB], b[offsetB + 1], b[offsetB + 2], b[offsetB + 3], b[offsetB + 4]);
+    }
+
+    /**
+     * Haversine from precomputed half-angle sines/cosines and cos(latitude).
+     */
+    static double haversine(double sinHalfLat1, double cosHalfLat1, double sinHalfLon1, double cosHalfLon1,
+            double cosLat1, double sinHalfLat2, double cosHalfLat2, double sinHalfLon2, double cosHalfLon2,
+            double cosLat2) {
+        // sin((lat2 - lat1) / 2) and sin((lon2 - lon1) / 2)
+        double sdLat = sinHalfLat2 * cosHalfLat1 - cosHalfLat2 * sinHalfLat1;
+        double sdLon = sinHalfLon2 * cosHalfLon1 - cosHalfLon2 * sinHalfLon1;
+        double a = sdLat * sdLat + cosLat1 * cosLat2 * sdLon * sdLon;
+        return 2 * EARTH_RADIUS * Math.asin(Math.sqrt(Math.min(1.0, a)));
+    }
+}
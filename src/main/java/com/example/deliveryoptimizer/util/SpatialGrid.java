@@ -0,0 +1,314 @@
+package com.example.deliveryoptimizer.util;
+
+import java.util.stream.IntStream;
+
+/**
+ * Uniform lat/lon grid over a fixed set of points that answers "nearest
+ * remaining point" queries (Haversine meters) and supports removal.
+ *
+ * Points are bucketed by cell in one flat array (CSR layout). A query scans
+ * rings of cells around the query position and stops as soon as a lower
+ * bound on the distance to the next ring exceeds the best distance found, so
+ * with ~2 points per cell a query touches a handful of cells. Removal swaps
+ * the point out of its cell's live segment in O(1).
+ *
+ * {@link #nearestNeighbors(int)} runs the same ring search for every point,
+ * keeping the k best instead of one, which replaces the O(n^2) scan of
+ * {@link DistanceMatrix#nearestNeighbors(int)} when no matrix is wanted.
+ *
+ * Ties on distance are resolved in favour of the smaller point index, so
+ * callers can encode their own tie-break by ordering the input arrays.
+ */
+public final class SpatialGrid {
+
+    private static final double EARTH_RADIUS = GeoPoints.EARTH_RADIUS;
+
+    // target average number of points per cell
+    private static final double POINTS_PER_CELL = 2.0;
+
+    // safety margin (meters) so rounding in the bounds never prunes a tie
+    private static final double BOUND_EPSILON = 1e-6;
+
+    // below this number of points the neighbour lists are built on the calling thread
+    private static final int PARALLEL_THRESHOLD = 256;
+
+    private final GeoPoints geo;
+    private final double[] lat;
+    private final double[] lon;
+
+    private final double minLat;
+    private final double minLon;
+    private final double maxLon;
+    private final double cellLat;
+    private final double cellLon;
+    private final int rows;
+    private final int cols;
+
+    // cellStart[c] .. cellStart[c] + cellCount[c] are the live points of cell c
+    private final int[] cellStart;
+    private final int[] cellCount;
+    private final int[] points;
+    // position of each point in 'points', and its cell
+    private final int[] slot;
+    private final int[] cellOf;
+
+    // cos of the highest absolute latitude, for longitude lower bounds
+    private final double cosMaxLat;
+
+    private int remaining;
+
+    public SpatialGrid(double[] lat, double[] lon) {
+        int n = lat.length;
+        this.geo = new GeoPoints(lat, lon);
+        this.lat = lat;
+        this.lon = lon;
+
+        double loLat = Double.POSITIVE_INFINITY, hiLat = Double.NEGATIVE_INFINITY;
+        double loLon = Double.POSITIVE_INFINITY, hiLon = Double.NEGATIVE_INFINITY;
+        double maxAbsLat = 0.0;
+        for (int i = 0; i < n; i++) {
+            loLat = Math.min(loLat, lat[i]);
+            hiLat = Math.max(hiLat, lat[i]);
+            loLon = Math.min(loLon, lon[i]);
+            hiLon = Math.max(hiLon, lon[i]);
+            maxAbsLat = Math.max(maxAbsLat, Math.abs(lat[i]));
+        }
+        if (n == 0) {
+            loLat = hiLat = loLon = hiLon = 0.0;
+        }
+
+        double spanLat = Math.max(hiLat - loLat, 1e-9);
+        double spanLon = Math.max(hiLon - loLon, 1e-9);
+        // choose cells that are roughly square on the ground
+        double groundLon = spanLon * Math.max(Math.cos(Math.toRadians((loLat + hiLat) / 2)), 1e-3);
+        double cells = Math.max(1.0, n / POINTS_PER_CELL);
+        double side = Math.sqrt(spanLat * groundLon / cells);
+        int r = (int) Math.max(1, Math.min(cells, Math.ceil(spanLat / side)));
+        int c = (int) Math.max(1, Math.min(cells, Math.ceil(groundLon / side)));
+
+        this.minLat = loLat;
+        this.minLon = loLon;
+        this.maxLon = hiLon;
+        this.rows = r;
+        this.cols = c;
+        this.cellLat = spanLat / r;
+        this.cellLon = spanLon / c;
+        this.cosMaxLat = Math.cos(Math.toRadians(maxAbsLat));
+
+        this.cellStart = new int[r * c + 1];
+        this.cellCount = new int[r * c];
+        this.points = new int[n];
+        this.slot = new int[n];
+        this.cellOf = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            cellOf[i] = row(lat[i]) * cols + col(lon[i]);
+            cellCount[cellOf[i]]++;
+        }
+        for (int k = 0; k < r * c; k++) {
+            cellStart[k + 1] = cellStart[k] + cellCount[k];
+        }
+        int[] fill = new int[r * c];
+        for (int i = 0; i < n; i++) {
+            int k = cellOf[i];
+            int p = cellStart[k] + fill[k]++;
+            points[p] = i;
+            slot[i] = p;
+        }
+        this.remaining = n;
+    }
+
+    /**
+     * Number of points not yet removed.
+     */
+    public int size() {
+        return remaining;
+    }
+
+    /**
+     * The points of the grid, for distances between them.
+     */
+    public GeoPoints points() {
+        return geo;
+    }
+
+    /**
+     * Remove point i from future queries.
+     */
+    public void remove(int i) {
+        int k = cellOf[i];
+        int last = cellStart[k] + cellCount[k] - 1;
+        int p = slot[i];
+        int moved = points[last];
+        points[p] = moved;
+        slot[moved] = p;
+        points[last] = i;
+        slot[i] = last;
+        cellCount[k]--;
+        remaining--;
+    }
+
+    /**
+     * Index of the remaining point closest to (qLat, qLon), smaller index on
+     * ties, or -1 when no point remains.
+     */
+    public int nearest(double qLat, double qLon) {
+        if (remaining == 0)
+            return -1;
+        double[] q = new double[GeoPoints.PREPARED_STRIDE];
+        GeoPoints.prepare(qLat, qLon, q, 0);
+        double qCos = q[4];
+        int qr = row(qLat);
+        int qc = col(qLon);
+        // the longitude bound ignores wrap-around, so only trust it below 180 degrees
+        double lonFactor = Math.max(maxLon, qLon) - Math.min(minLon, qLon) <= 180.0
+                ? Math.sqrt(qCos * cosMaxLat)
+                : 0.0;
+
+        int best = -1;
+        double bestDist = Double.POSITIVE_INFINITY;
+        for (int ring = 0;; ring++) {
+            int r0 = qr - ring, r1 = qr + ring, c0 = qc - ring, c1 = qc + ring;
+            if (r0 < 0 && r1 >= rows && c0 < 0 && c1 >= cols)
+                break; // ring lies entirely outside the grid
+            if (best >= 0 && ringLowerBound(qLat, qLon, lonFactor, ring, qr, qc) > bestDist + BOUND_EPSILON)
+                break;
+
+            for (int rr = Math.max(r0, 0); rr <= Math.min(r1, rows - 1); rr++) {
+                boolean edgeRow = rr == r0 || rr == r1;
+                // inner rows only contribute their two border cells
+                int step = edgeRow ? 1 : Math.max(1, c1 - c0);
+                for (int cc = c0; cc <= c1; cc += step) {
+                    if (cc < 0 || cc >= cols)
+                        continue;
+                    int k = rr * cols + cc;
+                    int end = cellStart[k] + cellCount[k];
+                    for (int p = cellStart[k]; p < end; p++) {
+                        int i = points[p];
+                        double d = geo.distance(q, 0, i);
+                        if (d < bestDist || (d == bestDist && i < best)) {
+                            bestDist = d;
+                            best = i;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * For every point, the indexes of its k nearest other points (closest
+     * first, smaller index on ties), as a flat array where point i's
+     * neighbours are at [i*k, (i+1)*k). k is capped at the number of points
+     * minus one. Meant for a grid no point was removed from; rows are
+     * computed in parallel on the common ForkJoin pool.
+     */
+    public int[] nearestNeighbors(int k) {
+        int n = lat.length;
+        int kk = Math.max(0, Math.min(k, n - 1));
+        int[] result = new int[n * kk];
+        if (kk == 0)
+            return result;
+        IntStream rows = IntStream.range(0, n);
+        if (n >= PARALLEL_THRESHOLD)
+            rows = rows.parallel();
+        rows.forEach(i -> nearestOf(i, kk, result, i * kk));
+        return result;
+    }
+
+    // ring search around point i keeping the kk best in a small sorted buffer
+    private void nearestOf(int i, int kk, int[] out, int base) {
+        double qLat = lat[i];
+        double qLon = lon[i];
+        double qCos = Math.cos(Math.toRadians(qLat));
+        int qr = row(qLat);
+        int qc = col(qLon);
+        double lonFactor = Math.max(maxLon, qLon) - Math.min(minLon, qLon) <= 180.0
+                ? Math.sqrt(qCos * cosMaxLat)
+                : 0.0;
+
+        double[] bestDist = new double[kk];
+        int count = 0;
+        for (int ring = 0;; ring++) {
+            int r0 = qr - ring, r1 = qr + ring, c0 = qc - ring, c1 = qc + ring;
+            if (r0 < 0 && r1 >= rows && c0 < 0 && c1 >= cols)
+                break;
+            if (count == kk
+                    && ringLowerBound(qLat, qLon, lonFactor, ring, qr, qc) > bestDist[kk - 1] + BOUND_EPSILON)
+                break;
+
+            for (int rr = Math.max(r0, 0); rr <= Math.min(r1, rows - 1); rr++) {
+                boolean edgeRow = rr == r0 || rr == r1;
+                int step = edgeRow ? 1 : Math.max(1, c1 - c0);
+                for (int cc = c0; cc <= c1; cc += step) {
+                    if (cc < 0 || cc >= cols)
+                        continue;
+                    int c = rr * cols + cc;
+                    int end = cellStart[c] + cellCount[c];
+                    for (int p = cellStart[c]; p < end; p++) {
+                        int j = points[p];
+                        if (j == i)
+                            continue;
+                        double d = geo.distance(i, j);
+                        if (count == kk && !closer(d, j, bestDist[kk - 1], out[base + kk - 1]))
+                            continue;
+                        int pos = count < kk ? count++ : kk - 1;
+                        while (pos > 0 && closer(d, j, bestDist[pos - 1], out[base + pos - 1])) {
+                            bestDist[pos] = bestDist[pos - 1];
+                            out[base + pos] = out[base + pos - 1];
+                            pos--;
+                        }
+                        bestDist[pos] = d;
+                        out[base + pos] = j;
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean closer(double d, int j, double otherDist, int other) {
+        return d < otherDist || (d == otherDist && j < other);
+    }
+
+    /**
+     * Lower bound (meters) on the distance from the query to any point in the
+     * cells of the given ring: the smallest gap between the query and the near
+     * edge of the ring's four sides.
+     */
+    private double ringLowerBound(double qLat, double qLon, double lonFactor, int ring, int qr, int qc) {
+        double bound = Double.POSITIVE_INFINITY;
+        if (qr + ring < rows)
+            bound = Math.min(bound, latMeters(minLat + (qr + ring) * cellLat - qLat));
+        if (qr - ring >= 0)
+            bound = Math.min(bound, latMeters(qLat - (minLat + (qr - ring + 1) * cellLat)));
+        if (qc + ring < cols)
+            bound = Math.min(bound, lonMeters(minLon + (qc + ring) * cellLon - qLon, lonFactor));
+        if (qc - ring >= 0)
+            bound = Math.min(bound, lonMeters(qLon - (minLon + (qc - ring + 1) * cellLon), lonFactor));
+        return bound;
+    }
+
+    private static double latMeters(double gapDeg) {
+        return gapDeg <= 0 ? 0.0 : EARTH_RADIUS * Math.toRadians(gapDeg);
+    }
+
+    private static double lonMeters(double gapDeg, double lonFactor) {
+        if (gapDeg <= 0 || lonFactor == 0.0)
+            return 0.0;
+        // haversine 'a' is at least cos(lat1) cos(lat2) sin^2(dLon/2), and both
+        // cosines are bounded below by the query's and the grid's smallest cosine
+        double gap = Math.min(gapDeg, 180.0);
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1.0, lonFactor * Math.sin(Math.toRadians(gap) / 2)));
+    }
+
+    private int row(double la) {
+        int r = (int) Math.floor((la - minLat) / cellLat);
+        return Math.max(0, Math.min(rows - 1, r));
+    }
+
+    private int col(double lo) {
+        int c = (int) Math.floor((lo - minLon) / cellLon);
+        return Math.max(0, Math.min(cols - 1, c));
+    }
+}
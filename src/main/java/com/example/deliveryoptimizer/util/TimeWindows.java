@@ -0,0 +1,95 @@
+package com.example.deliveryoptimizer.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parsing of "HH:mm-HH:mm" time slots (Customer.preferredTimeSlot,
+ * Warehouse.openingHours) into minutes since midnight.
+ *
+ * A window is packed into one int (start in the high 16 bits, end in the low
+ * 16 bits) so optimizers can keep them in primitive arrays. Parsed values are
+ * cached by slot string: a day only has a handful of distinct slots, so each
+ * one is parsed once no matter how many customers share it.
+ *
+ * Missing or malformed slots mean "no constraint" ({@link #ANY}). A slot
+ * ending before it starts ("22:00-02:00") ends on the next day.
+ */
+public final class TimeWindows {
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    /** Whole day plus the following one (covers overnight slots). */
+    public static final int ANY = pack(0, 2 * MINUTES_PER_DAY);
+
+    // distinct slot strings kept; beyond that slots are parsed on every call
+    private static final int CACHE_LIMIT = 4096;
+
+    private static final Map<String, Integer> CACHE = new ConcurrentHashMap<>();
+
+    private TimeWindows() {
+    }
+
+    /**
+     * Packed window for a slot string (cached).
+     */
+    public static int parse(String slot) {
+        if (slot == null || slot.isBlank())
+            return ANY;
+        Integer cached = CACHE.get(slot);
+        if (cached != null)
+            return cached;
+        int window = parseUncached(slot);
+        if (CACHE.size() < CACHE_LIMIT)
+            CACHE.putIfAbsent(slot, window);
+        return window;
+    }
+
+    public static int start(int window) {
+        return window >>> 16;
+    }
+
+    public static int end(int window) {
+        return window & 0xFFFF;
+    }
+
+    public static int pack(int start, int end) {
+        return start << 16 | end;
+    }
+
+    /**
+     * "HH:mm" for minutes since midnight (wrapping past midnight).
+     */
+    public static String format(double minutes) {
+        int m = (int) Math.round(minutes) % MINUTES_PER_DAY;
+        return String.format("%02d:%02d", m / 60, m % 60);
+    }
+
+    private static int parseUncached(String slot) {
+        String[] parts = slot.trim().split("\\s*-\\s*");
+        if (parts.length != 2)
+            return ANY;
+        int start = minutes(parts[0]);
+        int end = minutes(parts[1]);
+        if (start < 0 || end < 0)
+            return ANY;
+        if (end < start)
+            end += MINUTES_PER_DAY;
+        return pack(start, end);
+    }
+
+    private static int minutes(String hhmm) {
+        int colon = hhmm.indexOf(':');
+        if (colon <= 0 || colon == hhmm.length() - 1)
+            return -1;
+        try {
+            int h = Integer.parseInt(hhmm.substring(0, colon).trim());
+            int m = Integer.parseInt(hhmm.substring(colon + 1).trim());
+            if (h < 0 || h > 24 || m < 0 || m > 59 || h * 60 + m > MINUTES_PER_DAY)
+                return -1;
+            return h * 60 + m;
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.deliveryoptimizer.controller;
+
+import com.example.deliveryoptimizer.entity.Customer;
+import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.DeliveryStatus;
+import com.example.deliveryoptimizer.entity.Tour;
+import com.example.deliveryoptimizer.repository.CustomerRepository;
+import com.example.deliveryoptimizer.repository.DeliveryRepository;
+import com.example.deliveryoptimizer.repository.TourRepository;
+import com.example.deliveryoptimizer.service.TourWriter;
+import com.jayway.jsonpath.JsonPath;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Number of SQL statements behind the delivery listing, status count and
+ * optimize endpoints, request to response (mapping and serialization
+ * included): must not grow with the number of rows (no per-row tour/customer
+ * selects).
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+class DeliveryStatementCountTest {
+
+    // optimized tours are not persisted: the write-behind writer would run
+    // its statements while the optimize request is being counted
+    @TestConfiguration
+    static class NoTourWrites {
+        @Bean
+        @Primary
+        TourWriter discardingTourWriter() {
+            return new TourWriter() {
+                @Override
+                public boolean submit(List<Delivery> ordered, Long vehicleId) {
+                    return true;
+                }
+
+                @Override
+                public boolean flush(long timeoutMs) {
+                    return true;
+                }
+
+                @Override
+                public Stats stats() {
+                    return new Stats(0, 0, 0, 0, 0, 0);
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private EntityManagerFactory emf;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private TourRepository tourRepository;
+
+    @Autowired
+    private DeliveryRepository deliveryRepository;
+
+    private final List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        // every delivery on its own tour and customer: N+1 loads would show
+        transactionTemplate.executeWithoutResult(tx -> {
+            for (int i = 0; i < 30; i++) {
+                Customer customer = customerRepository.save(new Customer("c" + i, "addr", 48.8, 2.3, "09:00-11:00"));
+                Tour tour = tourRepository.save(new Tour(LocalDate.now(), null));
+                Delivery d = new Delivery(48.8 + i * 0.001, 2.3, 1.0, 0.1, DeliveryStatus.PENDING);
+                d.setCustomer(customer);
+                d.setTour(tour);
+                ids.add(deliveryRepository.save(d).getId());
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        deliveryRepository.deleteAllInBatch();
+        tourRepository.deleteAllInBatch();
+        customerRepository.deleteAllInBatch();
+    }
+
+    private Statistics statistics() {
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        return stats;
+    }
+
+    @Test
+    void whenListingDeliveriesByPage_thenOneSelectPlusCountPerPage() throws Exception {
+        Statistics stats = statistics();
+        mvc.perform(get("/api/deliveries").param("page", "0").param("size", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.numberOfElements").value(20));
+        assertEquals(2, stats.getPrepareStatementCount());
+
+        stats = statistics();
+        mvc.perform(get("/api/deliveries").param("status", "PENDING").param("page", "0").param("size", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.numberOfElements").value(20));
+        assertEquals(2, stats.getPrepareStatementCount());
+        assertEquals(0, stats.getEntityLoadCount());
+    }
+
+    @Test
+    void whenListingDeliveriesByCursor_thenOneSelectAndNoCount() throws Exception {
+        Statistics stats = statistics();
+        MvcResult first = mvc.perform(get("/api/deliveries").param("cursor", "").param("size", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(20))
+                .andReturn();
+        String next = JsonPath.read(first.getResponse().getContentAsString(), "$.nextCursor");
+        mvc.perform(get("/api/deliveries").param("status", "PENDING").param("cursor", next).param("size", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(10))
+                .andExpect(jsonPath("$.content[0].id").value(ids.get(20)));
+        assertEquals(2, stats.getPrepareStatementCount());
+    }
+
+    @Test
+    void whenCountingByStatus_thenOneGroupedSelectWithEveryStatus() throws Exception {
+        Statistics stats = statistics();
+        mvc.perform(get("/api/deliveries/status-counts"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(DeliveryStatus.values().length))
+                .andExpect(jsonPath("$.PENDING").value(30))
+                .andExpect(jsonPath("$.DELIVERED").value(0));
+        assertEquals(1, stats.getPrepareStatementCount());
+    }
+
+    @Test
+    void whenOptimizing_thenDeliveriesAndCustomersComeWithOneSelect() throws Exception {
+        String body = "{\"optimizer\":\"nearest\",\"deliveryIds\":["
+                + ids.stream().map(String::valueOf).collect(Collectors.joining(",")) + "]}";
+
+        Statistics stats = statistics();
+        MvcResult result = mvc.perform(post("/api/tours/optimize").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // solved on the optimization executor
+        result.getAsyncResult(10_000);
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(30));
+        assertEquals(1, stats.getPrepareStatementCount());
+        assertEquals(30, stats.getEntityStatistics(Customer.class.getName()).getLoadCount());
+        assertEquals(0, stats.getEntityStatistics(Customer.class.getName()).getFetchCount());
+    }
+}
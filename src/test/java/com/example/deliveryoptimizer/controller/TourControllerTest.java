@@ -0,0 +1,333 @@
+package com.example.deliveryoptimizer.controller;
+
+import com.example.deliveryoptimizer.dto.DeliveryDto;
+import com.example.deliveryoptimizer.dto.TourDto;
+import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.DeliveryStatus;
+import com.example.deliveryoptimizer.entity.Tour;
+import com.example.deliveryoptimizer.entity.Warehouse;
+import com.example.deliveryoptimizer.repository.DeliveryRepository;
+import com.example.deliveryoptimizer.repository.WarehouseRepository;
+import com.example.deliveryoptimizer.service.OptimizationBudget;
+import com.example.deliveryoptimizer.service.OptimizationJob;
+import com.example.deliveryoptimizer.service.OptimizationJobService;
+import com.example.deliveryoptimizer.service.OptimizationResultCache;
+import com.example.deliveryoptimizer.service.TourService;
+import com.example.deliveryoptimizer.service.TourWriter;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TourControllerTest {
+
+    private final Warehouse north = warehouse(1L, 48.90, 2.35);
+    private final Warehouse south = warehouse(2L, 48.80, 2.35);
+    private final List<Delivery> deliveries = new ArrayList<>();
+    private final RecordingTransactionManager transactions = new RecordingTransactionManager();
+    // whether a transaction was open, for each solve and each save
+    private final List<Boolean> solvedInTransaction = Collections.synchronizedList(new ArrayList<>());
+    private final List<Boolean> savedInTransaction = new ArrayList<>();
+
+    TourControllerTest() {
+        for (long id = 1; id <= 6; id++)
+            deliveries.add(new Delivery(id, 48.85 + id * 0.001, 2.35, 1.0, 0.1, DeliveryStatus.PENDING));
+    }
+
+    @Test
+    void whenBatchSucceeds_thenEachWarehouseIsSavedInItsOwnTransaction() {
+        TourController controller = controller(-1L, -1L);
+
+        ResponseEntity<?> response = run(controller, request(1L, 1, 2, 3), request(2L, 4, 5));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        List<Map<String, Object>> entries = entries(response);
+        assertEquals(List.of(1L, 2L, 3L), deliveryIds(entries.get(0)));
+        assertEquals(List.of(4L, 5L), deliveryIds(entries.get(1)));
+        assertEquals(2, transactions.committed);
+        assertEquals(0, transactions.rolledBack);
+        assertEquals(List.of(false, false), solvedInTransaction);
+        assertEquals(List.of(true, true), savedInTransaction);
+    }
+
+    @Test
+    void whenOneSaveAndOneSolveFail_thenTheOtherToursAreStillSaved() {
+        // delivery 4 makes the south save fail, delivery 6 makes its solve fail
+        TourController controller = controller(6L, 4L);
+
+        ResponseEntity<?> response = run(controller, request(1L, 1, 2), request(2L, 3, 4), request(1L, 5, 6));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        List<Map<String, Object>> entries = entries(response);
+        assertEquals(List.of(1L, 2L), deliveryIds(entries.get(0)));
+        assertEquals("tour not persisted", entries.get(1).get("error"));
+        assertFalse(entries.get(1).containsKey("tour"));
+        assertEquals("optimization failed", entries.get(2).get("error"));
+        assertEquals(1, transactions.committed);
+        assertEquals(1, transactions.rolledBack);
+        assertFalse(solvedInTransaction.contains(true));
+    }
+
+    @Test
+    void whenOptimizingWithTimeWindows_thenRequestIsRejectedAndNothingSolved() {
+        TourController controller = controller(-1L, -1L);
+        TourController.OptimizeRequest req = request(1L, 1, 2, 3);
+        req.optimizer = "time_windows";
+
+        DeferredResult<ResponseEntity<?>> result = controller.optimize(req);
+        ResponseEntity<?> batch = run(controller, req, request(2L, 4, 5));
+
+        assertEquals(HttpStatus.BAD_REQUEST, ((ResponseEntity<?>) result.getResult()).getStatusCode());
+        List<Map<String, Object>> entries = entries(batch);
+        assertTrue(String.valueOf(entries.get(0).get("error")).contains("time-windows"));
+        assertEquals(List.of(4L, 5L), deliveryIds(entries.get(1)));
+        // only the second batch request was solved
+        assertEquals(1, solvedInTransaction.size());
+    }
+
+    @Test
+    void whenRemovingDeliveries_thenDistanceIncludesTheGivenWarehouse() {
+        Tour tour = new Tour();
+        deliveries.subList(0, 3).forEach(tour::addDelivery);
+        List<Warehouse> measuredFrom = new ArrayList<>();
+        WarehouseRepository warehouses = stub(WarehouseRepository.class, Map.of(
+                "findById", args -> Optional.of(south)));
+        TourService tourService = stub(TourService.class, Map.of(
+                "removeDeliveries", args -> tour,
+                "getTotalDistance", args -> {
+                    measuredFrom.add((Warehouse) args[1]);
+                    return 0.0;
+                }));
+        TourController controller = new TourController(null, warehouses, tourService, null, null, null, null, null,
+                null, null);
+
+        assertEquals(HttpStatus.OK, controller.removeDeliveries(7L, List.of(2L), 2L).getStatusCode());
+        assertEquals(HttpStatus.OK, controller.removeDeliveries(7L, List.of(2L), null).getStatusCode());
+
+        assertSame(south, measuredFrom.get(0));
+        assertNull(measuredFrom.get(1));
+    }
+
+    @Test
+    void whenSolverPublishes_thenEventsAreSentOnTheEventExecutorLatestFirst() {
+        OptimizationJob job = new OptimizationJob("job-1", OptimizationBudget.unlimited());
+        OptimizationJobService jobs = stub(OptimizationJobService.class, Map.of("get", args -> job));
+        List<Runnable> sends = new ArrayList<>();
+        TourController controller = new TourController(null, null, null, null, null, null, jobs, null, null,
+                sends::add);
+
+        assertEquals(HttpStatus.OK, controller.jobEvents("job-1").getStatusCode());
+        // the solver thread only hands its progress over, three bests make one send
+        job.start();
+        job.getBudget().publish(deliveries, 3000.0);
+        job.getBudget().publish(deliveries, 2000.0);
+        job.getBudget().publish(deliveries, 1000.0);
+        assertEquals(1, sends.size());
+
+        sends.remove(0).run();
+        job.finish(List.of());
+        assertEquals(1, sends.size(), "the final status should be sent on the event executor");
+        sends.remove(0).run();
+        // the stream is closed: later progress is not scheduled
+        job.getBudget().publish(deliveries, 500.0);
+        assertTrue(sends.isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void whenTimeBudgetAnswersFirst_thenOnlyTheAnsweredTourIsPersisted() throws Exception {
+        List<Delivery> first = deliveries.subList(0, 3);
+        List<Delivery> better = List.of(deliveries.get(2), deliveries.get(0), deliveries.get(1));
+        List<List<Delivery>> persisted = new ArrayList<>();
+        List<Runnable> timeouts = new ArrayList<>();
+        List<Runnable> tasks = new ArrayList<>();
+        TourService tourService = stub(TourService.class, Map.of(
+                "calculateTour", args -> {
+                    ((OptimizationBudget) args[3]).publish(first, 3000.0);
+                    // the response timeout fires while the solver still runs
+                    timeouts.forEach(Runnable::run);
+                    return better;
+                }));
+        TourController controller = new TourController(
+                stub(DeliveryRepository.class, Map.of("findWithCustomerByIdIn", args -> first)),
+                null, tourService, new TaskExecutorAdapter(tasks::add), null,
+                stub(OptimizationResultCache.class, Map.of("get", args -> null, "put", args -> null)),
+                null, null,
+                stub(TourWriter.class, Map.of("submit", args -> persisted.add((List<Delivery>) args[0]))),
+                null);
+
+        // answered by the solver: its tour is the one persisted
+        TourController.OptimizeRequest req = request(null, 1, 2, 3);
+        DeferredResult<ResponseEntity<?>> solved = controller.optimize(req);
+        tasks.remove(0).run();
+        assertEquals(List.of(3L, 1L, 2L), answeredIds(solved));
+        assertEquals(List.of(better), persisted);
+
+        // answered on timeout: the best tour so far is persisted instead
+        persisted.clear();
+        req.timeBudgetMs = 50L;
+        DeferredResult<ResponseEntity<?>> timedOut = controller.optimize(req);
+        Field callback = DeferredResult.class.getDeclaredField("timeoutCallback");
+        callback.setAccessible(true);
+        timeouts.add((Runnable) callback.get(timedOut));
+        tasks.remove(0).run();
+        assertEquals(List.of(1L, 2L, 3L), answeredIds(timedOut));
+        assertEquals(List.of(first), persisted);
+    }
+
+    @Test
+    void whenTheDatabaseFails_thenItIsAServerErrorNotABadRequest() {
+        RuntimeException down = new DataAccessResourceFailureException("connection refused");
+        DeliveryRepository failing = stub(DeliveryRepository.class, Map.of(
+                "findWithCustomerByIdIn", args -> {
+                    throw down;
+                },
+                "findAllById", args -> {
+                    throw new InvalidDataAccessApiUsageException("The given id must not be null");
+                }));
+        WarehouseRepository warehouses = stub(WarehouseRepository.class, Map.of("findAllById", args -> List.of()));
+        TourController controller = new TourController(failing, warehouses, null,
+                new TaskExecutorAdapter(Runnable::run), null, null, null, null, null, null);
+
+        // left to the container's error handling, which answers 500
+        assertSame(down, controller.optimize(request(null, 1, 2)).getResult());
+        assertSame(down, controller.optimizeBatch(List.of(request(1L, 1, 2))).getResult());
+        assertThrows(DataAccessResourceFailureException.class,
+                () -> controller.optimizeTimeWindows(request(null, 1, 2)));
+        // a null id is the request's fault
+        assertEquals(HttpStatus.BAD_REQUEST, controller.optimizeFleet(request(null, 1, 2)).getStatusCode());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Long> answeredIds(DeferredResult<ResponseEntity<?>> result) {
+        ResponseEntity<?> response = (ResponseEntity<?>) result.getResult();
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        return ((List<DeliveryDto>) response.getBody()).stream().map(DeliveryDto::getId)
+                .collect(Collectors.toList());
+    }
+
+    private TourController controller(long failSolveOn, long failSaveOn) {
+        WarehouseRepository warehouses = stub(WarehouseRepository.class, Map.of(
+                "findAllById", args -> List.of(north, south)));
+        DeliveryRepository deliveryRepository = stub(DeliveryRepository.class, Map.of(
+                "findWithCustomerByIdIn", args -> deliveries.stream()
+                        .filter(d -> ((Collection<?>) args[0]).contains(d.getId()))
+                        .collect(Collectors.toList())));
+        TourService tourService = stub(TourService.class, Map.of(
+                "calculateTour", args -> {
+                    solvedInTransaction.add(transactions.active);
+                    List<?> route = (List<?>) args[0];
+                    if (containsDelivery(route, failSolveOn))
+                        throw new IllegalStateException("no route");
+                    return route;
+                },
+                "saveTours", args -> {
+                    savedInTransaction.add(transactions.active);
+                    List<Tour> tours = new ArrayList<>();
+                    for (Object route : (List<?>) args[0]) {
+                        if (containsDelivery((List<?>) route, failSaveOn))
+                            throw new IllegalStateException("constraint violation");
+                        Tour tour = new Tour();
+                        for (Object d : (List<?>) route)
+                            tour.addDelivery((Delivery) d);
+                        tours.add(tour);
+                    }
+                    return tours;
+                },
+                "getTotalDistance", args -> 0.0));
+        return new TourController(deliveryRepository, warehouses, tourService, new TaskExecutorAdapter(Runnable::run),
+                new TransactionTemplate(transactions), null, null, ForkJoinPool.commonPool(), null, Runnable::run);
+    }
+
+    private static ResponseEntity<?> run(TourController controller, TourController.OptimizeRequest... reqs) {
+        DeferredResult<ResponseEntity<?>> result = controller.optimizeBatch(List.of(reqs));
+        assertTrue(result.hasResult(), "the batch should have answered");
+        return (ResponseEntity<?>) result.getResult();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> entries(ResponseEntity<?> response) {
+        return (List<Map<String, Object>>) response.getBody();
+    }
+
+    private static List<Long> deliveryIds(Map<String, Object> entry) {
+        assertFalse(entry.containsKey("error"), "unexpected error: " + entry.get("error"));
+        return ((TourDto) entry.get("tour")).getDeliveries().stream().map(d -> d.getId())
+                .collect(Collectors.toList());
+    }
+
+    private static boolean containsDelivery(List<?> route, long id) {
+        return route.stream().anyMatch(d -> ((Delivery) d).getId() == id);
+    }
+
+    private static TourController.OptimizeRequest request(Long warehouseId, long... ids) {
+        TourController.OptimizeRequest req = new TourController.OptimizeRequest();
+        req.warehouseId = warehouseId;
+        for (long id : ids)
+            req.deliveryIds.add(id);
+        return req;
+    }
+
+    private static Warehouse warehouse(Long id, double lat, double lon) {
+        Warehouse w = new Warehouse("Wh" + id, lat, lon, "08:00-18:00");
+        w.setId(id);
+        return w;
+    }
+
+    // interface stub answering the named methods, failing on any other call
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, Map<String, Function<Object[], Object>> answers) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+            Function<Object[], Object> answer = answers.get(method.getName());
+            if (answer == null)
+                throw new UnsupportedOperationException(method.getName());
+            return answer.apply(args);
+        });
+    }
+
+    private static final class RecordingTransactionManager implements PlatformTransactionManager {
+        volatile boolean active;
+        int committed;
+        int rolledBack;
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            active = true;
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            active = false;
+            committed++;
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            active = false;
+            rolledBack++;
+        }
+    }
+}
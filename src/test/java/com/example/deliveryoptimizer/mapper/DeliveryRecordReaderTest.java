@@ -0,0 +1,96 @@
+package com.example.deliveryoptimizer.mapper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeliveryRecordReaderTest {
+
+    private static InputStream body(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<DeliveryRecordReader.Record> readAll(DeliveryRecordReader reader) throws IOException {
+        List<DeliveryRecordReader.Record> records = new ArrayList<>();
+        DeliveryRecordReader.Record r;
+        while ((r = reader.next()) != null)
+            records.add(r);
+        return records;
+    }
+
+    @Test
+    void whenFormatsCarryTheSameDeliveries_thenRecordsAndErrorLinesMatch() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        String csv = "status,longitude,latitude,weight\n"
+                + "PENDING,2.35,48.85,1.5\n"
+                + "\n"
+                + "PENDING,abc,48.85,1.0\n"
+                + ",2.30,48.80,\n";
+        String ndjson = "{\"latitude\":48.85,\"longitude\":2.35,\"weight\":1.5,\"status\":\"PENDING\"}\n"
+                + "\n"
+                + "{\"latitude\":48.85,\"longitude\":\"abc\"}\n"
+                + "{\"latitude\":48.80,\"longitude\":2.30}\n";
+        String json = "[{\"latitude\":48.85,\"longitude\":2.35,\"weight\":1.5,\"status\":\"PENDING\"},\n"
+                + "\n"
+                + " {\"latitude\":48.85,\"longitude\":\"abc\"},\n"
+                + " {\"latitude\":48.80,\"longitude\":2.30}]";
+
+        List<List<DeliveryRecordReader.Record>> all = List.of(
+                readAll(DeliveryRecordReader.csv(body(csv))),
+                readAll(DeliveryRecordReader.ndjson(body(ndjson), mapper)),
+                readAll(DeliveryRecordReader.jsonArray(body(json), mapper)));
+        for (List<DeliveryRecordReader.Record> records : all) {
+            assertEquals(3, records.size());
+            assertEquals(48.85, records.get(0).getDelivery().getLatitude());
+            assertEquals(2.35, records.get(0).getDelivery().getLongitude());
+            assertEquals(1.5, records.get(0).getDelivery().getWeight());
+            assertEquals("PENDING", records.get(0).getDelivery().getStatus());
+            assertNull(records.get(1).getDelivery());
+            assertNotNull(records.get(1).getError());
+            assertNull(records.get(2).getDelivery().getStatus());
+            assertEquals(2.30, records.get(2).getDelivery().getLongitude());
+        }
+        // line numbers of the upload, header and blank lines included
+        assertEquals(4, all.get(0).get(1).getLine());
+        assertEquals(3, all.get(1).get(1).getLine());
+        assertEquals(3, all.get(2).get(1).getLine());
+
+        // malformed JSON ends an array upload with one error
+        List<DeliveryRecordReader.Record> broken = readAll(
+                DeliveryRecordReader.jsonArray(body("[{\"latitude\":1,\"longitude\":2},\n{\"latitude\":"), mapper));
+        assertEquals(2, broken.size());
+        assertNotNull(broken.get(0).getDelivery());
+        assertNotNull(broken.get(1).getError());
+    }
+
+    @Test
+    void whenCsvFieldsAreQuoted_thenCommasQuotesAndLineBreaksStayInTheField() throws IOException {
+        String csv = "\"latitude\",note,longitude,weight,status\n"
+                + "48.85,\"ring twice, then \"\"knock\"\"\",2.35,1.5,PENDING\n"
+                + " 48.80 , \"second floor,\n left door\" ,2.30,,\" PLANNED\"\n"
+                + "48.70,,2.20,1.0,\"unterminated\n";
+
+        List<DeliveryRecordReader.Record> records = readAll(DeliveryRecordReader.csv(body(csv)));
+
+        assertEquals(3, records.size());
+        assertEquals(2.35, records.get(0).getDelivery().getLongitude());
+        assertEquals(1.5, records.get(0).getDelivery().getWeight());
+        assertEquals("PENDING", records.get(0).getDelivery().getStatus());
+        // the quoted field spans two lines, the record keeps the line it starts on
+        assertEquals(48.80, records.get(1).getDelivery().getLatitude());
+        assertEquals(2.30, records.get(1).getDelivery().getLongitude());
+        assertEquals(" PLANNED", records.get(1).getDelivery().getStatus());
+        assertEquals(3, records.get(1).getLine());
+        assertNull(records.get(2).getDelivery());
+        assertEquals("unterminated quoted field", records.get(2).getError());
+        assertEquals(5, records.get(2).getLine());
+    }
+}
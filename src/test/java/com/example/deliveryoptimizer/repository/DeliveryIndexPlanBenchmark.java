@@ -0,0 +1,197 @@
+package com.example.deliveryoptimizer.repository;
+
+import com.example.deliveryoptimizer.entity.DeliveryStatus;
+import liquibase.Contexts;
+import liquibase.LabelExpression;
+import liquibase.Liquibase;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Query plans and timings of the delivery/history access paths on H2, with and
+ * without the v5 indexes. Not a unit test; run by hand:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.deliveryoptimizer.repository.DeliveryIndexPlanBenchmark
+ * </pre>
+ *
+ * The schema comes from the real changelogs; "before" is the same database
+ * after dropping the v5 indexes. H2 indexes foreign key columns on its
+ * own, so tour_id and customer_id lookups are indexed there even before v5
+ * (PostgreSQL does not do that).
+ */
+public class DeliveryIndexPlanBenchmark {
+
+    private static final int DELIVERIES = 200_000;
+    private static final int CUSTOMERS = 2_000;
+    private static final int TOURS = 10_000;
+    private static final int HISTORIES = 200_000;
+    private static final DeliveryStatus[] STATUSES = DeliveryStatus.values();
+    private static final String[] V5_INDEXES = { "idx_deliveries_status_id", "idx_deliveries_tour_id",
+            "idx_deliveries_customer_id", "idx_delivery_histories_customer_date" };
+    private static final int RUNS = 200;
+
+    private static final String[][] QUERIES = {
+            { "status page", "SELECT id, latitude, longitude FROM deliveries WHERE status = ? ORDER BY id LIMIT 20" },
+            { "status keyset page",
+                    "SELECT id, latitude, longitude FROM deliveries WHERE status = ? AND id > ? ORDER BY id LIMIT 20" },
+            { "status count", "SELECT COUNT(*) FROM deliveries WHERE status = ?" },
+            { "status counts", "SELECT status, COUNT(*) FROM deliveries GROUP BY status" },
+            { "tour deliveries", "SELECT id FROM deliveries WHERE tour_id = ?" },
+            { "customer deliveries", "SELECT id FROM deliveries WHERE customer_id = ?" },
+            { "customer history", "SELECT id, delay FROM delivery_histories WHERE customer_id = ? "
+                    + "AND date BETWEEN ? AND ? ORDER BY date" },
+    };
+
+    public static void main(String[] args) throws Exception {
+        try (Connection conn = DriverManager.getConnection("jdbc:h2:mem:plans;DB_CLOSE_DELAY=-1", "sa", "")) {
+            Database database = DatabaseFactory.getInstance()
+                    .findCorrectDatabaseImplementation(new JdbcConnection(conn));
+            Liquibase liquibase = new Liquibase("db/changelog/db.changelog-master.xml",
+                    new ClassLoaderResourceAccessor(), database);
+            liquibase.update(new Contexts(), new LabelExpression());
+            populate(conn);
+
+            System.out.println("=== with v5 indexes ===");
+            report(conn);
+
+            // the status index is rebuilt by v7, so drop the indexes instead of
+            // rolling back changesets
+            try (Statement st = conn.createStatement()) {
+                for (String index : V5_INDEXES)
+                    st.execute("DROP INDEX " + index);
+            }
+            System.out.println("=== without v5 indexes ===");
+            report(conn);
+        }
+    }
+
+    private static void populate(Connection conn) throws Exception {
+        conn.setAutoCommit(false);
+        Random rnd = new Random(1);
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO customers (id, name, latitude, longitude) VALUES (?, ?, ?, ?)")) {
+            for (int i = 1; i <= CUSTOMERS; i++) {
+                ps.setLong(1, i);
+                ps.setString(2, "customer " + i);
+                ps.setDouble(3, 48.7 + rnd.nextDouble() * 0.3);
+                ps.setDouble(4, 2.2 + rnd.nextDouble() * 0.3);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO tours (id, date) VALUES (?, ?)")) {
+            for (int i = 1; i <= TOURS; i++) {
+                ps.setLong(1, i);
+                ps.setDate(2, Date.valueOf(start.plusDays(i % 365)));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO deliveries (id, latitude, longitude, weight, "
+                + "volume, status, tour_id, customer_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (int i = 1; i <= DELIVERIES; i++) {
+                ps.setLong(1, i);
+                ps.setDouble(2, 48.7 + rnd.nextDouble() * 0.3);
+                ps.setDouble(3, 2.2 + rnd.nextDouble() * 0.3);
+                ps.setDouble(4, 1.0);
+                ps.setDouble(5, 0.1);
+                ps.setShort(6, STATUSES[rnd.nextInt(STATUSES.length)].getCode());
+                ps.setLong(7, 1 + rnd.nextInt(TOURS));
+                ps.setLong(8, 1 + rnd.nextInt(CUSTOMERS));
+                ps.addBatch();
+                if (i % 1000 == 0)
+                    ps.executeBatch();
+            }
+            ps.executeBatch();
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO delivery_histories (id, customer_id, tour_id, date, delay) VALUES (?, ?, ?, ?, ?)")) {
+            for (int i = 1; i <= HISTORIES; i++) {
+                ps.setLong(1, i);
+                ps.setLong(2, 1 + rnd.nextInt(CUSTOMERS));
+                ps.setLong(3, 1 + rnd.nextInt(TOURS));
+                ps.setDate(4, Date.valueOf(start.plusDays(rnd.nextInt(365))));
+                ps.setLong(5, rnd.nextInt(60) - 10);
+                ps.addBatch();
+                if (i % 1000 == 0)
+                    ps.executeBatch();
+            }
+            ps.executeBatch();
+        }
+        conn.commit();
+        conn.setAutoCommit(true);
+        try (Statement st = conn.createStatement()) {
+            st.execute("ANALYZE");
+        }
+    }
+
+    private static void report(Connection conn) throws Exception {
+        for (String[] q : QUERIES) {
+            System.out.println("-- " + q[0]);
+            try (PreparedStatement explain = conn.prepareStatement("EXPLAIN " + q[1])) {
+                bind(explain, q[0], 0);
+                try (ResultSet rs = explain.executeQuery()) {
+                    while (rs.next())
+                        System.out.println(rs.getString(1));
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement(q[1])) {
+                for (int i = 0; i < RUNS / 10; i++)
+                    run(ps, q[0], i); // warm-up
+                long t0 = System.nanoTime();
+                for (int i = 0; i < RUNS; i++)
+                    run(ps, q[0], i);
+                System.out.printf("%.3f ms/query%n%n", (System.nanoTime() - t0) / 1e6 / RUNS);
+            }
+        }
+    }
+
+    private static void run(PreparedStatement ps, String name, int i) throws Exception {
+        bind(ps, name, i);
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                // drain
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement ps, String name, int i) throws Exception {
+        switch (name) {
+            case "status counts":
+                break;
+            case "status page":
+            case "status count":
+                ps.setShort(1, STATUSES[i % STATUSES.length].getCode());
+                break;
+            case "status keyset page":
+                ps.setShort(1, STATUSES[i % STATUSES.length].getCode());
+                ps.setLong(2, (long) i * DELIVERIES / RUNS);
+                break;
+            case "tour deliveries":
+                ps.setLong(1, 1 + i * 37L % TOURS);
+                break;
+            case "customer deliveries":
+                ps.setLong(1, 1 + i * 7L % CUSTOMERS);
+                break;
+            default:
+                LocalDate from = LocalDate.of(2024, 1, 1).plusDays(i % 300);
+                ps.setLong(1, 1 + i * 7L % CUSTOMERS);
+                ps.setDate(2, Date.valueOf(from));
+                ps.setDate(3, Date.valueOf(from.plusDays(30)));
+        }
+    }
+}
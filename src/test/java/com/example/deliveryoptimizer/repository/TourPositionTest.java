@@ -0,0 +1,98 @@
+package com.example.deliveryoptimizer.repository;
+
+import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.DeliveryStatus;
+import com.example.deliveryoptimizer.entity.Tour;
+import com.example.deliveryoptimizer.service.impl.TourServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Deliveries leaving a persisted tour must not leave gaps in tour_position:
+ * Hibernate would load them as null elements of the source tour.
+ */
+@DataJpaTest
+class TourPositionTest {
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private TourRepository tourRepository;
+
+    @Autowired
+    private DeliveryRepository deliveryRepository;
+
+    private TourServiceImpl tourService;
+    private Long source;
+    private Long target;
+    private final List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        // only the repositories are used by insertDeliveries / removeDeliveries / saveTours
+        tourService = new TourServiceImpl(null, null, null, null, tourRepository, deliveryRepository, null, null,
+                null, null, null, null, List.of(), 0);
+        Tour a = new Tour(LocalDate.now(), null);
+        Tour b = new Tour(LocalDate.now(), null);
+        for (int i = 0; i < 4; i++)
+            a.addDelivery(new Delivery(48.80 + i * 0.01, 2.30, 1.0, 0.1, DeliveryStatus.PENDING));
+        b.addDelivery(new Delivery(48.90, 2.40, 1.0, 0.1, DeliveryStatus.PENDING));
+        source = em.persist(a).getId();
+        target = em.persist(b).getId();
+        a.getDeliveries().forEach(d -> ids.add(d.getId()));
+        em.flush();
+        em.clear();
+    }
+
+    private List<Long> reload(Long tourId) {
+        em.flush();
+        em.clear();
+        List<Long> loaded = new ArrayList<>();
+        for (Delivery d : em.find(Tour.class, tourId).getDeliveries()) {
+            assertNotNull(d, "gap in tour_position");
+            loaded.add(d.getId());
+        }
+        return loaded;
+    }
+
+    @Test
+    void whenMovingADeliveryToAnotherTour_thenTheSourceTourHasNoGap() {
+        Delivery moved = em.find(Delivery.class, ids.get(1));
+        assertNotNull(tourService.insertDeliveries(target, List.of(moved), null, 0));
+
+        assertEquals(List.of(ids.get(0), ids.get(2), ids.get(3)), reload(source));
+        assertEquals(2, reload(target).size());
+    }
+
+    @Test
+    void whenRemovingDeliveries_thenTheRemainingStopsKeepTheirOrder() {
+        assertNotNull(tourService.removeDeliveries(source, List.of(ids.get(0), ids.get(2))));
+
+        assertEquals(List.of(ids.get(1), ids.get(3)), reload(source));
+    }
+
+    @Test
+    void whenSavingToursOfDetachedDeliveries_thenTheyMoveInRouteOrder() {
+        // loaded outside the saving transaction, as the batch endpoint does
+        List<Delivery> loaded = deliveryRepository.findWithCustomerByIdIn(List.of(ids.get(1), ids.get(3)));
+        em.clear();
+        Delivery first = loaded.get(0).getId().equals(ids.get(3)) ? loaded.get(0) : loaded.get(1);
+        Delivery second = first == loaded.get(0) ? loaded.get(1) : loaded.get(0);
+
+        List<Tour> tours = tourService.saveTours(List.of(List.of(first, second)), Arrays.asList((Long) null));
+
+        assertEquals(List.of(ids.get(3), ids.get(1)), reload(tours.get(0).getId()));
+        assertEquals(List.of(ids.get(0), ids.get(2)), reload(source));
+    }
+}
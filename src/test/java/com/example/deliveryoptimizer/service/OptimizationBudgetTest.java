@@ -0,0 +1,57 @@
+package com.example.deliveryoptimizer.service;
+
+import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.DeliveryStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OptimizationBudgetTest {
+
+    @Test
+    void whenPublishingConcurrently_thenListenersSeeEachTourWithItsDistanceInOrder() throws Exception {
+        OptimizationBudget budget = OptimizationBudget.unlimited();
+        // the tour of distance d is one delivery of id d: pairs can be checked
+        List<long[]> seen = new ArrayList<>();
+        budget.addListener((tour, distance) -> seen.add(new long[] { tour.get(0).getId(), (long) distance }));
+
+        int threads = 4;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> publishers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            Thread p = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                // the slices of a portfolio improve at the same time
+                for (long d = 20_000 + offset; d > 0; d -= threads) {
+                    OptimizationBudget slice = budget.slice(1000);
+                    slice.publish(List.of(new Delivery(d, 48.85, 2.35, 1.0, 0.1, DeliveryStatus.PENDING)), d);
+                }
+            });
+            publishers.add(p);
+            p.start();
+        }
+        start.countDown();
+        for (Thread p : publishers)
+            p.join();
+
+        assertFalse(seen.isEmpty());
+        long previous = Long.MAX_VALUE;
+        for (long[] event : seen) {
+            assertEquals(event[0], event[1], "tour sent with another tour's distance");
+            assertTrue(event[1] < previous, "events out of order");
+            previous = event[1];
+        }
+        assertEquals(1L, previous);
+        assertEquals(1.0, budget.bestDistance());
+        assertEquals(1L, (long) budget.best().get(0).getId());
+    }
+}
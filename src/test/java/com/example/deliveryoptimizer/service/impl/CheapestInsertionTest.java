@@ -0,0 +1,61 @@
+package com.example.deliveryoptimizer.service.impl;
+
+import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.DeliveryStatus;
+import com.example.deliveryoptimizer.entity.Warehouse;
+import com.example.deliveryoptimizer.util.DistanceUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheapestInsertionTest {
+
+    private static double length(List<Delivery> route, Warehouse wh) {
+        double total = 0.0;
+        double lat = wh.getLatitude();
+        double lon = wh.getLongitude();
+        for (Delivery d : route) {
+            total += DistanceUtils.haversine(lat, lon, d.getLatitude(), d.getLongitude());
+            lat = d.getLatitude();
+            lon = d.getLongitude();
+        }
+        return total + DistanceUtils.haversine(lat, lon, wh.getLatitude(), wh.getLongitude());
+    }
+
+    @Test
+    void whenInsertingOnTheWay_thenStopGoesBetweenItsNeighbours() {
+        Warehouse wh = new Warehouse("TestWh", 0.0, 0.0, "08:00-18:00");
+        Delivery a = new Delivery(1L, 0.01, 0.0, 1.0, 0.1, DeliveryStatus.PENDING);
+        Delivery b = new Delivery(2L, 0.03, 0.0, 1.0, 0.1, DeliveryStatus.PENDING);
+        Delivery c = new Delivery(3L, 0.03, 0.02, 1.0, 0.1, DeliveryStatus.PENDING);
+        List<Delivery> route = new ArrayList<>(List.of(a, b, c));
+        Delivery added = new Delivery(4L, 0.02, 0.0, 1.0, 0.1, DeliveryStatus.PENDING);
+
+        CheapestInsertion insertion = new CheapestInsertion(route, wh, 0);
+        double before = insertion.length();
+        double delta = insertion.insert(added);
+
+        assertEquals(List.of(a, added, b, c), route);
+        assertEquals(before + delta, insertion.length(), 1e-6);
+        assertEquals(length(route, wh), insertion.length(), 1e-6);
+    }
+
+    @Test
+    void whenStopsAreFixed_thenInsertionHappensAfterThem() {
+        Warehouse wh = new Warehouse("TestWh", 0.0, 0.0, "08:00-18:00");
+        Delivery a = new Delivery(1L, 0.01, 0.0, 1.0, 0.1, DeliveryStatus.PENDING);
+        Delivery b = new Delivery(2L, 0.03, 0.0, 1.0, 0.1, DeliveryStatus.PENDING);
+        List<Delivery> route = new ArrayList<>(List.of(a, b));
+        // best spot would be before a
+        Delivery added = new Delivery(3L, 0.005, 0.0, 1.0, 0.1, DeliveryStatus.PENDING);
+
+        CheapestInsertion insertion = new CheapestInsertion(route, wh, 2);
+        insertion.insert(added);
+
+        assertEquals(List.of(a, b, added), route);
+        assertEquals(length(route, wh), insertion.length(), 1e-6);
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.deliveryoptimizer.service.impl;
+
+import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.DeliveryStatus;
+import com.example.deliveryoptimizer.entity.Tour;
+import com.example.deliveryoptimizer.entity.Vehicle;
+import com.example.deliveryoptimizer.entity.Warehouse;
+import com.example.deliveryoptimizer.util.DistanceMatrix;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClarkeWrightOptimizerTest {
+
+    @Test
+    void whenPlanningWithFleet_thenEveryTourFitsItsVehicle() {
+        Warehouse wh = new Warehouse("TestWh", 48.85, 2.35, "08:00-18:00");
+        Random rnd = new Random(11);
+        List<Delivery> deliveries = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            deliveries.add(new Delivery((long) i, 48.8 + rnd.nextDouble() * 0.1, 2.3 + rnd.nextDouble() * 0.1,
+                    10 + rnd.nextInt(40), 0.5, DeliveryStatus.PENDING));
+        }
+        List<Vehicle> fleet = new ArrayList<>();
+        fleet.add(vehicle(1L, "VAN", 300, 5.0, 12));
+        fleet.add(vehicle(2L, "VAN", 300, 5.0, 12));
+        fleet.add(vehicle(3L, "TRUCK", 1200, 20.0, 40));
+        fleet.add(vehicle(4L, "TRUCK", 1200, 20.0, 40));
+
+        List<Tour> tours = new ClarkeWrightOptimizer(0).calculateRoutes(deliveries, wh, fleet);
+
+        assertFalse(tours.isEmpty());
+        Set<Vehicle> usedVehicles = new HashSet<>();
+        Set<Delivery> planned = new HashSet<>();
+        for (Tour t : tours) {
+            Vehicle v = t.getVehicle();
+            assertNotNull(v, "Every tour should have a vehicle");
+            assertTrue(usedVehicles.add(v), "A vehicle should get at most one tour");
+            double weight = t.getDeliveries().stream().mapToDouble(Delivery::getWeight).sum();
+            double volume = t.getDeliveries().stream().mapToDouble(Delivery::getVolume).sum();
+            assertTrue(weight <= v.getCapacityWeight(), "Tour weight exceeds vehicle capacity");
+            assertTrue(volume <= v.getCapacityVolume(), "Tour volume exceeds vehicle capacity");
+            assertTrue(t.getDeliveries().size() <= v.getMaxDeliveries(), "Too many stops for vehicle");
+            for (Delivery d : t.getDeliveries()) {
+                assertTrue(planned.add(d), "A delivery should be planned once");
+                assertSame(t, d.getTour());
+            }
+        }
+    }
+
+    @Test
+    void whenDeliveryFitsNoVehicle_thenItIsLeftUnassigned() {
+        Warehouse wh = new Warehouse("TestWh", 0.0, 0.0, "08:00-18:00");
+        Delivery light = new Delivery(1L, 0.01, 0.0, 10.0, 0.1, DeliveryStatus.PENDING);
+        Delivery tooHeavy = new Delivery(2L, 0.02, 0.0, 500.0, 0.1, DeliveryStatus.PENDING);
+        List<Vehicle> fleet = List.of(vehicle(1L, "VAN", 100, 0, 0));
+
+        List<Tour> tours = new ClarkeWrightOptimizer(0).calculateRoutes(List.of(light, tooHeavy), wh, fleet);
+
+        assertEquals(1, tours.size());
+        assertEquals(List.of(light), tours.get(0).getDeliveries());
+        assertNull(tooHeavy.getTour());
+    }
+
+    @Test
+    void whenSparseWithoutMatrix_thenTourMatchesSparseOverMatrix() {
+        Warehouse wh = new Warehouse("TestWh", 48.85, 2.35, "08:00-18:00");
+        Random rnd = new Random(23);
+        List<Delivery> deliveries = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            deliveries.add(new Delivery((long) i, 48.8 + rnd.nextDouble() * 0.1, 2.3 + rnd.nextDouble() * 0.1,
+                    1 + rnd.nextInt(10), 0.1, DeliveryStatus.PENDING));
+        }
+        ClarkeWrightOptimizer sparse = new ClarkeWrightOptimizer(10);
+
+        List<Delivery> onDemand = sparse.calculateOptimalTour(deliveries, wh);
+        List<Delivery> overMatrix = sparse.calculateOptimalTour(deliveries, wh, DistanceMatrix.of(wh, deliveries));
+
+        assertEquals(deliveries.size(), new HashSet<>(onDemand).size());
+        assertEquals(overMatrix, onDemand);
+    }
+
+    private static Vehicle vehicle(Long id, String type, double weight, double volume, int maxDeliveries) {
+        Vehicle v = new Vehicle(type, weight, volume, maxDeliveries);
+        v.setId(id);
+        return v;
+    }
+}
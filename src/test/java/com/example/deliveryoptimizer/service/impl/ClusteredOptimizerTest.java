@@ -0,0 +1,46 @@
+package com.example.deliveryoptimizer.service.impl;
+
+import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.DeliveryStatus;
+import com.example.deliveryoptimizer.entity.Warehouse;
+import com.example.deliveryoptimizer.service.TourOptimizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClusteredOptimizerTest {
+
+    @Test
+    void whenSplittingIntoClusters_thenEveryDeliveryIsVisitedOnce() {
+        Warehouse wh = new Warehouse("TestWh", 48.85, 2.35, "08:00-18:00");
+        Random rnd = new Random(17);
+        List<Delivery> deliveries = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            deliveries.add(new Delivery((long) i, 48.6 + rnd.nextDouble() * 0.5, 2.1 + rnd.nextDouble() * 0.5, 1.0, 0.1, DeliveryStatus.PENDING));
+        }
+        Map<String, TourOptimizer> optimizers = Map.of("clarkeWrightOptimizer", new ClarkeWrightOptimizer(0));
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            ClusteredOptimizer clustered = new ClusteredOptimizer(optimizers, "clarkeWrightOptimizer", pool, 150, 20);
+
+            List<Delivery> tour = clustered.calculateOptimalTour(deliveries, wh);
+
+            assertEquals(deliveries.size(), tour.size());
+            Set<Delivery> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            seen.addAll(deliveries);
+            for (Delivery d : tour)
+                assertTrue(seen.remove(d), "Each delivery must appear exactly once");
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.deliveryoptimizer.service.impl;
+
+import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.DeliveryStatus;
+import com.example.deliveryoptimizer.entity.Warehouse;
+import com.example.deliveryoptimizer.service.OptimizationBudget;
+import com.example.deliveryoptimizer.util.DistanceMatrix;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalSearchImproverTest {
+
+    @Test
+    void whenImprovingRandomTour_thenResultIsPermutationAndShorter() {
+        Warehouse wh = new Warehouse("TestWh", 48.85, 2.35, "08:00-18:00");
+        Random rnd = new Random(3);
+        List<Delivery> deliveries = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            deliveries.add(new Delivery((long) i, 48.7 + rnd.nextDouble() * 0.3, 2.2 + rnd.nextDouble() * 0.3, 1.0, 0.1, DeliveryStatus.PENDING));
+        }
+        DistanceMatrix matrix = DistanceMatrix.of(wh, deliveries);
+
+        int[] order = new int[deliveries.size()];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i; // input order is a random tour
+        double before = matrix.tourLength(order);
+
+        new LocalSearchImprover(10).improve(order, matrix, OptimizationBudget.ofMillis(5_000L));
+
+        int[] sorted = order.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length; i++)
+            assertEquals(i, sorted[i], "Improved tour must visit every delivery exactly once");
+        assertTrue(matrix.tourLength(order) < before * 0.5, "2-opt/Or-opt should remove most of a random tour's length");
+    }
+
+    @Test
+    void whenTourIsAlreadyOptimal_thenItIsKept() {
+        Warehouse wh = new Warehouse("TestWh", 0.0, 0.0, "08:00-18:00");
+        // deliveries on a line going away from the warehouse: out-and-back is optimal
+        List<Delivery> deliveries = List.of(
+                new Delivery(1L, 0.01, 0.0, 1.0, 0.1, DeliveryStatus.PENDING),
+                new Delivery(2L, 0.02, 0.0, 1.0, 0.1, DeliveryStatus.PENDING),
+                new Delivery(3L, 0.03, 0.0, 1.0, 0.1, DeliveryStatus.PENDING),
+                new Delivery(4L, 0.04, 0.0, 1.0, 0.1, DeliveryStatus.PENDING));
+        DistanceMatrix matrix = DistanceMatrix.of(wh, deliveries);
+        int[] order = { 0, 1, 2, 3 };
+        double before = matrix.tourLength(order);
+
+        new LocalSearchImprover(10).improve(order, matrix, OptimizationBudget.ofMillis(1_000L));
+
+        assertEquals(before, matrix.tourLength(order), 1e-6);
+    }
+
+    @Test
+    void whenBudgetIsCancelled_thenSearchStopsWithCompleteTour() {
+        Warehouse wh = new Warehouse("TestWh", 48.85, 2.35, "08:00-18:00");
+        Random rnd = new Random(5);
+        List<Delivery> deliveries = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            deliveries.add(new Delivery((long) i, 48.7 + rnd.nextDouble() * 0.3, 2.2 + rnd.nextDouble() * 0.3, 1.0, 0.1, DeliveryStatus.PENDING));
+        }
+        DistanceMatrix matrix = DistanceMatrix.of(wh, deliveries);
+        int[] order = new int[deliveries.size()];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+
+        OptimizationBudget budget = OptimizationBudget.unlimited();
+        budget.cancel();
+        boolean converged = new LocalSearchImprover(10).improve(order, matrix, budget);
+
+        assertFalse(converged, "A cancelled search must report that it stopped early");
+        int[] sorted = order.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length; i++)
+            assertEquals(i, sorted[i], "Interrupted tour must still visit every delivery exactly once");
+    }
+}
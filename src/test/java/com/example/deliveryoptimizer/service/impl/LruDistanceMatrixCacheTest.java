@@ -0,0 +1,76 @@
+package com.example.deliveryoptimizer.service.impl;
+
+import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.DeliveryStatus;
+import com.example.deliveryoptimizer.entity.Warehouse;
+import com.example.deliveryoptimizer.util.DistanceMatrix;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LruDistanceMatrixCacheTest {
+
+    @Test
+    void whenDeliveriesChangeBetweenRequests_thenMatrixEqualsAFreshBuild() {
+        Warehouse wh = new Warehouse("TestWh", 48.85, 2.35, "08:00-18:00");
+        Random rnd = new Random(5);
+        List<Delivery> first = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            first.add(new Delivery((long) i, 48.7 + rnd.nextDouble() * 0.3, 2.2 + rnd.nextDouble() * 0.3, 1.0, 0.1, DeliveryStatus.PENDING));
+        }
+        LruDistanceMatrixCache cache = new LruDistanceMatrixCache(64);
+        DistanceMatrix cached = cache.matrix(wh, first);
+        assertSame(cached, cache.matrix(wh, new ArrayList<>(first)));
+
+        // drop some, add new ones, move one, reorder
+        List<Delivery> second = new ArrayList<>(first.subList(20, 300));
+        for (int i = 300; i < 330; i++) {
+            second.add(new Delivery((long) i, 48.7 + rnd.nextDouble() * 0.3, 2.2 + rnd.nextDouble() * 0.3, 1.0, 0.1, DeliveryStatus.PENDING));
+        }
+        second.get(0).setLatitude(48.9);
+        cache.invalidate(second.get(0).getId());
+        Collections.shuffle(second, rnd);
+
+        DistanceMatrix incremental = cache.matrix(wh, second);
+        DistanceMatrix fresh = DistanceMatrix.of(wh, second);
+        for (int i = 0; i < fresh.size(); i++) {
+            for (int j = 0; j < fresh.size(); j++)
+                assertEquals(fresh.get(i, j), incremental.get(i, j), 1e-9);
+        }
+        assertTrue(cache.memoryBytes() >= incremental.memoryBytes());
+
+        // a matrix above the bound is not kept
+        LruDistanceMatrixCache tiny = new LruDistanceMatrixCache(0);
+        assertNotSame(tiny.matrix(wh, first), tiny.matrix(wh, first));
+        assertEquals(0, tiny.memoryBytes());
+    }
+
+    @Test
+    void whenWarehousesAlternate_thenEachKeepsItsOwnMatrix() {
+        Warehouse north = new Warehouse("North", 48.95, 2.35, "08:00-18:00");
+        Warehouse south = new Warehouse("South", 48.70, 2.30, "08:00-18:00");
+        Random rnd = new Random(9);
+        List<Delivery> deliveries = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            deliveries.add(new Delivery((long) i, 48.7 + rnd.nextDouble() * 0.3, 2.2 + rnd.nextDouble() * 0.3, 1.0,
+                    0.1, DeliveryStatus.PENDING));
+        }
+        LruDistanceMatrixCache cache = new LruDistanceMatrixCache(64);
+        DistanceMatrix fromNorth = cache.matrix(north, deliveries);
+        DistanceMatrix fromSouth = cache.matrix(south, deliveries);
+
+        assertNotSame(fromNorth, fromSouth);
+        assertSame(fromNorth, cache.matrix(north, deliveries));
+        assertSame(fromSouth, cache.matrix(south, deliveries));
+        assertTrue(cache.memoryBytes() >= fromNorth.memoryBytes() + fromSouth.memoryBytes());
+        // depot legs are the real warehouse's
+        DistanceMatrix fresh = DistanceMatrix.of(south, deliveries);
+        for (int k = 1; k < fresh.size(); k++)
+            assertEquals(fresh.get(0, k), fromSouth.get(0, k), 1e-9);
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.deliveryoptimizer.service.impl;
+
+import com.example.deliveryoptimizer.entity.Warehouse;
+import com.example.deliveryoptimizer.util.DistanceUtils;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedDepotDistanceStoreTest {
+
+    @Test
+    void whenReopened_thenStoredLegsAreReadBack() throws Exception {
+        Path file = Files.createTempFile("depot-legs", ".bin");
+        Files.delete(file);
+        try {
+            Warehouse wh = new Warehouse("TestWh", 48.85, 2.35, "08:00-18:00");
+            MappedDepotDistanceStore store = new MappedDepotDistanceStore(file.toString(), 64);
+            double expected = DistanceUtils.haversine(48.85, 2.35, 48.9, 2.4);
+            assertEquals(expected, store.distance(wh, 48.9, 2.4), 0.0);
+            // more legs than slots: the overflow is computed, never wrong
+            for (int i = 0; i < 200; i++)
+                assertEquals(DistanceUtils.haversine(48.85, 2.35, 48.0 + i * 0.01, 2.0), store.distance(wh, 48.0 + i * 0.01, 2.0), 0.0);
+
+            MappedDepotDistanceStore reopened = new MappedDepotDistanceStore(file.toString(), 1024);
+            assertEquals(expected, reopened.distance(wh, 48.9, 2.4), 0.0);
+            assertEquals(64L * 32 + 64, Files.size(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package com.example.deliveryoptimizer.service.impl;
 
 import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.DeliveryStatus;
 import com.example.deliveryoptimizer.entity.Warehouse;
 import org.junit.jupiter.api.Test;
 
+import com.example.deliveryoptimizer.util.DistanceMatrix;
+
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -17,10 +22,10 @@ class NearestNeighborOptimizerTest {
         Warehouse wh = new Warehouse("TestWh", 0.0, 0.0, "08:00-18:00");
 
         // create 4 deliveries at increasing distances from the warehouse (lat differs, lon = 0)
-        Delivery d1 = new Delivery(0.0001, 0.0, 1.0, 0.1, "PENDING"); // closest
-        Delivery d2 = new Delivery(0.001, 0.0, 1.0, 0.1, "PENDING");
-        Delivery d3 = new Delivery(0.002, 0.0, 1.0, 0.1, "PENDING");
-        Delivery d4 = new Delivery(0.01, 0.0, 1.0, 0.1, "PENDING");
+        Delivery d1 = new Delivery(0.0001, 0.0, 1.0, 0.1, DeliveryStatus.PENDING); // closest
+        Delivery d2 = new Delivery(0.001, 0.0, 1.0, 0.1, DeliveryStatus.PENDING);
+        Delivery d3 = new Delivery(0.002, 0.0, 1.0, 0.1, DeliveryStatus.PENDING);
+        Delivery d4 = new Delivery(0.01, 0.0, 1.0, 0.1, DeliveryStatus.PENDING);
 
         List<Delivery> input = Arrays.asList(d1, d2, d3, d4);
 
@@ -36,4 +41,26 @@ class NearestNeighborOptimizerTest {
         // first element should be the closest (d1)
         assertSame(d1, result.get(0), "The first delivery should be the closest to the warehouse");
     }
+
+    @Test
+    void whenUsingSpatialGrid_thenTourMatchesFullScanIncludingTieBreaks() {
+        Warehouse wh = new Warehouse("TestWh", 48.85, 2.35, "08:00-18:00");
+        Random rnd = new Random(7);
+        List<Delivery> input = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            // coarse coordinates produce many equal distances; ids are shuffled
+            double lat = 48.8 + rnd.nextInt(20) * 0.005;
+            double lon = 2.3 + rnd.nextInt(20) * 0.005;
+            input.add(new Delivery((long) rnd.nextInt(1000), lat, lon, 1.0, 0.1, DeliveryStatus.PENDING));
+        }
+
+        NearestNeighborOptimizer optimizer = new NearestNeighborOptimizer();
+        List<Delivery> withGrid = optimizer.calculateOptimalTour(input, wh);
+        List<Delivery> withMatrix = optimizer.calculateOptimalTour(input, wh, DistanceMatrix.of(wh, input));
+
+        assertEquals(withMatrix.size(), withGrid.size());
+        for (int i = 0; i < withMatrix.size(); i++) {
+            assertSame(withMatrix.get(i), withGrid.get(i), "Tours differ at position " + i);
+        }
+    }
 }
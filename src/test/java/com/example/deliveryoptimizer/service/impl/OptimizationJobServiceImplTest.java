@@ -0,0 +1,58 @@
+package com.example.deliveryoptimizer.service.impl;
+
+import com.example.deliveryoptimizer.dto.DeliveryDto;
+import com.example.deliveryoptimizer.service.OptimizationBudget;
+import com.example.deliveryoptimizer.service.OptimizationJob;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OptimizationJobServiceImplTest {
+
+    @Test
+    void whenQueuedJobIsCancelled_thenItNeverRunsAndTheRunningOneFinishes() throws Exception {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(4);
+        executor.initialize();
+        try {
+            OptimizationJobServiceImpl jobs = new OptimizationJobServiceImpl(executor, 600);
+            CountDownLatch release = new CountDownLatch(1);
+            List<DeliveryDto> tour = List.of(new DeliveryDto());
+            OptimizationJob running = jobs.submit(OptimizationBudget.unlimited(), budget -> {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return tour;
+            });
+            AtomicBoolean ran = new AtomicBoolean();
+            OptimizationJob queued = jobs.submit(OptimizationBudget.unlimited(), budget -> {
+                ran.set(true);
+                return tour;
+            });
+
+            assertSame(queued, jobs.cancel(queued.getId()));
+            assertEquals(OptimizationJob.Status.CANCELLED, queued.getStatus());
+            assertTrue(queued.isFinished());
+
+            release.countDown();
+            assertEquals(tour, running.getResult().get(5, TimeUnit.SECONDS));
+            assertEquals(OptimizationJob.Status.DONE, jobs.get(running.getId()).getStatus());
+            // single thread: the cancelled job's turn came before this one
+            jobs.submit(OptimizationBudget.unlimited(), budget -> tour).getResult().get(5, TimeUnit.SECONDS);
+            assertFalse(ran.get());
+            assertNull(jobs.get("unknown"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
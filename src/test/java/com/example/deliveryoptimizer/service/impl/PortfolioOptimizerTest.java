@@ -0,0 +1,61 @@
+package com.example.deliveryoptimizer.service.impl;
+
+import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.DeliveryStatus;
+import com.example.deliveryoptimizer.entity.Warehouse;
+import com.example.deliveryoptimizer.service.OptimizationBudget;
+import com.example.deliveryoptimizer.util.DistanceMatrix;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PortfolioOptimizerTest {
+
+    @Test
+    void whenRacingStrategies_thenResultIsNoLongerThanEachConstruction() {
+        Warehouse wh = new Warehouse("TestWh", 48.85, 2.35, "08:00-18:00");
+        Random rnd = new Random(11);
+        List<Delivery> deliveries = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            deliveries.add(new Delivery((long) i, 48.7 + rnd.nextDouble() * 0.3, 2.2 + rnd.nextDouble() * 0.3, 1.0, 0.1, DeliveryStatus.PENDING));
+        }
+        DistanceMatrix matrix = DistanceMatrix.of(wh, deliveries);
+        NearestNeighborOptimizer nearest = new NearestNeighborOptimizer();
+        ClarkeWrightOptimizer clarke = new ClarkeWrightOptimizer(0);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            PortfolioOptimizer portfolio = new PortfolioOptimizer(nearest, clarke,
+                    List.of(new LocalSearchImprover(10)), pool, 300);
+
+            List<Delivery> result = portfolio.calculateOptimalTour(deliveries, wh, matrix,
+                    OptimizationBudget.ofMillis(300L));
+
+            assertEquals(deliveries.size(), result.size());
+            double best = length(matrix, deliveries, result);
+            assertTrue(best <= length(matrix, deliveries, nearest.calculateOptimalTour(deliveries, wh, matrix)) + 1e-6);
+            assertTrue(best <= length(matrix, deliveries, clarke.calculateOptimalTour(deliveries, wh, matrix)) + 1e-6);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static double length(DistanceMatrix matrix, List<Delivery> deliveries, List<Delivery> tour) {
+        Map<Delivery, Integer> index = new IdentityHashMap<>();
+        for (int i = 0; i < deliveries.size(); i++)
+            index.put(deliveries.get(i), i);
+        int[] order = new int[tour.size()];
+        for (int i = 0; i < order.length; i++) {
+            Integer idx = index.remove(tour.get(i));
+            assertNotNull(idx, "Tour must visit every delivery exactly once");
+            order[i] = idx;
+        }
+        return matrix.tourLength(order);
+    }
+}
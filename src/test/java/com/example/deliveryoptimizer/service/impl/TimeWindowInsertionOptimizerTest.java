@@ -0,0 +1,48 @@
+package com.example.deliveryoptimizer.service.impl;
+
+import com.example.deliveryoptimizer.entity.Customer;
+import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.DeliveryStatus;
+import com.example.deliveryoptimizer.entity.Warehouse;
+import com.example.deliveryoptimizer.service.TimeWindowPlan;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeWindowInsertionOptimizerTest {
+
+    private static Delivery delivery(long id, double lat, double lon, String slot) {
+        Delivery d = new Delivery(id, lat, lon, 1.0, 0.1, DeliveryStatus.PENDING);
+        d.setCustomer(new Customer("C" + id, "addr", lat, lon, slot));
+        return d;
+    }
+
+    @Test
+    void whenEarlySlotIsFarAway_thenItIsStillServedFirst() {
+        Warehouse wh = new Warehouse("TestWh", 48.85, 2.35, "08:00-18:00");
+        // ~1 km away but only in the afternoon, ~10 km away but early
+        Delivery near = delivery(1L, 48.86, 2.35, "14:00-16:00");
+        Delivery far = delivery(2L, 48.94, 2.35, "08:00-09:00");
+
+        TimeWindowPlan plan = new TimeWindowInsertionOptimizer(30, 5).plan(List.of(near, far), wh);
+
+        assertEquals(List.of(far, near), plan.getRoute());
+        assertTrue(plan.getInfeasible().isEmpty());
+        assertTrue(plan.getServiceStartMinutes()[0] <= 9 * 60);
+        assertTrue(plan.getServiceStartMinutes()[1] >= 14 * 60);
+    }
+
+    @Test
+    void whenSlotEndsBeforeWarehouseOpens_thenDeliveryIsInfeasible() {
+        Warehouse wh = new Warehouse("TestWh", 48.85, 2.35, "08:00-18:00");
+        Delivery ok = delivery(1L, 48.86, 2.36, "09:00-12:00");
+        Delivery tooEarly = delivery(2L, 48.87, 2.37, "06:00-07:30");
+
+        TimeWindowPlan plan = new TimeWindowInsertionOptimizer(30, 5).plan(List.of(ok, tooEarly), wh);
+
+        assertEquals(List.of(ok), plan.getRoute());
+        assertEquals(List.of(tooEarly), plan.getInfeasible());
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.deliveryoptimizer.service.impl;
+
+import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.DeliveryStatus;
+import com.example.deliveryoptimizer.entity.Warehouse;
+import com.example.deliveryoptimizer.service.DepotDistanceStore;
+import com.example.deliveryoptimizer.service.OptimizationBudget;
+import com.example.deliveryoptimizer.service.TourOptimizer;
+import com.example.deliveryoptimizer.util.DistanceUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TourServiceImplTest {
+
+    private static final DepotDistanceStore HAVERSINE = (w, lat, lon) -> DistanceUtils.haversine(w.getLatitude(),
+            w.getLongitude(), lat, lon);
+
+    private static TourServiceImpl service(TourOptimizer clustered) {
+        return new TourServiceImpl(new ClarkeWrightOptimizer(0), null, null, clustered, null, null, null, null,
+                null, null, HAVERSINE, null, List.of(), 0);
+    }
+
+    @Test
+    void whenOptimizingClustered_thenTheSweepStartsAtTheWarehouse() {
+        // deliveries on a ring, the warehouse well south of it: around the
+        // warehouse the clusters are bands of the ring, around the ring's
+        // centroid they would be quarters
+        Warehouse wh = new Warehouse("South", 48.0, 2.35, "08:00-18:00");
+        List<Delivery> deliveries = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            double a = 2 * Math.PI * (i + 0.5) / 200;
+            deliveries.add(new Delivery((long) i, 48.85 + 0.05 * Math.sin(a), 2.35 + 0.075 * Math.cos(a), 1.0, 0.1,
+                    DeliveryStatus.PENDING));
+        }
+        List<Warehouse> depots = Collections.synchronizedList(new ArrayList<>());
+        List<List<Delivery>> clusters = Collections.synchronizedList(new ArrayList<>());
+        TourOptimizer recording = (cluster, warehouse) -> {
+            depots.add(warehouse);
+            clusters.add(cluster);
+            return cluster;
+        };
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            ClusteredOptimizer clustered = new ClusteredOptimizer(Map.of("recording", recording), "recording", pool,
+                    50, 0);
+
+            List<Delivery> tour = service(clustered).calculateTour(deliveries, wh, "CLUSTERED",
+                    OptimizationBudget.unlimited());
+
+            assertEquals(deliveries.size(), tour.size());
+            assertEquals(4, clusters.size());
+            for (Warehouse depot : depots)
+                assertSame(wh, depot);
+            // angular ranges around the warehouse do not overlap
+            double cosLat = Math.cos(Math.toRadians(wh.getLatitude()));
+            List<double[]> ranges = new ArrayList<>();
+            for (List<Delivery> cluster : clusters) {
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                for (Delivery d : cluster) {
+                    double angle = Math.atan2(d.getLatitude() - wh.getLatitude(),
+                            (d.getLongitude() - wh.getLongitude()) * cosLat);
+                    min = Math.min(min, angle);
+                    max = Math.max(max, angle);
+                }
+                ranges.add(new double[] { min, max });
+            }
+            for (int a = 0; a < ranges.size(); a++) {
+                for (int b = a + 1; b < ranges.size(); b++) {
+                    assertTrue(ranges.get(a)[1] < ranges.get(b)[0] || ranges.get(b)[1] < ranges.get(a)[0],
+                            "clusters " + a + " and " + b + " overlap around the warehouse");
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void whenCalculatingTimeWindowTour_thenItIsRejected() {
+        TourServiceImpl service = new TourServiceImpl(new ClarkeWrightOptimizer(0), null, null, null, null, null,
+                null, null, new TimeWindowInsertionOptimizer(30, 5), null, HAVERSINE, null, List.of(), 0);
+        Warehouse wh = new Warehouse("TestWh", 48.85, 2.35, "08:00-18:00");
+        List<Delivery> deliveries = List.of(new Delivery(1L, 48.86, 2.35, 1.0, 0.1, DeliveryStatus.PENDING));
+
+        assertThrows(IllegalArgumentException.class, () -> service.calculateTour(deliveries, wh, "TIME_WINDOWS",
+                OptimizationBudget.unlimited()));
+    }
+
+    @Test
+    void whenImproving_thenPublishedDistancesMatchTheTotalDistance() {
+        Random rnd = new Random(3);
+        List<Delivery> deliveries = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            deliveries.add(new Delivery((long) i, 48.8 + rnd.nextDouble() * 0.1, 2.3 + rnd.nextDouble() * 0.1, 1.0,
+                    0.1, DeliveryStatus.PENDING));
+        }
+        TourServiceImpl service = new TourServiceImpl(new ClarkeWrightOptimizer(0), null, null, null, null, null,
+                null, null, null, new LruDistanceMatrixCache(16), HAVERSINE, null, List.of(new LocalSearchImprover(5)), 50);
+
+        // with a warehouse the depot legs count, without one there are none
+        for (Warehouse wh : new Warehouse[] { new Warehouse("TestWh", 48.85, 2.35, "08:00-18:00"), null }) {
+            OptimizationBudget budget = OptimizationBudget.unlimited();
+            List<double[]> published = new ArrayList<>();
+            budget.addListener((tour, distance) -> published
+                    .add(new double[] { distance, service.getTotalDistance(tour, wh) }));
+
+            service.calculateTour(deliveries, wh, "CLARKE", budget);
+
+            assertFalse(published.isEmpty());
+            for (double[] p : published)
+                assertEquals(p[1], p[0], 1e-3, "published distance differs from the tour's total distance");
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.deliveryoptimizer.service.impl;
+
+import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.DeliveryStatus;
+import com.example.deliveryoptimizer.entity.Warehouse;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TtlOptimizationResultCacheTest {
+
+    @Test
+    void whenDeliveryDataChanges_thenCachedTourIsNotReused() {
+        Warehouse wh = new Warehouse("TestWh", 48.85, 2.35, "08:00-18:00");
+        List<Delivery> deliveries = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+            deliveries.add(new Delivery((long) i, 48.8 + i * 0.01, 2.3, 1.0, 0.1, DeliveryStatus.PENDING));
+        List<Delivery> tour = List.of(deliveries.get(2), deliveries.get(0), deliveries.get(4), deliveries.get(1),
+                deliveries.get(3));
+        TtlOptimizationResultCache cache = new TtlOptimizationResultCache(60, 16);
+        cache.put(wh, deliveries, "nearest", null, tour);
+
+        // same request with the deliveries loaded in another order
+        List<Delivery> reloaded = new ArrayList<>(deliveries);
+        Collections.reverse(reloaded);
+        assertEquals(tour, cache.get(wh, reloaded, "NEAREST", null));
+        assertNull(cache.get(wh, deliveries, "CLARKE", null));
+        assertNull(cache.get(wh, deliveries, "NEAREST", 7L));
+
+        deliveries.get(3).setLongitude(2.31);
+        assertNull(cache.get(wh, deliveries, "NEAREST", null));
+
+        deliveries.get(3).setLongitude(2.3);
+        assertNotNull(cache.get(wh, deliveries, "NEAREST", null));
+        cache.invalidate(4L);
+        assertNull(cache.get(wh, deliveries, "NEAREST", null));
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.deliveryoptimizer.service.impl;
+
+import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.DeliveryStatus;
+import com.example.deliveryoptimizer.service.TourWriter;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindTourWriterTest {
+
+    private static List<Delivery> tour(long... ids) {
+        List<Delivery> deliveries = new ArrayList<>();
+        for (long id : ids)
+            deliveries.add(new Delivery(id, 48.85, 2.35, 1.0, 0.1, DeliveryStatus.PENDING));
+        return deliveries;
+    }
+
+    @Test
+    void whenBatchesFail_thenTheyAreRetriedAndOnlyTheBadTourIsLost() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger transientFailures = new AtomicInteger(1);
+        List<Long> stored = Collections.synchronizedList(new ArrayList<>());
+        WriteBehindTourWriter writer = new WriteBehindTourWriter(null, null, null, null, 4, 10, 2, 1, 10) {
+            @Override
+            void writeBatch(List<PendingTour> batch) {
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    throw new IllegalStateException(ex);
+                }
+                if (transientFailures.getAndDecrement() > 0)
+                    throw new IllegalStateException("connection reset");
+                for (PendingTour p : batch) {
+                    if (p.deliveryIds.contains(13L))
+                        throw new IllegalStateException("constraint violation");
+                }
+                for (PendingTour p : batch)
+                    stored.addAll(p.deliveryIds);
+            }
+        };
+        writer.start();
+
+        // the worker holds the first tour, the queue takes 4 more
+        assertTrue(writer.submit(tour(1, 3), null));
+        while (writer.stats().getQueued() > 0)
+            Thread.sleep(1);
+        for (long t = 1; t < 5; t++)
+            assertTrue(writer.submit(tour(t * 10 + 1, t * 10 + 3), null));
+        // backpressure: a full queue rejects after the offer timeout
+        assertFalse(writer.submit(tour(97), null));
+
+        release.countDown();
+        assertTrue(writer.flush(5000));
+        TourWriter.Stats stats = writer.stats();
+        assertEquals(5, stats.getSubmitted());
+        assertEquals(1, stats.getRejected());
+        // tour 11,13 fails in its batch and alone, the others are written
+        assertEquals(1, stats.getFailed());
+        assertEquals(4, stats.getWritten());
+        assertEquals(2, stats.getRetries());
+        assertEquals(List.of(1L, 3L, 21L, 23L, 31L, 33L, 41L, 43L), stored);
+        writer.stop();
+        assertFalse(writer.isRunning());
+    }
+}
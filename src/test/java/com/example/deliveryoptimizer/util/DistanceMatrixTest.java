@@ -0,0 +1,94 @@
+package com.example.deliveryoptimizer.util;
+
+import com.example.deliveryoptimizer.entity.Delivery;
+import com.example.deliveryoptimizer.entity.DeliveryStatus;
+import com.example.deliveryoptimizer.entity.Warehouse;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistanceMatrixTest {
+
+    @Test
+    void whenBuiltInParallel_thenEveryCellMatchesScalarHaversine() {
+        Warehouse wh = new Warehouse("TestWh", 48.85, 2.35, "08:00-18:00");
+        Random rnd = new Random(42);
+        List<Delivery> deliveries = new ArrayList<>();
+        // enough points to go through the parallel tiled build
+        for (int i = 0; i < 600; i++) {
+            deliveries.add(new Delivery(48.7 + rnd.nextDouble() * 0.3, 2.2 + rnd.nextDouble() * 0.3, 1.0, 0.1, DeliveryStatus.PENDING));
+        }
+
+        DistanceMatrix matrix = DistanceMatrix.of(wh, deliveries);
+
+        assertEquals(deliveries.size() + 1, matrix.size());
+        for (int i = 0; i < deliveries.size(); i++) {
+            Delivery di = deliveries.get(i);
+            assertEquals(DistanceUtils.haversine(wh.getLatitude(), wh.getLongitude(), di.getLatitude(), di.getLongitude()),
+                    matrix.fromDepot(i), 1e-6);
+            for (int j = 0; j < deliveries.size(); j += 7) {
+                Delivery dj = deliveries.get(j);
+                double expected = DistanceUtils.haversine(di.getLatitude(), di.getLongitude(), dj.getLatitude(), dj.getLongitude());
+                assertEquals(expected, matrix.between(i, j), 1e-6);
+                assertEquals(matrix.between(i, j), matrix.between(j, i), "matrix should be symmetric");
+            }
+        }
+    }
+
+    @Test
+    void whenSinglePrecision_thenDistancesStayWithinOneMeter() {
+        Warehouse wh = new Warehouse("TestWh", 0.0, 0.0, "08:00-18:00");
+        List<Delivery> deliveries = List.of(
+                new Delivery(0.5, 0.5, 1.0, 0.1, DeliveryStatus.PENDING),
+                new Delivery(1.0, -1.0, 1.0, 0.1, DeliveryStatus.PENDING),
+                new Delivery(-2.0, 3.0, 1.0, 0.1, DeliveryStatus.PENDING));
+
+        DistanceMatrix exact = DistanceMatrix.of(wh, deliveries);
+        DistanceMatrix compact = DistanceMatrix.of(wh, deliveries, true);
+
+        assertTrue(compact.isSinglePrecision());
+        for (int i = 0; i < exact.size(); i++) {
+            for (int j = 0; j < exact.size(); j++) {
+                assertEquals(exact.get(i, j), compact.get(i, j), 1.0);
+            }
+        }
+    }
+
+    @Test
+    void tourLength_includesLegsFromAndBackToWarehouse() {
+        Warehouse wh = new Warehouse("TestWh", 0.0, 0.0, "08:00-18:00");
+        List<Delivery> deliveries = List.of(
+                new Delivery(0.01, 0.0, 1.0, 0.1, DeliveryStatus.PENDING),
+                new Delivery(0.02, 0.0, 1.0, 0.1, DeliveryStatus.PENDING));
+
+        DistanceMatrix matrix = DistanceMatrix.of(wh, deliveries);
+
+        double expected = matrix.fromDepot(0) + matrix.between(0, 1) + matrix.fromDepot(1);
+        assertEquals(expected, matrix.tourLength(new int[] { 0, 1 }), 1e-9);
+        assertEquals(0.0, matrix.tourLength(new int[0]));
+    }
+
+    @Test
+    void whenNeighboursComeFromGrid_thenTheyMatchTheMatrixScan() {
+        Random rnd = new Random(5);
+        int n = 700;
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        List<Delivery> deliveries = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            // a coarse lattice, so many neighbours are tied on distance
+            lat[i] = 48.7 + rnd.nextInt(40) * 0.005;
+            lon[i] = 2.2 + rnd.nextInt(40) * 0.005;
+            deliveries.add(new Delivery(lat[i], lon[i], 1.0, 0.1, DeliveryStatus.PENDING));
+        }
+
+        int[] scanned = DistanceMatrix.of(null, deliveries).nearestNeighbors(8);
+        int[] gridded = new SpatialGrid(lat, lon).nearestNeighbors(8);
+
+        assertArrayEquals(scanned, gridded);
+    }
+}
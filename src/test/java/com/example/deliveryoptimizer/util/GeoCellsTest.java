@@ -0,0 +1,55 @@
+package com.example.deliveryoptimizer.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeoCellsTest {
+
+    private static boolean covered(List<long[]> ranges, long cell) {
+        for (long[] r : ranges) {
+            if (cell >= r[0] && cell <= r[1])
+                return true;
+        }
+        return false;
+    }
+
+    @Test
+    void whenPointIsWithinRadius_thenItsCellIsInTheRangesOfTheBoundingBox() {
+        Random rnd = new Random(7);
+        // ordinary places, the antimeridian and near a pole
+        double[][] centers = { { 48.85, 2.35 }, { -17.7, 179.95 }, { 64.1, -179.9 }, { 89.7, 10.0 } };
+        double[] radii = { 500, 5_000, 50_000 };
+        for (double[] c : centers) {
+            for (double radius : radii) {
+                double[] box = GeoCells.boundingBox(c[0], c[1], radius);
+                List<long[]> ranges = GeoCells.ranges(box);
+                double span = Math.toDegrees(radius / GeoPoints.EARTH_RADIUS) * 3;
+                int inside = 0;
+                for (int i = 0; i < 20_000; i++) {
+                    double lat = Math.max(-90, Math.min(90, c[0] + (rnd.nextDouble() * 2 - 1) * span));
+                    double lon = c[1] + (rnd.nextDouble() * 2 - 1) * span * 10;
+                    lon = ((lon + 540) % 360) - 180;
+                    if (DistanceUtils.haversine(c[0], c[1], lat, lon) > radius)
+                        continue;
+                    inside++;
+                    assertTrue(covered(ranges, GeoCells.cellOf(lat, lon)), "missed " + lat + "," + lon);
+                }
+                assertTrue(inside > 0);
+            }
+        }
+    }
+
+    @Test
+    void whenBoxCrossesTheAntimeridian_thenBothEdgesAreCovered() {
+        double[] box = GeoCells.boundingBox(0, 179.99, 5_000);
+        assertTrue(box[2] > box[3]);
+        List<long[]> ranges = GeoCells.ranges(box);
+        assertTrue(covered(ranges, GeoCells.cellOf(0, 179.999)));
+        assertTrue(covered(ranges, GeoCells.cellOf(0, -179.98)));
+        assertFalse(covered(ranges, GeoCells.cellOf(0, 0)));
+    }
+}
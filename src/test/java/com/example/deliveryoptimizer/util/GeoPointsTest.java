@@ -0,0 +1,81 @@
+package com.example.deliveryoptimizer.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeoPointsTest {
+
+    @Test
+    void whenComputedInBatch_thenEqualToScalarUpToRounding() {
+        Random rnd = new Random(3);
+        int n = 500;
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int i = 0; i < n; i++) {
+            lat[i] = 59.0 + rnd.nextDouble() * 0.6;
+            lon[i] = 10.4 + rnd.nextDouble() * 1.2;
+        }
+        GeoPoints points = new GeoPoints(lat, lon);
+        DistanceUtils.Origin origin = new DistanceUtils.Origin(lat[0], lon[0]);
+        double[] prepared = new double[GeoPoints.PREPARED_STRIDE];
+        GeoPoints.prepare(lat[0], lon[0], prepared, 0);
+
+        double[] row = new double[n];
+        points.distancesFrom(0, 0, n, row, 0);
+        for (int j = 0; j < n; j++) {
+            double scalar = DistanceUtils.haversine(lat[0], lon[0], lat[j], lon[j]);
+            assertEquals(scalar, origin.distanceTo(lat[j], lon[j]), 0.0);
+            assertEquals(scalar, row[j], 1e-6);
+            assertEquals(row[j], points.distance(j, 0), 1e-9);
+            assertEquals(row[j], points.distance(prepared, 0, j), 0.0);
+        }
+        // Oslo - Stockholm (~417 km)
+        assertEquals(417_000.0, DistanceUtils.haversine(59.9139, 10.7522, 59.3293, 18.0686), 2_000.0);
+    }
+
+    @Test
+    void whenApproximatingShortDistances_thenRelativeErrorStaysWithinTheBound() {
+        Random rnd = new Random(7);
+        int n = 1000;
+        for (int t = 0; t < 50; t++) {
+            double[] lat = new double[n];
+            double[] lon = new double[n];
+            lat[0] = -69.0 + rnd.nextDouble() * 138.0;
+            lon[0] = -180.0 + rnd.nextDouble() * 360.0;
+            // up to ~60 km in any direction: pairs above the cut-off take the exact path
+            for (int j = 1; j < n; j++) {
+                double deg = rnd.nextDouble() * 60_000.0 / 111_195.0;
+                double bearing = rnd.nextDouble() * 2 * Math.PI;
+                lat[j] = Math.max(-70.0, Math.min(70.0, lat[0] + deg * Math.cos(bearing)));
+                lon[j] = lon[0] + deg * Math.sin(bearing) / Math.cos(Math.toRadians(lat[0]));
+            }
+            GeoPoints points = new GeoPoints(lat, lon);
+            double[] approx = new double[n];
+            points.approxDistancesFrom(0, 0, n, approx, 0);
+            for (int j = 1; j < n; j++) {
+                double exact = points.distance(0, j);
+                assertEquals(exact, approx[j], exact * GeoPoints.FAST_PATH_MAX_RELATIVE_ERROR);
+                if (approx[j] > GeoPoints.FAST_PATH_MAX_METERS)
+                    assertEquals(exact, approx[j], 0.0);
+            }
+        }
+    }
+
+    @Test
+    void whenComputingManyToMany_thenEachCellIsThePairDistance() {
+        GeoPoints from = new GeoPoints(new double[] { 59.91, 59.33 }, new double[] { 10.75, 18.07 });
+        GeoPoints to = new GeoPoints(new double[] { 55.68, 60.17, 59.91 }, new double[] { 12.57, 24.94, 10.75 });
+        double[] out = new double[from.size() * to.size()];
+        from.distancesTo(to, out);
+        double[] prepared = new double[GeoPoints.PREPARED_STRIDE];
+        for (int i = 0; i < from.size(); i++) {
+            GeoPoints.prepare(i == 0 ? 59.91 : 59.33, i == 0 ? 10.75 : 18.07, prepared, 0);
+            for (int j = 0; j < to.size(); j++)
+                assertEquals(to.distance(prepared, 0, j), out[i * to.size() + j], 0.0);
+        }
+        assertEquals(0.0, out[2], 1e-6);
+    }
+}